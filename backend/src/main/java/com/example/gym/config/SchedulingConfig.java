@@ -0,0 +1,19 @@
+package com.example.gym.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+public class SchedulingConfig {
+
+    // long jobs (renewal billing, expiry sweeps) must not hold up the frequent ones (payment polling, occupancy pushes)
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(@Value("${gym.scheduling.pool-size:4}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("scheduling-");
+        return scheduler;
+    }
+}
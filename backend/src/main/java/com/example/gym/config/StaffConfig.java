@@ -4,8 +4,8 @@ import com.example.gym.model.StaffModel;
 import com.example.gym.model.UserCredentialModel;
 import com.example.gym.repository.StaffRepository;
 import com.example.gym.repository.UserCredentialRepository;
+import com.example.gym.security.PasswordHasher;
 import lombok.RequiredArgsConstructor;
-import org.mindrot.jbcrypt.BCrypt;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -18,14 +18,15 @@ public class StaffConfig {
 
     @Bean
     //Creating admin account
-    public CommandLineRunner commandLineRunner(UserCredentialRepository userCredentialRepository, StaffRepository staffRepository) {
+    public CommandLineRunner commandLineRunner(UserCredentialRepository userCredentialRepository, StaffRepository staffRepository,
+                                               PasswordHasher passwordHasher) {
         return args -> {
             if(userCredentialRepository.findByUserEmail("admin@example.com").isEmpty())
             {
                 UserCredentialModel user = UserCredentialModel.builder()
                         .userEmail("admin@example.com")
                         .userType("staff")
-                        .passwordHash(BCrypt.hashpw("admin",  BCrypt.gensalt()))
+                        .passwordHash(passwordHasher.hash("admin"))
                         .build();
 
                 StaffModel staff = StaffModel.builder()
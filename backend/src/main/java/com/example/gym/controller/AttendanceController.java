@@ -0,0 +1,54 @@
+package com.example.gym.controller;
+
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.security.CurrentUser;
+import com.example.gym.service.AttendanceIngestService;
+import com.example.gym.service.AttendancePartitionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/attendance")
+public class AttendanceController {
+
+    private final AttendanceIngestService attendanceIngestService;
+    private final AttendancePartitionService attendancePartitionService;
+
+    // 202 once buffered; memberId is only used when staff badge a member in, roomId when the turnstile guards a room
+    @PostMapping("/check-in")
+    public ResponseEntity<?> checkIn(@CurrentUser AuthenticatedUser user, @RequestParam(required = false) UUID memberId,
+                                     @RequestParam(required = false) Long roomId) {
+        return attendanceIngestService.checkIn(user, memberId, roomId);
+    }
+
+    @PostMapping("/check-out")
+    public ResponseEntity<?> checkOut(@CurrentUser AuthenticatedUser user, @RequestParam(required = false) UUID memberId) {
+        return attendanceIngestService.checkOut(user, memberId);
+    }
+
+    // admin only; buffer depth and flush counters
+    @GetMapping("/ingest-stats")
+    public ResponseEntity<?> getIngestStats(@CurrentUser AuthenticatedUser user) {
+        return attendanceIngestService.getIngestStats(user);
+    }
+
+    // visits between two dates, including months already moved to the archive; members get their own
+    @GetMapping("/history")
+    public ResponseEntity<?> getHistory(@CurrentUser AuthenticatedUser user, @RequestParam(required = false) UUID memberId,
+                                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return attendancePartitionService.getHistory(user, memberId, from, to);
+    }
+
+    // admin only; monthly partitions and archived months
+    @GetMapping("/storage")
+    public ResponseEntity<?> getStorage(@CurrentUser AuthenticatedUser user) {
+        return attendancePartitionService.getStorage(user);
+    }
+}
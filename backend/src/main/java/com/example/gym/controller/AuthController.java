@@ -2,7 +2,10 @@ package com.example.gym.controller;
 
 import com.example.gym.dto.LoginRequest;
 import com.example.gym.dto.MemberRegisterRequest;
+import com.example.gym.dto.RefreshTokenRequest;
 import com.example.gym.dto.TrainerRegister;
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.security.CurrentUser;
 import com.example.gym.service.AuthService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
@@ -40,20 +43,37 @@ public class AuthController {
 
     }
 
+    // exchange a refresh token for a new access token
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody RefreshTokenRequest refreshRequest) {
+
+        return authService.refresh(refreshRequest);
+
+    }
+
+    // revoke the current tokens
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@RequestHeader(HttpHeaders.AUTHORIZATION) String authHeader,
+            @RequestBody(required = false) RefreshTokenRequest refreshRequest) {
+
+        return authService.logout(authHeader, refreshRequest);
+
+    }
+
     // filling up user details
     @PostMapping("/userdetails")
     public ResponseEntity<?> userDetails(@RequestBody com.example.gym.dto.UserDetailsRequest userDetailsRequest,
-            @RequestHeader(HttpHeaders.AUTHORIZATION) String authHeader) {
+            @CurrentUser AuthenticatedUser user) {
 
-        return authService.createUserDetails(userDetailsRequest, authHeader); // Giving user detailed info
+        return authService.createUserDetails(userDetailsRequest, user); // Giving user detailed info
 
     }
 
     // getting user information
     @GetMapping("/member-details")
-    public ResponseEntity<?> getMemberDetails(@RequestHeader(HttpHeaders.AUTHORIZATION) String authHeader) {
+    public ResponseEntity<?> getMemberDetails(@CurrentUser AuthenticatedUser user) {
 
-        return authService.getMemberDetails(authHeader); // Get user information
+        return authService.getMemberDetails(user); // Get user information
 
     }
 
@@ -65,9 +85,9 @@ public class AuthController {
     // }
 
     @GetMapping("/trainer-details")
-    public ResponseEntity<?> getTrainerDetails(@RequestHeader(HttpHeaders.AUTHORIZATION) String authHeader) {
+    public ResponseEntity<?> getTrainerDetails(@CurrentUser AuthenticatedUser user) {
 
-        return authService.getTrainerDetails(authHeader); // Get user information
+        return authService.getTrainerDetails(user); // Get user information
 
     }
 
@@ -0,0 +1,32 @@
+package com.example.gym.controller;
+
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.security.CurrentUser;
+import com.example.gym.service.RenewalBillingService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/admin/billing")
+public class BillingController {
+
+    private final RenewalBillingService renewalBillingService;
+
+    // admin only; bills renewals as of the given date (default today), safe to repeat
+    @PostMapping("/renewals")
+    public ResponseEntity<?> runRenewals(@CurrentUser AuthenticatedUser user,
+                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate asOf) {
+        return renewalBillingService.runNow(user, asOf);
+    }
+
+    // admin only
+    @GetMapping("/renewals/last")
+    public ResponseEntity<?> getLastRun(@CurrentUser AuthenticatedUser user) {
+        return renewalBillingService.getLastRun(user);
+    }
+}
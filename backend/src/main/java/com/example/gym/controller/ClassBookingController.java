@@ -0,0 +1,50 @@
+package com.example.gym.controller;
+
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.security.CurrentUser;
+import com.example.gym.service.ClassBookingService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/classes")
+public class ClassBookingController {
+
+    private final ClassBookingService classBookingService;
+
+    // 201 with the booking, 202 when put on the waitlist, 409 when full (and waitlist=false), cancelled, over or
+    // already booked; memberId only when staff book for a member
+    @PostMapping("/occurrences/{occurrenceId}/bookings")
+    public ResponseEntity<?> book(@CurrentUser AuthenticatedUser user, @PathVariable Long occurrenceId,
+                                  @RequestParam(required = false) UUID memberId,
+                                  @RequestParam(defaultValue = "false") boolean waitlist) {
+        return classBookingService.book(user, occurrenceId, memberId, waitlist);
+    }
+
+    @GetMapping("/occurrences/{occurrenceId}/waitlist/position")
+    public ResponseEntity<?> getWaitlistPosition(@CurrentUser AuthenticatedUser user, @PathVariable Long occurrenceId,
+                                                 @RequestParam(required = false) UUID memberId) {
+        return classBookingService.getWaitlistPosition(user, occurrenceId, memberId);
+    }
+
+    // admin only; extra seats of every upcoming session go to its waitlist in order
+    @PutMapping("/{scheduleId}/capacity")
+    public ResponseEntity<?> changeCapacity(@CurrentUser AuthenticatedUser user, @PathVariable Long scheduleId,
+                                            @RequestParam int capacity) {
+        return classBookingService.changeCapacity(user, scheduleId, capacity);
+    }
+
+    @DeleteMapping("/bookings/{bookingId}")
+    public ResponseEntity<?> cancel(@CurrentUser AuthenticatedUser user, @PathVariable Long bookingId) {
+        return classBookingService.cancel(user, bookingId);
+    }
+
+    @GetMapping("/bookings")
+    public ResponseEntity<?> listBookings(@CurrentUser AuthenticatedUser user, @RequestParam(required = false) UUID memberId) {
+        return classBookingService.listBookings(user, memberId);
+    }
+}
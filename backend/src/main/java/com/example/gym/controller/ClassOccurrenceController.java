@@ -0,0 +1,76 @@
+package com.example.gym.controller;
+
+import com.example.gym.dto.OccurrenceMoveRequest;
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.security.CurrentUser;
+import com.example.gym.service.ClassOccurrenceService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/classes")
+public class ClassOccurrenceController {
+
+    private final ClassOccurrenceService classOccurrenceService;
+
+    // the classes of one day, today when no date is given
+    @GetMapping("/occurrences")
+    public ResponseEntity<?> getDay(@CurrentUser AuthenticatedUser user,
+                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return classOccurrenceService.getDay(date);
+    }
+
+    // the session of a weekly class on a given date, created on first use when it is past the horizon
+    @GetMapping("/{scheduleId}/occurrences/{date}")
+    public ResponseEntity<?> getOccurrence(@CurrentUser AuthenticatedUser user, @PathVariable Long scheduleId,
+                                           @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return classOccurrenceService.getOccurrence(scheduleId, date);
+    }
+
+    // admin only
+    @PostMapping("/occurrences/{occurrenceId}/cancel")
+    public ResponseEntity<?> cancel(@CurrentUser AuthenticatedUser user, @PathVariable Long occurrenceId,
+                                    @RequestParam(required = false) String reason) {
+        return classOccurrenceService.cancel(user, occurrenceId, reason);
+    }
+
+    // admin only
+    @PutMapping("/occurrences/{occurrenceId}")
+    public ResponseEntity<?> move(@CurrentUser AuthenticatedUser user, @PathVariable Long occurrenceId,
+                                  @RequestBody OccurrenceMoveRequest request) {
+        return classOccurrenceService.move(user, occurrenceId, request);
+    }
+
+    // admin only
+    @PostMapping("/occurrences/generate")
+    public ResponseEntity<?> generate(@CurrentUser AuthenticatedUser user,
+                                      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return classOccurrenceService.generateRange(user, from, to);
+    }
+
+    @GetMapping("/closures")
+    public ResponseEntity<?> listClosures(@CurrentUser AuthenticatedUser user) {
+        return classOccurrenceService.listClosures(user);
+    }
+
+    // admin only
+    @PostMapping("/closures")
+    public ResponseEntity<?> closeDay(@CurrentUser AuthenticatedUser user,
+                                      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+                                      @RequestParam(required = false) String reason) {
+        return classOccurrenceService.closeDay(user, date, reason);
+    }
+
+    // admin only
+    @DeleteMapping("/closures/{date}")
+    public ResponseEntity<?> reopenDay(@CurrentUser AuthenticatedUser user,
+                                       @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return classOccurrenceService.reopenDay(user, date);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.gym.controller;
+
+import com.example.gym.dto.ClassScheduleRequest;
+import com.example.gym.dto.TimetableRequest;
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.security.CurrentUser;
+import com.example.gym.service.ClassScheduleService;
+import com.example.gym.service.TimetableService;
+import com.example.gym.service.WeeklyScheduleService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalTime;
+import java.util.UUID;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/classes")
+public class ClassScheduleController {
+
+    private final ClassScheduleService classScheduleService;
+    private final TimetableService timetableService;
+    private final WeeklyScheduleService weeklyScheduleService;
+
+    // any signed-in user; the precomputed week with remaining seats, 304 while If-None-Match still matches its ETag
+    @GetMapping("/schedule")
+    public ResponseEntity<?> getSchedule(@CurrentUser AuthenticatedUser user,
+                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return weeklyScheduleService.getSchedule(ifNoneMatch);
+    }
+
+    // admin only; 409 when the room or the trainer is already booked at that time
+    @PostMapping
+    public ResponseEntity<?> create(@CurrentUser AuthenticatedUser user, @RequestBody ClassScheduleRequest request) {
+        return classScheduleService.create(user, request);
+    }
+
+    // admin only
+    @PutMapping("/{scheduleId}")
+    public ResponseEntity<?> update(@CurrentUser AuthenticatedUser user, @PathVariable Long scheduleId,
+                                    @RequestBody ClassScheduleRequest request) {
+        return classScheduleService.update(user, scheduleId, request);
+    }
+
+    // admin only
+    @DeleteMapping("/{scheduleId}")
+    public ResponseEntity<?> delete(@CurrentUser AuthenticatedUser user, @PathVariable Long scheduleId) {
+        return classScheduleService.delete(user, scheduleId);
+    }
+
+    // admin only; proposes a week of classes within the time budget, and saves it when apply is set and it is conflict-free
+    @PostMapping("/timetable/generate")
+    public ResponseEntity<?> generateTimetable(@CurrentUser AuthenticatedUser user, @RequestBody TimetableRequest request) {
+        return timetableService.generate(user, request);
+    }
+
+    @GetMapping("/conflicts")
+    public ResponseEntity<?> getConflicts(@CurrentUser AuthenticatedUser user,
+                                          @RequestParam(required = false) Long roomId,
+                                          @RequestParam(required = false) UUID trainerId,
+                                          @RequestParam String dayOfWeek,
+                                          @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime start,
+                                          @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime end) {
+        return classScheduleService.getConflicts(user, roomId, trainerId, dayOfWeek, start, end);
+    }
+
+    @GetMapping("/free-slot")
+    public ResponseEntity<?> findNextFreeSlot(@CurrentUser AuthenticatedUser user,
+                                              @RequestParam(required = false) Long roomId,
+                                              @RequestParam(required = false) UUID trainerId,
+                                              @RequestParam String dayOfWeek,
+                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime from,
+                                              @RequestParam int minutes) {
+        return classScheduleService.findNextFreeSlot(user, roomId, trainerId, dayOfWeek, from, minutes);
+    }
+}
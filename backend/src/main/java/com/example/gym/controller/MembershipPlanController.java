@@ -0,0 +1,43 @@
+package com.example.gym.controller;
+
+import com.example.gym.dto.MembershipPlanRequest;
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.security.CurrentUser;
+import com.example.gym.service.MembershipPlanService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/plans")
+public class MembershipPlanController {
+
+    private final MembershipPlanService membershipPlanService;
+
+    @GetMapping
+    public ResponseEntity<?> listPlans() {
+        return membershipPlanService.listPlans();
+    }
+
+    // admin only
+    @PostMapping
+    public ResponseEntity<?> createPlan(@CurrentUser AuthenticatedUser user, @RequestBody MembershipPlanRequest request) {
+        return membershipPlanService.createPlan(user, request);
+    }
+
+    // admin only
+    @PutMapping("/{planId}")
+    public ResponseEntity<?> updatePlan(@CurrentUser AuthenticatedUser user, @PathVariable UUID planId,
+                                        @RequestBody MembershipPlanRequest request) {
+        return membershipPlanService.updatePlan(user, planId, request);
+    }
+
+    // admin only
+    @DeleteMapping("/{planId}")
+    public ResponseEntity<?> deletePlan(@CurrentUser AuthenticatedUser user, @PathVariable UUID planId) {
+        return membershipPlanService.deletePlan(user, planId);
+    }
+}
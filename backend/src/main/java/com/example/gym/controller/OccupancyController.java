@@ -0,0 +1,31 @@
+package com.example.gym.controller;
+
+import com.example.gym.dto.OccupancySnapshot;
+import com.example.gym.service.OccupancyService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+// counts only, no member data, so lobby screens can read them without signing in
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/occupancy")
+public class OccupancyController {
+
+    private final OccupancyService occupancyService;
+
+    @GetMapping
+    public ResponseEntity<OccupancySnapshot> getOccupancy() {
+        return ResponseEntity.ok(occupancyService.snapshot());
+    }
+
+    // "occupancy" events carrying the full snapshot, at most one per push interval
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamOccupancy() {
+        return occupancyService.subscribe();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.gym.controller;
+
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.security.CurrentUser;
+import com.example.gym.service.OccupancyHeatmapService;
+import com.example.gym.service.RevenueReportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/admin/reports")
+public class ReportController {
+
+    private final RevenueReportService revenueReportService;
+    private final OccupancyHeatmapService occupancyHeatmapService;
+
+    // admin only; groupBy is day, month, plan or method
+    @GetMapping("/revenue")
+    public ResponseEntity<?> getRevenue(@CurrentUser AuthenticatedUser user,
+                                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                        @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                        @RequestParam(defaultValue = "day") String groupBy) {
+        return revenueReportService.getRevenue(user, from, to, groupBy);
+    }
+
+    // admin only; without a range every rollup is rebuilt
+    @PostMapping("/revenue/rebuild")
+    public ResponseEntity<?> rebuildRevenue(@CurrentUser AuthenticatedUser user,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return revenueReportService.rebuild(user, from, to);
+    }
+
+    // admin only; weekday x time-of-day average occupancy and arrivals, for one room or the whole facility
+    @GetMapping("/occupancy-heatmap")
+    public ResponseEntity<?> getOccupancyHeatmap(@CurrentUser AuthenticatedUser user,
+                                                 @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                 @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                 @RequestParam(required = false) Long roomId,
+                                                 @RequestParam(defaultValue = "60") int resolution) {
+        return occupancyHeatmapService.getHeatmap(user, from, to, roomId, resolution);
+    }
+
+    // admin only; recomputes past days from attendance_logs
+    @PostMapping("/occupancy-heatmap/rebuild")
+    public ResponseEntity<?> rebuildOccupancyHeatmap(@CurrentUser AuthenticatedUser user,
+                                                     @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                     @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return occupancyHeatmapService.rebuild(user, from, to);
+    }
+}
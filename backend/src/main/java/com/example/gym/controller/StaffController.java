@@ -1,11 +1,17 @@
 package com.example.gym.controller;
 
+import com.example.gym.dto.BulkStatusRequest;
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.security.CurrentUser;
+import com.example.gym.service.ChurnService;
+import com.example.gym.service.MemberImportService;
 import com.example.gym.service.StaffService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
 import java.util.UUID;
 
 @RestController
@@ -15,22 +21,76 @@ import java.util.UUID;
 public class StaffController {
 
     private final StaffService staffService;
+    private final MemberImportService memberImportService;
+    private final ChurnService churnService;
 
     @GetMapping("/pending-request")
-    public ResponseEntity<?> getPendingRequest(@RequestHeader(HttpHeaders.AUTHORIZATION) String authHeader)
+    public ResponseEntity<?> getPendingRequest(@CurrentUser AuthenticatedUser user,
+                                               @RequestParam(defaultValue = "pending") String status,
+                                               @RequestParam(required = false) String cursor,
+                                               @RequestParam(defaultValue = "50") int size,
+                                               @RequestParam(defaultValue = "asc") String sort)
     {
-        return staffService.getPendingRequest(authHeader);
+        return staffService.getPendingRequest(user, status, cursor, size, sort);
     }
 
     @PostMapping("/pending-request/grant/{user_id}")
-    public ResponseEntity<?> grantRequest(@PathVariable UUID user_id, @RequestHeader(HttpHeaders.AUTHORIZATION) String authHeader)
+    public ResponseEntity<?> grantRequest(@PathVariable UUID user_id, @CurrentUser AuthenticatedUser user)
     {
-        return staffService.alterMemberCurrentStatus(user_id, authHeader, "active");
+        return staffService.alterMemberCurrentStatus(user_id, user, "active");
+    }
+
+    // change the status of many members at once, by id list or by current status
+    @PostMapping("/members/status")
+    public ResponseEntity<?> alterMembersStatus(@CurrentUser AuthenticatedUser user, @RequestBody BulkStatusRequest request)
+    {
+        return staffService.alterMembersStatus(user, request);
+    }
+
+    // stream members from CSV (with header row) or NDJSON; duplicates are reported per row
+    @PostMapping(value = "/members/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<?> importMembers(@CurrentUser AuthenticatedUser user,
+                                           @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                           @RequestParam(defaultValue = "pending") String status,
+                                           InputStream body)
+    {
+        return memberImportService.importMembers(user, body, contentType, status);
+    }
+
+    // progress of running and recent imports
+    @GetMapping("/members/imports")
+    public ResponseEntity<?> listImports(@CurrentUser AuthenticatedUser user)
+    {
+        return memberImportService.listImports(user);
+    }
+
+    // active members without a check-in for inactiveDays, longest absent first
+    @GetMapping("/members/churn-risk")
+    public ResponseEntity<?> getChurnRisk(@CurrentUser AuthenticatedUser user,
+                                          @RequestParam(defaultValue = "30") int inactiveDays,
+                                          @RequestParam(required = false) String cursor,
+                                          @RequestParam(defaultValue = "50") int size)
+    {
+        return churnService.getChurnRisk(user, inactiveDays, cursor, size);
+    }
+
+    // weekly at-risk counts per inactivity window
+    @GetMapping("/members/churn-snapshots")
+    public ResponseEntity<?> getChurnSnapshots(@CurrentUser AuthenticatedUser user,
+                                               @RequestParam(defaultValue = "12") int weeks)
+    {
+        return churnService.getSnapshots(user, weeks);
+    }
+
+    @PostMapping("/members/churn-snapshots")
+    public ResponseEntity<?> takeChurnSnapshot(@CurrentUser AuthenticatedUser user)
+    {
+        return churnService.snapshotNow(user);
     }
 
     @PostMapping("/request/ban/{user_id}")
-    public ResponseEntity<?> banMember(@PathVariable UUID user_id, @RequestHeader(HttpHeaders.AUTHORIZATION) String authHeader)
+    public ResponseEntity<?> banMember(@PathVariable UUID user_id, @CurrentUser AuthenticatedUser user)
     {
-        return staffService.alterMemberCurrentStatus(user_id, authHeader, "banned");
+        return staffService.alterMemberCurrentStatus(user_id, user, "banned");
     }
 }
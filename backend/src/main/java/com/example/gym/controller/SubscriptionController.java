@@ -1,39 +1,53 @@
 package com.example.gym.controller;
 
 import com.example.gym.config.PaymentRequest;
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.security.CurrentUser;
+import com.example.gym.service.PaymentProcessingService;
 import com.example.gym.service.SubscriptionService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.UUID;
+
 @RestController
 @RequestMapping("/api/subscriptions")
 @RequiredArgsConstructor
 public class SubscriptionController {
 
     private final SubscriptionService subscriptionService;
+    private final PaymentProcessingService paymentProcessingService;
 
     @PostMapping("/apply")
     public ResponseEntity<?> applyForSubscription(
-            @RequestHeader("Authorization") String authHeader,
+            @CurrentUser AuthenticatedUser user,
             @RequestParam("plan") String planName) {
-        return subscriptionService.applyForSubscription(authHeader, planName);
+        return subscriptionService.applyForSubscription(user, planName);
     }
 
+    // accepted for asynchronous settlement: 202 with a tracking id to poll
     @PostMapping("/pay")
     public ResponseEntity<?> makePayment(
-            @RequestHeader("Authorization") String authHeader,
+            @CurrentUser AuthenticatedUser user,
             @RequestBody PaymentRequest paymentRequest) {
-        return subscriptionService.paymentForSubscription(authHeader, paymentRequest);
+        return paymentProcessingService.enqueuePayment(user, paymentRequest);
+    }
+
+    @GetMapping("/payments/{trackingId}")
+    public ResponseEntity<?> getPaymentStatus(
+            @CurrentUser AuthenticatedUser user,
+            @PathVariable UUID trackingId) {
+        return paymentProcessingService.getPaymentStatus(user, trackingId);
     }
 
     @GetMapping("/current")
-    public ResponseEntity<?> getCurrentSubscription(@RequestHeader("Authorization") String authHeader) {
-        return subscriptionService.seeSubsciptionDetail(authHeader);
+    public ResponseEntity<?> getCurrentSubscription(@CurrentUser AuthenticatedUser user) {
+        return subscriptionService.seeSubsciptionDetail(user);
     }
 
     @GetMapping("/invoices/pending")
-    public ResponseEntity<?> getPendingInvoices(@RequestHeader("Authorization") String authHeader) {
-        return subscriptionService.getPendingInvoices(authHeader);
+    public ResponseEntity<?> getPendingInvoices(@CurrentUser AuthenticatedUser user) {
+        return subscriptionService.getPendingInvoices(user);
     }
 }
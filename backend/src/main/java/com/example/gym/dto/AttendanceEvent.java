@@ -0,0 +1,28 @@
+package com.example.gym.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// a turnstile check-in or check-out, acknowledged before it reaches the database; roomId may be null
+public record AttendanceEvent(UUID eventId, UUID memberId, Long roomId, String type, LocalDateTime at) {
+
+    public static final String CHECK_IN = "in";
+    public static final String CHECK_OUT = "out";
+
+    public boolean isCheckIn() {
+        return CHECK_IN.equals(type);
+    }
+
+    // one journal line: eventId,memberId,type,at,roomId
+    public String toJournalLine() {
+        return eventId + "," + memberId + "," + type + "," + at + "," + (roomId == null ? "" : roomId);
+    }
+
+    // lines journaled before rooms were tracked have no roomId field
+    public static AttendanceEvent fromJournalLine(String line) {
+        String[] fields = line.split(",", 5);
+        Long roomId = fields.length > 4 && !fields[4].isEmpty() ? Long.valueOf(fields[4]) : null;
+        return new AttendanceEvent(UUID.fromString(fields[0]), UUID.fromString(fields[1]), roomId, fields[2],
+                LocalDateTime.parse(fields[3]));
+    }
+}
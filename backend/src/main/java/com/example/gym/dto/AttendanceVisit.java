@@ -0,0 +1,21 @@
+package com.example.gym.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// one visit from attendance_logs or an archived month; roomId and checkOutTime may be null
+public record AttendanceVisit(Long logId, UUID memberId, Long roomId, LocalDateTime checkInTime, LocalDateTime checkOutTime) {
+
+    // one archive line: logId,memberId,roomId,checkInTime,checkOutTime
+    public String toArchiveLine() {
+        return logId + "," + memberId + "," + (roomId == null ? "" : roomId) + "," + checkInTime + ","
+                + (checkOutTime == null ? "" : checkOutTime);
+    }
+
+    public static AttendanceVisit fromArchiveLine(String line) {
+        String[] fields = line.split(",", 5);
+        return new AttendanceVisit(Long.valueOf(fields[0]), UUID.fromString(fields[1]),
+                fields[2].isEmpty() ? null : Long.valueOf(fields[2]), LocalDateTime.parse(fields[3]),
+                fields[4].isEmpty() ? null : LocalDateTime.parse(fields[4]));
+    }
+}
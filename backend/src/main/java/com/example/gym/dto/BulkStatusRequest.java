@@ -0,0 +1,15 @@
+package com.example.gym.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.UUID;
+
+@Getter
+@Setter
+public class BulkStatusRequest {
+    private List<UUID> memberIds; // explicit members to change
+    private String fromStatus; // or: every member currently in this status
+    private String targetStatus;
+}
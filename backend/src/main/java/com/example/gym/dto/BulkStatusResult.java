@@ -0,0 +1,14 @@
+package com.example.gym.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+@Getter
+@AllArgsConstructor
+public class BulkStatusResult {
+    private UUID memberId;
+    private String outcome; // updated, unchanged, not_found
+    private String previousStatus;
+}
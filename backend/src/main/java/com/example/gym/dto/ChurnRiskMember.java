@@ -0,0 +1,19 @@
+package com.example.gym.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// active member who has not checked in within the requested window
+@Getter
+@AllArgsConstructor
+public class ChurnRiskMember {
+    private UUID memberId;
+    private String firstName;
+    private String lastName;
+    private String email;
+    private String phone;
+    private LocalDateTime lastVisit;
+}
@@ -0,0 +1,24 @@
+package com.example.gym.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+// a booking with the class occurrence it is for, read in one query
+@Getter
+@AllArgsConstructor
+public class ClassBookingView {
+    private Long bookingId;
+    private Long scheduleId;
+    private Long occurrenceId;
+    private String className;
+    private LocalDate classDate;
+    private LocalTime startTime;
+    private LocalTime endTime;
+    private String roomName;
+    private String status;
+    private LocalDateTime bookingTime;
+}
@@ -0,0 +1,19 @@
+package com.example.gym.dto;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// one dated class as members see it; capacity and remainingSeats are null when the class has no limit
+public record ClassOccurrenceView(Long occurrenceId, Long scheduleId, String className, LocalDate date,
+                                  LocalTime startTime, LocalTime endTime, Long roomId, String roomName,
+                                  String trainerName, String status, String exceptionType, String note,
+                                  Integer capacity, Integer seatsTaken, Integer remainingSeats) {
+
+    public ClassOccurrenceView(Long occurrenceId, Long scheduleId, String className, LocalDate date,
+                               LocalTime startTime, LocalTime endTime, Long roomId, String roomName,
+                               String trainerName, String status, String exceptionType, String note,
+                               Integer capacity, Integer seatsTaken) {
+        this(occurrenceId, scheduleId, className, date, startTime, endTime, roomId, roomName, trainerName, status,
+                exceptionType, note, capacity, seatsTaken, capacity == null ? null : Math.max(0, capacity - seatsTaken));
+    }
+}
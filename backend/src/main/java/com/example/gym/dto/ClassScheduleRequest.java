@@ -0,0 +1,19 @@
+package com.example.gym.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalTime;
+import java.util.UUID;
+
+@Getter
+@Setter
+public class ClassScheduleRequest {
+    private UUID trainerId;
+    private Long roomId;
+    private String className;
+    private String dayOfWeek;
+    private LocalTime startTime;
+    private LocalTime endTime;
+    private Integer capacity;
+}
@@ -0,0 +1,13 @@
+package com.example.gym.dto;
+
+// answer of a payment gateway to a charge; declineReason is set only when not approved
+public record GatewayResult(boolean approved, String gatewayRef, String declineReason) {
+
+    public static GatewayResult approved(String gatewayRef) {
+        return new GatewayResult(true, gatewayRef, null);
+    }
+
+    public static GatewayResult declined(String declineReason) {
+        return new GatewayResult(false, null, declineReason);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.gym.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ImportRowError {
+    private long row;
+    private String email;
+    private String reason;
+}
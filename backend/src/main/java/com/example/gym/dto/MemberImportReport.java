@@ -0,0 +1,48 @@
+package com.example.gym.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+// live progress of one bulk member import; readable while the import is still running
+@Getter
+public class MemberImportReport {
+
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final UUID importId = UUID.randomUUID();
+    private final String format;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+
+    @Setter
+    private volatile String status = "running"; // running, completed, failed
+
+    @Setter
+    private volatile LocalDateTime finishedAt;
+
+    @Setter
+    private volatile String failure;
+
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong imported = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    // capped so a badly broken file cannot grow the report without bound
+    private final List<ImportRowError> errors = Collections.synchronizedList(new ArrayList<>());
+
+    public MemberImportReport(String format) {
+        this.format = format;
+    }
+
+    public void reject(long row, String email, String reason) {
+        rejected.incrementAndGet();
+        if (errors.size() < MAX_REPORTED_ERRORS)
+            errors.add(new ImportRowError(row, email, reason));
+    }
+}
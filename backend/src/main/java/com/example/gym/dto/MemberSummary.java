@@ -0,0 +1,20 @@
+package com.example.gym.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// slim member row for admin listings; never touches the lazy associations of MemberModel
+@Getter
+@AllArgsConstructor
+public class MemberSummary {
+    private UUID memberId;
+    private String firstName;
+    private String lastName;
+    private String email;
+    private String phone;
+    private String currentStatus;
+    private LocalDateTime createdAt;
+}
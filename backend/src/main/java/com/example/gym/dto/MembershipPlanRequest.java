@@ -0,0 +1,15 @@
+package com.example.gym.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+public class MembershipPlanRequest {
+    private String name;
+    private Integer durationDays;
+    private BigDecimal baseFee;
+    private BigDecimal discountedFee;
+}
@@ -0,0 +1,9 @@
+package com.example.gym.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// weekday x time-of-day grid merged over a date range; rows are Monday..Sunday, columns are slots from midnight
+public record OccupancyHeatmap(LocalDate from, LocalDate to, Long roomId, int slotMinutes, List<String> weekdays,
+                               double[][] averageOccupancy, long[][] arrivals, int[] daysPerWeekday) {
+}
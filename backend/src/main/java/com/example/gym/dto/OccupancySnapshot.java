@@ -0,0 +1,8 @@
+package com.example.gym.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// live occupancy of every room; total also counts visits not tied to a room
+public record OccupancySnapshot(long version, LocalDateTime at, long total, List<RoomOccupancy> rooms) {
+}
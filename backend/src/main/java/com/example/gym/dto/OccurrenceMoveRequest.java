@@ -0,0 +1,18 @@
+package com.example.gym.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// fields left out keep the occurrence's current value
+@Getter
+@Setter
+public class OccurrenceMoveRequest {
+    private LocalDate date;
+    private LocalTime startTime;
+    private LocalTime endTime;
+    private Long roomId;
+    private String note;
+}
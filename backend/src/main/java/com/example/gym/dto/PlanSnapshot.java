@@ -0,0 +1,20 @@
+package com.example.gym.dto;
+
+import com.example.gym.model.MembershipPlanModel;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+// immutable copy of a membership plan, safe to share across threads from the in-memory catalog
+public record PlanSnapshot(UUID planId, String name, Integer durationDays, BigDecimal baseFee, BigDecimal discountedFee) {
+
+    public static PlanSnapshot of(MembershipPlanModel plan) {
+        return new PlanSnapshot(plan.getPlanId(), plan.getName(), plan.getDurationDays(), plan.getBaseFee(),
+                plan.getDiscountedFee());
+    }
+
+    // price actually invoiced: the discounted fee when one is set
+    public BigDecimal effectiveFee() {
+        return discountedFee != null ? discountedFee : baseFee;
+    }
+}
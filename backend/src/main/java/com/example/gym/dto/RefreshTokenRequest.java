@@ -0,0 +1,10 @@
+package com.example.gym.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class RefreshTokenRequest {
+    private String refreshToken;
+}
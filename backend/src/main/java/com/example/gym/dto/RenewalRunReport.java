@@ -0,0 +1,10 @@
+package com.example.gym.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// outcome of one renewal billing run over subscriptions ending in [periodFrom, periodTo]
+// skipped counts invoices another run inserted first
+public record RenewalRunReport(LocalDate periodFrom, LocalDate periodTo, int partitions, long scanned, long created,
+                               long skipped, LocalDateTime startedAt, long durationMillis) {
+}
@@ -0,0 +1,7 @@
+package com.example.gym.dto;
+
+import java.math.BigDecimal;
+
+// one bucket of a revenue report: a day, month, plan or payment method
+public record RevenueRow(String key, BigDecimal amount, long payments) {
+}
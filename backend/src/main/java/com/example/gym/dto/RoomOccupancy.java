@@ -0,0 +1,5 @@
+package com.example.gym.dto;
+
+// people currently inside one room; capacity is null when the room has none set
+public record RoomOccupancy(Long roomId, String name, Integer capacity, long present) {
+}
@@ -0,0 +1,42 @@
+package com.example.gym.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+
+@Getter
+@Setter
+public class TimetableRequest {
+    private List<ClassDemand> classes;
+    private List<TrainerAvailability> availability; // trainers without entries can teach whenever the gym is open
+    private Long timeBudgetMs;
+    private Boolean keepExisting; // plan around the classes already on the timetable; default true, false only previews
+    private Boolean apply;        // save the result when it is conflict-free; default false
+
+    // one kind of class, run sessions times a week; classType is matched against trainer specializations
+    @Getter
+    @Setter
+    public static class ClassDemand {
+        private String className;
+        private String classType;
+        private String roomType;
+        private Integer minutes;
+        private Integer expectedAttendance;
+        private Integer sessions;
+        private List<String> preferredDays;
+        private LocalTime preferredFrom;
+        private LocalTime preferredTo;
+    }
+
+    @Getter
+    @Setter
+    public static class TrainerAvailability {
+        private UUID trainerId;
+        private String dayOfWeek;
+        private LocalTime from;
+        private LocalTime to;
+    }
+}
@@ -6,6 +6,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 
 @Data
@@ -13,20 +14,40 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Builder
 @Entity
-@Table(name = "attendance_logs")
+// Range-partitioned by month on check_in_time at startup (AttendancePartitionService), so every unique key
+// includes check_in_time.
+@Table(name = "attendance_logs", indexes = {
+        @Index(name = "idx_attendance_member_checkin", columnList = "member_id, check_in_time"),
+        @Index(name = "idx_attendance_checkin", columnList = "check_in_time")
+}, uniqueConstraints = @UniqueConstraint(name = "uk_attendance_event", columnNames = {"event_id", "check_in_time"}))
 public class AttendanceLogModel {
+    // a sequence rather than IDENTITY so inserts can be batched; the check-in writer draws ids inline with nextval
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "attendance_logs_seq")
+    @SequenceGenerator(name = "attendance_logs_seq", sequenceName = "attendance_logs_seq", allocationSize = 1)
     @Column(name = "log_id")
     private Long logId;
 
+    // id of the check-in event that created the row; makes journal replay idempotent
+    @Column(name = "event_id")
+    private UUID eventId;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "member_id", nullable = false)
     private MemberModel member;
 
+    // room badged into; null for entrances not tied to a room
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "room_id")
+    private FacilityRoomModel room;
+
     @Column(name = "check_in_time", nullable = false)
     private LocalDateTime checkInTime;
 
     @Column(name = "check_out_time")
     private LocalDateTime checkOutTime;
+
+    // id of the check-out event that closed the visit; a replayed check-out finds it and does nothing
+    @Column(name = "check_out_event_id")
+    private UUID checkOutEventId;
 }
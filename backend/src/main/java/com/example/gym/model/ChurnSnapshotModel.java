@@ -0,0 +1,38 @@
+package com.example.gym.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Weekly count of active members past each inactivity window, kept to chart churn risk over time.
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_churn_snapshot_date_window",
+        columnNames = {"snapshotDate", "inactiveDays"}))
+public class ChurnSnapshotModel {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID snapshotId;
+
+    @Column(nullable = false)
+    private LocalDate snapshotDate;
+
+    @Column(nullable = false)
+    private Integer inactiveDays;
+
+    @Column(nullable = false)
+    private Long activeMembers;
+
+    @Column(nullable = false)
+    private Long atRiskMembers;
+
+    @Column(nullable = false)
+    private LocalDateTime takenAt;
+}
@@ -13,7 +13,13 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Builder
 @Entity
-@Table(name = "class_bookings")
+// one row per member and class occurrence; cancelling and booking again reuses it
+@Table(name = "class_bookings", uniqueConstraints = @UniqueConstraint(name = "uk_booking_occurrence_member",
+        columnNames = {"occurrence_id", "member_id"}), indexes = {
+        @Index(name = "idx_booking_member", columnList = "member_id"),
+        @Index(name = "idx_booking_schedule", columnList = "schedule_id"),
+        @Index(name = "idx_booking_queue", columnList = "occurrence_id, status, booking_time, booking_id")
+})
 public class ClassBookingModel {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -28,9 +34,13 @@ public class ClassBookingModel {
     @JoinColumn(name = "schedule_id", nullable = false)
     private ClassScheduleModel classSchedule;
 
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "occurrence_id", nullable = false)
+    private ClassOccurrenceModel occurrence;
+
     @Column(name = "booking_time")
     @CreationTimestamp
     private LocalDateTime bookingTime;
 
-    private String status; // Confirmed, Waitlist, Cancelled
+    private String status; // confirmed, waitlist, cancelled
 }
@@ -0,0 +1,26 @@
+package com.example.gym.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+// A day the gym runs no classes, such as a public holiday. Occurrences generated for it start out cancelled.
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "class_closures")
+public class ClassClosureModel {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "closure_id")
+    private Long closureId;
+
+    @Column(name = "closure_date", nullable = false, unique = true)
+    private LocalDate closureDate;
+
+    private String reason;
+}
@@ -0,0 +1,63 @@
+package com.example.gym.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// One dated session of a weekly class, materialized ahead over a rolling horizon so bookings, cancellations and
+// moves have a concrete row to point at. Generated rows copy the schedule's time and room; exceptions edit the row.
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "class_occurrences", uniqueConstraints = @UniqueConstraint(name = "uk_occurrence_schedule_date",
+        columnNames = {"schedule_id", "scheduled_date"}), indexes = {
+        @Index(name = "idx_occurrence_day", columnList = "occurrence_date, start_time"),
+        @Index(name = "idx_occurrence_room_day", columnList = "room_id, occurrence_date")
+})
+public class ClassOccurrenceModel {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "occurrence_id")
+    private Long occurrenceId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "schedule_id", nullable = false)
+    private ClassScheduleModel classSchedule;
+
+    // the date the weekly recurrence gives; stays put when the session is moved, so regeneration never duplicates it
+    @Column(name = "scheduled_date", nullable = false)
+    private LocalDate scheduledDate;
+
+    @Column(name = "occurrence_date", nullable = false)
+    private LocalDate occurrenceDate;
+
+    @Column(name = "start_time", nullable = false)
+    private LocalTime startTime;
+
+    @Column(name = "end_time", nullable = false)
+    private LocalTime endTime;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "room_id", nullable = false)
+    private FacilityRoomModel room;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private String status = "scheduled"; // scheduled, cancelled
+
+    // why the session departs from its weekly schedule: moved, cancelled or closure; null when it does not
+    @Column(name = "exception_type")
+    private String exceptionType;
+
+    private String note;
+
+    // confirmed bookings, moved only by conditional updates in the booking transaction; reconciled at startup
+    @Column(name = "seats_taken", nullable = false)
+    @Builder.Default
+    private Integer seatsTaken = 0;
+}
@@ -42,6 +42,10 @@ public class ClassScheduleModel {
     @Column(name = "end_time", nullable = false)
     private LocalTime endTime;
 
+    // overrides the room's capacity for every occurrence of this class when set
+    @Column(name = "capacity")
+    private Integer capacity;
+
     @OneToMany(mappedBy = "classSchedule")
     private List<ClassBookingModel> bookings;
 }
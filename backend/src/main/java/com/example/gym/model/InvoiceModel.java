@@ -14,6 +14,8 @@ import java.util.UUID;
 @AllArgsConstructor
 @Builder
 @Entity
+// one invoice per subscription and billing period, so a rerun of renewal billing never double-bills
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_invoice_sub_period", columnNames = {"sub_id", "billingPeriodStart"}))
 public class InvoiceModel {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
@@ -30,7 +32,14 @@ public class InvoiceModel {
     private LocalDate dueDate;
 
     @Column(nullable = false)
-    private String status; // paid, unpaid, overdue
+    private LocalDate billingPeriodStart; // first day of the period this invoice pays for
+
+    @Column(nullable = false)
+    private String status; // pending, paid, void (its subscription expired first)
+
+    // concurrent writers of the same invoice fail at flush instead of overwriting each other
+    @Version
+    private Long version;
 
     @OneToOne(mappedBy = "invoice", cascade = CascadeType.ALL)
     private PaymentModel payments;
@@ -0,0 +1,29 @@
+package com.example.gym.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+// Progress of a chunked background job. The row doubles as the cross-instance lock:
+// each chunk runs while holding it FOR UPDATE, so two backends never process the same rows.
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+public class JobCursorModel {
+    @Id
+    private String jobName;
+
+    private String cursorValue; // last key processed by the current run
+
+    private LocalDateTime runStartedAt;
+
+    private LocalDateTime runFinishedAt; // null while a run is in progress (or was interrupted)
+
+    private Long rowsTouched; // rows changed by the current or last run
+
+    private Long durationMillis; // wall time of the last finished run
+}
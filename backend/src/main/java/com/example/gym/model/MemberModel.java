@@ -2,8 +2,10 @@ package com.example.gym.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
@@ -15,7 +17,9 @@ import java.util.UUID;
 @Builder
 @Entity
 @Table(indexes = {
-        @Index(name = "idx_member_email", columnList = "email", unique = true)
+        @Index(name = "idx_member_email", columnList = "email", unique = true),
+        @Index(name = "idx_member_status_created", columnList = "currentStatus, createdAt, memberId"),
+        @Index(name = "idx_member_status_last_visit", columnList = "currentStatus, lastVisit, memberId")
 })
 public class MemberModel {
     @Id
@@ -43,12 +47,27 @@ public class MemberModel {
     @Column(nullable = false)
     private String currentStatus; // active, expired, banned, pending
 
-    @OneToOne(mappedBy = "member", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
-    private SubscriptionModel subscriptions;
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt; // signup order, used as the keyset for admin queues
+
+    // latest check-in, kept by attendance ingestion; starts at signup so members who never come in still age into churn risk
+    @Column(nullable = false)
+    private LocalDateTime lastVisit;
+
+    // one row per application; an expired or canceled subscription stays next to the one that replaced it
+    @OneToMany(mappedBy = "member", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    private List<SubscriptionModel> subscriptions;
 
     @OneToMany(mappedBy = "member", fetch = FetchType.LAZY)
     private List<ClassBookingModel> bookings;
 
     @OneToMany(mappedBy = "member", fetch = FetchType.LAZY)
     private List<AttendanceLogModel> attendanceLogs;
+
+    @PrePersist
+    void initLastVisit() {
+        if (lastVisit == null)
+            lastVisit = LocalDateTime.now();
+    }
 }
@@ -0,0 +1,40 @@
+package com.example.gym.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+// One day of one room as fixed-width slot arrays (slot i starts i * slot minutes after midnight).
+// Added to as visits complete, so heatmaps merge a few rows per day instead of re-reading attendance_logs.
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_heatmap_date_room", columnNames = {"heatmapDate", "roomId"}))
+public class OccupancyHeatmapModel {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID heatmapId;
+
+    @Column(nullable = false)
+    private LocalDate heatmapDate;
+
+    @Column(nullable = false)
+    private Long roomId; // 0 for entrances not tied to a room
+
+    // check-ins that started in each slot
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(nullable = false)
+    private int[] arrivals;
+
+    // member-seconds spent inside during each slot; divided by the slot length this is the average headcount
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(nullable = false)
+    private int[] presenceSeconds;
+}
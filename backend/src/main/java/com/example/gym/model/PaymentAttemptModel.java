@@ -0,0 +1,60 @@
+package com.example.gym.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// A payment request accepted for asynchronous settlement. The table is the durable queue:
+// rows survive restarts and are picked up again until they reach a final status.
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_attempt_invoice_ref", columnNames = {"invoiceId", "transactionRef"}),
+        indexes = @Index(name = "idx_attempt_status_updated", columnList = "status, updatedAt"))
+public class PaymentAttemptModel {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID attemptId; // tracking id handed to the client
+
+    @Column(nullable = false)
+    private UUID invoiceId;
+
+    @Column(nullable = false)
+    private UUID memberId; // owner; only they can poll the attempt
+
+    @Column(nullable = false)
+    private BigDecimal amount;
+
+    private String paymentMethod;
+
+    @Column(nullable = false)
+    private String transactionRef; // also the idempotency key sent to the gateway
+
+    @Column(nullable = false)
+    private String status; // queued, processing, settled, declined, rejected, failed
+
+    @Column(nullable = false)
+    private Integer attempts; // gateway calls made so far
+
+    private String gatewayRef;
+
+    private String failureReason;
+
+    private UUID paymentId; // set once settled
+
+    private LocalDateTime nextAttemptAt; // a queued retry is not picked up before this
+
+    @CreationTimestamp
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
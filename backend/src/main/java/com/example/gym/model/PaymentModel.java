@@ -13,6 +13,8 @@ import java.util.UUID;
 @AllArgsConstructor
 @Builder
 @Entity
+// at most one payment settles an invoice; retried requests are recognised by their payment attempt
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_payment_invoice", columnNames = "invoice_id"))
 public class PaymentModel {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
@@ -0,0 +1,39 @@
+package com.example.gym.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+// Settled revenue per day, plan and payment method. Kept current as payments settle and
+// rebuildable from payment_model, so reports read O(days) rows instead of scanning payments.
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_revenue_day_plan_method",
+        columnNames = {"revenueDate", "planId", "paymentMethod"}))
+public class RevenueRollupModel {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID rollupId;
+
+    @Column(nullable = false)
+    private LocalDate revenueDate;
+
+    @Column(nullable = false)
+    private UUID planId;
+
+    @Column(nullable = false)
+    private String paymentMethod; // lower-cased; "unknown" when the payment had none
+
+    @Column(nullable = false)
+    private BigDecimal totalAmount;
+
+    @Column(nullable = false)
+    private Long paymentCount;
+}
@@ -0,0 +1,37 @@
+package com.example.gym.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_revoked_token_id", columnList = "tokenId"),
+        @Index(name = "idx_revoked_subject", columnList = "subject"),
+        @Index(name = "idx_revoked_expires_at", columnList = "expiresAt"),
+        @Index(name = "idx_revoked_at", columnList = "revokedAt")
+})
+public class RevokedTokenModel {
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID revocationId;
+
+    private String tokenId; // jti of a single revoked token; null when every token of the subject is revoked
+
+    @Column(nullable = false)
+    private String subject; // user email
+
+    // whole seconds for subject entries, to compare with a token's iat
+    @Column(nullable = false)
+    private LocalDateTime revokedAt;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt; // after this, every token covered by the entry has expired on its own
+}
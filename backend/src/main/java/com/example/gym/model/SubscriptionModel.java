@@ -14,6 +14,10 @@ import java.util.UUID;
 @AllArgsConstructor
 @Builder
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_sub_status_end", columnList = "status, endDate, subId"),
+        @Index(name = "idx_sub_member", columnList = "member_id")
+})
 public class SubscriptionModel {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
@@ -34,9 +38,14 @@ public class SubscriptionModel {
     private LocalDate endDate;
 
     @Column(nullable = false)
-    private String status; // active, pending, canceled
+    private String status; // active, pending, canceled, expired
 
-    @OneToOne(mappedBy = "subscription", cascade = CascadeType.ALL)
-    private InvoiceModel invoice;
+    @Version
+    private Long version;
+
+    // the initial invoice plus one per renewal period
+    @OneToMany(mappedBy = "subscription", cascade = CascadeType.ALL)
+    @Builder.Default
+    private List<InvoiceModel> invoices = new ArrayList<>();
 
 }
@@ -1,5 +1,6 @@
 package com.example.gym.repository;
 
+import com.example.gym.dto.AttendanceVisit;
 import com.example.gym.model.AttendanceLogModel;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -8,10 +9,17 @@ import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.UUID;
 
 @Repository
 public interface AttendanceLogRepository extends JpaRepository<AttendanceLogModel, Long> {
-    List<AttendanceLogModel> findByMemberMemberId(Long memberId);
+    // bounded on check_in_time so only the partitions of the requested months are touched
+    @Query("SELECT new com.example.gym.dto.AttendanceVisit(a.logId, a.member.memberId, r.roomId, a.checkInTime, a.checkOutTime) " +
+            "FROM AttendanceLogModel a LEFT JOIN a.room r " +
+            "WHERE a.member.memberId = :memberId AND a.checkInTime >= :from AND a.checkInTime < :to ORDER BY a.checkInTime")
+    List<AttendanceVisit> findVisits(@Param("memberId") UUID memberId,
+                                     @Param("from") LocalDateTime from,
+                                     @Param("to") LocalDateTime to);
 
     // Find check-ins for today
     @Query("SELECT a FROM AttendanceLogModel a WHERE a.checkInTime BETWEEN :startOfDay AND :endOfDay")
@@ -0,0 +1,30 @@
+package com.example.gym.repository;
+
+import com.example.gym.model.ChurnSnapshotModel;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ChurnSnapshotRepository extends JpaRepository<ChurnSnapshotModel, UUID> {
+
+    // first writer wins, so several instances firing the same schedule record one snapshot
+    @Modifying
+    @Query(value = "INSERT INTO churn_snapshot_model (snapshot_id, snapshot_date, inactive_days, active_members, at_risk_members, taken_at) " +
+                   "VALUES (gen_random_uuid(), :snapshotDate, :inactiveDays, :activeMembers, :atRiskMembers, :takenAt) " +
+                   "ON CONFLICT (snapshot_date, inactive_days) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("snapshotDate") LocalDate snapshotDate, @Param("inactiveDays") int inactiveDays,
+                       @Param("activeMembers") long activeMembers, @Param("atRiskMembers") long atRiskMembers,
+                       @Param("takenAt") LocalDateTime takenAt);
+
+    List<ChurnSnapshotModel> findBySnapshotDateOrderByInactiveDaysAsc(LocalDate snapshotDate);
+
+    List<ChurnSnapshotModel> findBySnapshotDateGreaterThanEqualOrderBySnapshotDateAscInactiveDaysAsc(LocalDate from);
+}
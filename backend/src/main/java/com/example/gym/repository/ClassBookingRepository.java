@@ -1,15 +1,78 @@
 package com.example.gym.repository;
 
+import com.example.gym.dto.ClassBookingView;
 import com.example.gym.model.ClassBookingModel;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 @Repository
 public interface ClassBookingRepository extends JpaRepository<ClassBookingModel, Long> {
-    List<ClassBookingModel> findByMemberMemberId(Long memberId);
 
-    // Count confirmed bookings for a specific class (for capacity check)
-    Long countByClassScheduleScheduleIdAndStatus(Long scheduleId, String status);
+    @Query("SELECT new com.example.gym.dto.ClassBookingView(b.bookingId, s.scheduleId, o.occurrenceId, s.className, " +
+            "o.occurrenceDate, o.startTime, o.endTime, r.name, b.status, b.bookingTime) " +
+            "FROM ClassBookingModel b JOIN b.classSchedule s JOIN b.occurrence o JOIN o.room r " +
+            "WHERE b.member.memberId = :memberId ORDER BY o.occurrenceDate DESC, o.startTime DESC")
+    List<ClassBookingView> findViewsByMember(@Param("memberId") UUID memberId);
+
+    Optional<ClassBookingModel> findByOccurrenceOccurrenceIdAndMemberMemberId(Long occurrenceId, UUID memberId);
+
+    // head of an occurrence's waitlist, through idx_booking_queue; call with the occurrence row locked
+    @Query(value = "SELECT booking_id FROM class_bookings WHERE occurrence_id = :occurrenceId AND status = 'waitlist' " +
+                   "ORDER BY booking_time, booking_id LIMIT 1", nativeQuery = true)
+    Optional<Long> findWaitlistHead(@Param("occurrenceId") Long occurrenceId);
+
+    // every waiting booking for sessions still ahead as (occurrenceId, bookingId, memberId), in queue order
+    @Query("SELECT b.occurrence.occurrenceId, b.bookingId, b.member.memberId FROM ClassBookingModel b " +
+            "WHERE b.status = 'waitlist' AND b.occurrence.occurrenceDate >= :from " +
+            "ORDER BY b.occurrence.occurrenceId, b.bookingTime, b.bookingId")
+    List<Object[]> findAllWaiting(@Param("from") LocalDate from);
+
+    @Query("SELECT COUNT(b) FROM ClassBookingModel b WHERE b.occurrence.occurrenceId = :occurrenceId AND b.status = 'waitlist' " +
+            "AND (b.bookingTime < :bookingTime OR (b.bookingTime = :bookingTime AND b.bookingId < :bookingId))")
+    long countWaitingAhead(@Param("occurrenceId") Long occurrenceId, @Param("bookingTime") LocalDateTime bookingTime,
+                           @Param("bookingId") Long bookingId);
+
+    // confirmed or waitlisted bookings for sessions of a class that are still ahead
+    @Query("SELECT COUNT(b) FROM ClassBookingModel b WHERE b.classSchedule.scheduleId = :scheduleId " +
+            "AND b.status IN ('confirmed', 'waitlist') AND b.occurrence.occurrenceDate >= :from")
+    long countActiveFrom(@Param("scheduleId") Long scheduleId, @Param("from") LocalDate from);
+
+    // any booking row, cancelled ones included, keeps an occurrence from being deleted
+    boolean existsByOccurrenceOccurrenceId(Long occurrenceId);
+
+    // Count confirmed bookings for a specific class occurrence (for capacity check)
+    Long countByOccurrenceOccurrenceIdAndStatus(Long occurrenceId, String status);
+
+    // only one caller can move a booking out of a status
+    @Modifying
+    @Query("UPDATE ClassBookingModel b SET b.status = :to WHERE b.bookingId = :bookingId AND b.status = :from")
+    int transition(@Param("bookingId") Long bookingId, @Param("from") String from, @Param("to") String to);
+
+    // booking a class again after cancelling it; the booking time restarts
+    @Modifying
+    @Query("UPDATE ClassBookingModel b SET b.status = :status, b.bookingTime = :bookingTime " +
+            "WHERE b.bookingId = :bookingId AND b.status = 'cancelled'")
+    int reactivate(@Param("bookingId") Long bookingId, @Param("status") String status,
+                   @Param("bookingTime") LocalDateTime bookingTime);
+
+    // every active booking of the given occurrences, when the sessions themselves are cancelled
+    @Modifying
+    @Query("UPDATE ClassBookingModel b SET b.status = 'cancelled' WHERE b.occurrence.occurrenceId IN :occurrenceIds " +
+            "AND b.status IN ('confirmed', 'waitlist')")
+    int cancelAll(@Param("occurrenceIds") Collection<Long> occurrenceIds);
+
+    // the booking history of a class being deleted; upcoming active bookings block the delete
+    @Modifying
+    @Query("DELETE FROM ClassBookingModel b WHERE b.classSchedule.scheduleId = :scheduleId")
+    int deleteBySchedule(@Param("scheduleId") Long scheduleId);
 }
@@ -0,0 +1,17 @@
+package com.example.gym.repository;
+
+import com.example.gym.model.ClassClosureModel;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface ClassClosureRepository extends JpaRepository<ClassClosureModel, Long> {
+    boolean existsByClosureDate(LocalDate closureDate);
+
+    long deleteByClosureDate(LocalDate closureDate);
+
+    List<ClassClosureModel> findByClosureDateGreaterThanEqualOrderByClosureDateAsc(LocalDate from);
+}
@@ -0,0 +1,128 @@
+package com.example.gym.repository;
+
+import com.example.gym.dto.ClassOccurrenceView;
+import com.example.gym.model.ClassOccurrenceModel;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface ClassOccurrenceRepository extends JpaRepository<ClassOccurrenceModel, Long> {
+
+    String VIEW = "SELECT new com.example.gym.dto.ClassOccurrenceView(o.occurrenceId, s.scheduleId, s.className, " +
+            "o.occurrenceDate, o.startTime, o.endTime, r.roomId, r.name, CONCAT(st.firstName, ' ', st.lastName), o.status, " +
+            "o.exceptionType, o.note, COALESCE(s.capacity, r.capacity), o.seatsTaken) " +
+            "FROM ClassOccurrenceModel o JOIN o.classSchedule s JOIN o.room r JOIN s.trainer t JOIN t.staff st ";
+
+    Optional<ClassOccurrenceModel> findByClassScheduleScheduleIdAndScheduledDate(Long scheduleId, LocalDate scheduledDate);
+
+    // one day's classes through idx_occurrence_day
+    @Query(VIEW + "WHERE o.occurrenceDate = :date ORDER BY o.startTime, o.occurrenceId")
+    List<ClassOccurrenceView> findDay(@Param("date") LocalDate date);
+
+    @Query(VIEW + "WHERE o.occurrenceDate BETWEEN :from AND :to ORDER BY o.occurrenceDate, o.startTime, o.occurrenceId")
+    List<ClassOccurrenceView> findViews(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query(VIEW + "WHERE o.occurrenceId IN :occurrenceIds")
+    List<ClassOccurrenceView> findViews(@Param("occurrenceIds") Collection<Long> occurrenceIds);
+
+    @Query("SELECT o.occurrenceId FROM ClassOccurrenceModel o WHERE o.classSchedule.scheduleId = :scheduleId " +
+            "AND o.occurrenceDate >= :from AND o.status = 'scheduled' ORDER BY o.occurrenceDate")
+    List<Long> findUpcomingIds(@Param("scheduleId") Long scheduleId, @Param("from") LocalDate from);
+
+    @Query("SELECT o.occurrenceId FROM ClassOccurrenceModel o WHERE o.occurrenceDate = :date AND o.status = 'scheduled'")
+    List<Long> findScheduledIds(@Param("date") LocalDate date);
+
+    // scheduled sessions in a room overlapping [start, end) on a date, other than the one being moved
+    @Query("SELECT o.occurrenceId FROM ClassOccurrenceModel o WHERE o.room.roomId = :roomId AND o.occurrenceDate = :date " +
+            "AND o.status = 'scheduled' AND o.occurrenceId <> :occurrenceId AND o.startTime < :end AND o.endTime > :start")
+    List<Long> findRoomConflicts(@Param("occurrenceId") Long occurrenceId, @Param("roomId") Long roomId,
+                                 @Param("date") LocalDate date, @Param("start") LocalTime start, @Param("end") LocalTime end);
+
+    @Query("SELECT o.occurrenceId FROM ClassOccurrenceModel o WHERE o.classSchedule.trainer.trainerId = :trainerId " +
+            "AND o.occurrenceDate = :date AND o.status = 'scheduled' AND o.occurrenceId <> :occurrenceId " +
+            "AND o.startTime < :end AND o.endTime > :start")
+    List<Long> findTrainerConflicts(@Param("occurrenceId") Long occurrenceId, @Param("trainerId") UUID trainerId,
+                                    @Param("date") LocalDate date, @Param("start") LocalTime start, @Param("end") LocalTime end);
+
+    // upcoming scheduled sessions of other classes in a room on a weekday overlapping [start, end), the first clash first;
+    // catches sessions that were moved or left behind in an old slot, which the weekly timetable no longer shows
+    @Query(value = "SELECT o.occurrence_id FROM class_occurrences o WHERE o.room_id = :roomId AND o.occurrence_date >= :from " +
+                   "AND o.status = 'scheduled' AND EXTRACT(ISODOW FROM o.occurrence_date) = :isoDay " +
+                   "AND o.schedule_id <> :scheduleId AND o.start_time < :end AND o.end_time > :start " +
+                   "ORDER BY o.occurrence_date, o.start_time LIMIT 1", nativeQuery = true)
+    List<Long> findWeeklyRoomConflicts(@Param("scheduleId") Long scheduleId, @Param("roomId") Long roomId,
+                                       @Param("isoDay") int isoDay, @Param("from") LocalDate from,
+                                       @Param("start") LocalTime start, @Param("end") LocalTime end);
+
+    @Query(value = "SELECT o.occurrence_id FROM class_occurrences o JOIN class_schedules s ON s.schedule_id = o.schedule_id " +
+                   "WHERE s.trainer_id = :trainerId AND o.occurrence_date >= :from AND o.status = 'scheduled' " +
+                   "AND EXTRACT(ISODOW FROM o.occurrence_date) = :isoDay AND o.schedule_id <> :scheduleId " +
+                   "AND o.start_time < :end AND o.end_time > :start " +
+                   "ORDER BY o.occurrence_date, o.start_time LIMIT 1", nativeQuery = true)
+    List<Long> findWeeklyTrainerConflicts(@Param("scheduleId") Long scheduleId, @Param("trainerId") UUID trainerId,
+                                          @Param("isoDay") int isoDay, @Param("from") LocalDate from,
+                                          @Param("start") LocalTime start, @Param("end") LocalTime end);
+
+    // the seat counter: takes a seat only while one is free and the session is still ahead; without a class or room
+    // capacity it never fills up
+    @Modifying
+    @Query(value = "UPDATE class_occurrences o SET seats_taken = o.seats_taken + 1 FROM class_schedules s, facility_rooms r " +
+                   "WHERE o.occurrence_id = :occurrenceId AND s.schedule_id = o.schedule_id AND r.room_id = o.room_id " +
+                   "AND o.status = 'scheduled' AND o.occurrence_date >= CURRENT_DATE " +
+                   "AND (COALESCE(s.capacity, r.capacity) IS NULL OR o.seats_taken < COALESCE(s.capacity, r.capacity))", nativeQuery = true)
+    int takeSeat(@Param("occurrenceId") Long occurrenceId);
+
+    @Modifying
+    @Query(value = "UPDATE class_occurrences SET seats_taken = seats_taken - 1 WHERE occurrence_id = :occurrenceId " +
+                   "AND seats_taken > 0", nativeQuery = true)
+    int releaseSeat(@Param("occurrenceId") Long occurrenceId);
+
+    // recounts confirmed bookings for the occurrences whose counter drifted; returns how many were corrected
+    @Modifying
+    @Query(value = "UPDATE class_occurrences o SET seats_taken = c.confirmed FROM (" +
+                   "SELECT o2.occurrence_id, COUNT(b.booking_id) AS confirmed FROM class_occurrences o2 " +
+                   "LEFT JOIN class_bookings b ON b.occurrence_id = o2.occurrence_id AND b.status = 'confirmed' " +
+                   "WHERE o2.occurrence_date >= CURRENT_DATE GROUP BY o2.occurrence_id) c " +
+                   "WHERE o.occurrence_id = c.occurrence_id AND o.seats_taken <> c.confirmed", nativeQuery = true)
+    int reconcileSeats();
+
+    // serializes seat and waitlist changes of one occurrence; empty when it does not exist
+    @Query(value = "SELECT occurrence_id FROM class_occurrences WHERE occurrence_id = :occurrenceId FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockOccurrence(@Param("occurrenceId") Long occurrenceId);
+
+    // keeps bookings from changing while the counters are recounted
+    @Modifying
+    @Query(value = "LOCK TABLE class_bookings IN SHARE MODE", nativeQuery = true)
+    void lockBookings();
+
+    @Modifying
+    @Query("UPDATE ClassOccurrenceModel o SET o.status = 'cancelled', o.exceptionType = :exceptionType, o.note = :note, " +
+            "o.seatsTaken = 0 WHERE o.occurrenceId IN :occurrenceIds AND o.status = 'scheduled'")
+    int cancel(@Param("occurrenceIds") Collection<Long> occurrenceIds, @Param("exceptionType") String exceptionType,
+               @Param("note") String note);
+
+    // occurrences a closure cancelled, with their classes, in the order a reopened day gives their slots back
+    @Query("SELECT o FROM ClassOccurrenceModel o JOIN FETCH o.classSchedule s JOIN FETCH s.room JOIN FETCH s.trainer " +
+            "WHERE o.occurrenceDate = :date AND o.exceptionType = 'closure' ORDER BY o.startTime, o.occurrenceId")
+    List<ClassOccurrenceModel> findClosed(@Param("date") LocalDate date);
+
+    // upcoming sessions that still follow the weekly schedule and nobody ever booked, so they can be regenerated
+    @Modifying
+    @Query("DELETE FROM ClassOccurrenceModel o WHERE o.classSchedule.scheduleId = :scheduleId AND o.occurrenceDate >= :from " +
+            "AND o.exceptionType IS NULL AND NOT EXISTS (SELECT 1 FROM ClassBookingModel b WHERE b.occurrence = o)")
+    int deleteUnused(@Param("scheduleId") Long scheduleId, @Param("from") LocalDate from);
+
+    @Modifying
+    @Query("DELETE FROM ClassOccurrenceModel o WHERE o.classSchedule.scheduleId = :scheduleId")
+    int deleteBySchedule(@Param("scheduleId") Long scheduleId);
+}
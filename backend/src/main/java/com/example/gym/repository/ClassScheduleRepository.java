@@ -2,24 +2,49 @@ package com.example.gym.repository;
 
 import com.example.gym.model.ClassScheduleModel;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 
 @Repository
 public interface ClassScheduleRepository extends JpaRepository<ClassScheduleModel, Long> {
-    List<ClassScheduleModel> findByTrainerTrainerId(Long trainerId);
+    List<ClassScheduleModel> findByTrainerTrainerId(UUID trainerId);
 
-    // Check for room double booking
+    // classes of a room overlapping [start, end); classes that only touch it do not conflict
     @Query("SELECT c FROM ClassScheduleModel c " +
             "WHERE c.room.roomId = :roomId " +
             "AND c.dayOfWeek = :dayOfWeek " +
-            "AND ((c.startTime BETWEEN :start AND :end) OR (c.endTime BETWEEN :start AND :end))")
+            "AND c.startTime < :end AND c.endTime > :start")
     List<ClassScheduleModel> findRoomConflicts(@Param("roomId") Long roomId,
                                                @Param("dayOfWeek") String dayOfWeek,
                                                @Param("start") LocalTime start,
                                                @Param("end") LocalTime end);
-}
\ No newline at end of file
+
+    @Query("SELECT c FROM ClassScheduleModel c " +
+            "WHERE c.trainer.trainerId = :trainerId " +
+            "AND c.dayOfWeek = :dayOfWeek " +
+            "AND c.startTime < :end AND c.endTime > :start")
+    List<ClassScheduleModel> findTrainerConflicts(@Param("trainerId") UUID trainerId,
+                                                  @Param("dayOfWeek") String dayOfWeek,
+                                                  @Param("start") LocalTime start,
+                                                  @Param("end") LocalTime end);
+
+    // the whole timetable as (scheduleId, roomId, trainerId, dayOfWeek, startTime, endTime) rows
+    @Query("SELECT c.scheduleId, c.room.roomId, c.trainer.trainerId, c.dayOfWeek, c.startTime, c.endTime " +
+            "FROM ClassScheduleModel c")
+    List<Object[]> findTimetable();
+
+    // serializes capacity changes and deletes of one class; empty when the class does not exist
+    @Query(value = "SELECT schedule_id FROM class_schedules WHERE schedule_id = :scheduleId FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockSchedule(@Param("scheduleId") Long scheduleId);
+
+    @Modifying
+    @Query("UPDATE ClassScheduleModel s SET s.capacity = :capacity WHERE s.scheduleId = :scheduleId")
+    int updateCapacity(@Param("scheduleId") Long scheduleId, @Param("capacity") Integer capacity);
+}
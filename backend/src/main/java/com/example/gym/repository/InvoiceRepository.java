@@ -2,21 +2,34 @@ package com.example.gym.repository;
 
 import com.example.gym.model.InvoiceModel;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface InvoiceRepository extends JpaRepository<InvoiceModel, UUID> {
-    // Find unpaid invoices for a specific member
-    @Query("SELECT i FROM InvoiceModel i JOIN i.subscription s WHERE s.member.memberId = :memberId AND i.status = 'pending'")
+    // Find unpaid invoices for a specific member, oldest billing period first
+    @Query("SELECT i FROM InvoiceModel i JOIN FETCH i.subscription s JOIN FETCH s.plan WHERE s.member.memberId = :memberId " +
+            "AND i.status = 'pending' ORDER BY i.billingPeriodStart ASC")
     List<InvoiceModel> findUnpaidInvoicesByMember(@Param("memberId") UUID memberId);
 
     Optional<InvoiceModel> findByInvoiceId(UUID invoiceId);
 
+    // the subscription comes along so its member can be checked without another query
+    @Query("SELECT i FROM InvoiceModel i JOIN FETCH i.subscription WHERE i.invoiceId = :invoiceId")
+    Optional<InvoiceModel> findWithSubscription(@Param("invoiceId") UUID invoiceId);
+
     Boolean existsByInvoiceId(UUID invoiceId);
+
+    // open invoices of subscriptions that just expired can no longer be paid
+    @Modifying
+    @Query("UPDATE InvoiceModel i SET i.status = 'void', i.version = i.version + 1 " +
+            "WHERE i.subscription.subId IN :subIds AND i.status = 'pending'")
+    int voidPendingOfSubscriptions(@Param("subIds") Collection<UUID> subIds);
 }
\ No newline at end of file
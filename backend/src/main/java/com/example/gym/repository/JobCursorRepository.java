@@ -0,0 +1,28 @@
+package com.example.gym.repository;
+
+import com.example.gym.model.JobCursorModel;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface JobCursorRepository extends JpaRepository<JobCursorModel, String> {
+
+    // Row lock held for the duration of one chunk; other instances wait for it
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT j FROM JobCursorModel j WHERE j.jobName = :jobName")
+    Optional<JobCursorModel> lockByJobName(@Param("jobName") String jobName);
+
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO job_cursor_model (job_name, rows_touched) VALUES (:jobName, 0) " +
+            "ON CONFLICT (job_name) DO NOTHING", nativeQuery = true)
+    void createIfMissing(@Param("jobName") String jobName);
+}
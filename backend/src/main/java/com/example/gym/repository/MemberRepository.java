@@ -1,7 +1,11 @@
 package com.example.gym.repository;
 
+import com.example.gym.dto.ChurnRiskMember;
+import com.example.gym.dto.MemberSummary;
 import com.example.gym.model.MemberModel;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -9,9 +13,8 @@ import org.springframework.stereotype.Repository;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
-
 import java.util.Optional;
 import java.util.UUID;
 
@@ -25,13 +28,61 @@ public interface MemberRepository extends JpaRepository<MemberModel, UUID> {
 
     Boolean existsByEmailAndCurrentStatus(String email, String status);
 
-    // For "Churn Risk": Find active members with no attendance in X days
-    @Query("SELECT m FROM MemberModel m " +
-            "WHERE m.currentStatus = 'Active' " +
-            "AND m.memberId NOT IN " +
-            "(SELECT a.member.memberId FROM AttendanceLogModel a WHERE a.checkInTime > :cutoffDate)")
-    List<MemberModel> findChurnRiskMembers(@Param("cutoffDate") LocalDateTime cutoffDate);
+    // Churn risk: active members whose last visit is before the cutoff, longest absent first.
+    // Walks idx_member_status_last_visit, so the cost does not grow with attendance history.
+    String CHURN_RISK = "SELECT new com.example.gym.dto.ChurnRiskMember(m.memberId, m.firstName, m.lastName, " +
+            "m.email, m.phone, m.lastVisit) FROM MemberModel m WHERE m.currentStatus = 'active' AND m.lastVisit < :cutoff ";
+
+    @Query(CHURN_RISK + "ORDER BY m.lastVisit ASC, m.memberId ASC")
+    List<ChurnRiskMember> findFirstChurnRisk(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+
+    @Query(CHURN_RISK + "AND (m.lastVisit > :lastVisit OR (m.lastVisit = :lastVisit AND m.memberId > :memberId)) " +
+            "ORDER BY m.lastVisit ASC, m.memberId ASC")
+    List<ChurnRiskMember> findNextChurnRisk(@Param("cutoff") LocalDateTime cutoff,
+                                            @Param("lastVisit") LocalDateTime lastVisit,
+                                            @Param("memberId") UUID memberId,
+                                            Limit limit);
+
+    @Query("SELECT new com.example.gym.dto.MemberSummary(m.memberId, m.firstName, m.lastName, " +
+            "m.email, m.phone, m.currentStatus, m.createdAt) FROM MemberModel m WHERE m.memberId IN :ids")
+    List<MemberSummary> findSummariesByIds(@Param("ids") Collection<UUID> ids);
+
+    @Query("SELECT m.memberId FROM MemberModel m WHERE m.currentStatus = :status ORDER BY m.createdAt, m.memberId")
+    List<UUID> findIdsByStatus(@Param("status") String status, Limit limit);
+
+    // Set-based status change; rows already in the target status are left alone
+    @Modifying
+    @Query("UPDATE MemberModel m SET m.currentStatus = :status WHERE m.memberId IN :ids AND m.currentStatus <> :status")
+    int updateStatus(@Param("ids") Collection<UUID> ids, @Param("status") String status);
+
+    // Members whose just-expired subscriptions were their last active one
+    @Modifying
+    @Query("UPDATE MemberModel m SET m.currentStatus = 'expired' WHERE m.currentStatus = 'active' " +
+            "AND m.memberId IN (SELECT s.member.memberId FROM SubscriptionModel s WHERE s.subId IN :subIds) " +
+            "AND NOT EXISTS (SELECT 1 FROM SubscriptionModel a WHERE a.member.memberId = m.memberId AND a.status = 'active')")
+    int expireMembersOfSubscriptions(@Param("subIds") Collection<UUID> subIds);
+
+    // Keyset pages of members by status in signup order, as slim projections
+    String MEMBER_SUMMARY = "SELECT new com.example.gym.dto.MemberSummary(m.memberId, m.firstName, m.lastName, " +
+            "m.email, m.phone, m.currentStatus, m.createdAt) FROM MemberModel m WHERE m.currentStatus = :status ";
+
+    @Query(MEMBER_SUMMARY + "ORDER BY m.createdAt ASC, m.memberId ASC")
+    List<MemberSummary> findFirstByStatusAsc(@Param("status") String status, Limit limit);
+
+    @Query(MEMBER_SUMMARY + "AND (m.createdAt > :createdAt OR (m.createdAt = :createdAt AND m.memberId > :memberId)) " +
+            "ORDER BY m.createdAt ASC, m.memberId ASC")
+    List<MemberSummary> findNextByStatusAsc(@Param("status") String status,
+                                            @Param("createdAt") LocalDateTime createdAt,
+                                            @Param("memberId") UUID memberId,
+                                            Limit limit);
+
+    @Query(MEMBER_SUMMARY + "ORDER BY m.createdAt DESC, m.memberId DESC")
+    List<MemberSummary> findFirstByStatusDesc(@Param("status") String status, Limit limit);
 
-    @Query("SELECT m FROM MemberModel m WHERE m.currentStatus = :status")
-    List<MemberModel> findPendingMembers(@Param("status") String status);
+    @Query(MEMBER_SUMMARY + "AND (m.createdAt < :createdAt OR (m.createdAt = :createdAt AND m.memberId < :memberId)) " +
+            "ORDER BY m.createdAt DESC, m.memberId DESC")
+    List<MemberSummary> findNextByStatusDesc(@Param("status") String status,
+                                             @Param("createdAt") LocalDateTime createdAt,
+                                             @Param("memberId") UUID memberId,
+                                             Limit limit);
 }
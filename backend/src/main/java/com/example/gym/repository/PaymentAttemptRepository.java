@@ -0,0 +1,42 @@
+package com.example.gym.repository;
+
+import com.example.gym.model.PaymentAttemptModel;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface PaymentAttemptRepository extends JpaRepository<PaymentAttemptModel, UUID> {
+    // idempotency key of a payment request
+    Optional<PaymentAttemptModel> findByInvoiceIdAndTransactionRef(UUID invoiceId, String transactionRef);
+
+    List<PaymentAttemptModel> findByInvoiceId(UUID invoiceId);
+
+    // hands the attempt to exactly one worker; 0 means another worker already took it
+    @Modifying
+    @Transactional
+    @Query("UPDATE PaymentAttemptModel a SET a.status = 'processing', a.attempts = a.attempts + 1, a.updatedAt = :now " +
+           "WHERE a.attemptId = :attemptId AND a.status = 'queued' AND (a.nextAttemptAt IS NULL OR a.nextAttemptAt <= :now)")
+    int claim(@Param("attemptId") UUID attemptId, @Param("now") LocalDateTime now);
+
+    // retries waiting out their backoff are left alone until due
+    @Query("SELECT a.attemptId FROM PaymentAttemptModel a WHERE a.status = 'queued' AND a.updatedAt < :before " +
+           "AND (a.nextAttemptAt IS NULL OR a.nextAttemptAt <= :now) ORDER BY a.updatedAt")
+    List<UUID> findQueuedBefore(@Param("before") LocalDateTime before, @Param("now") LocalDateTime now, Limit limit);
+
+    // attempts whose worker died mid-flight go back to the queue
+    @Modifying
+    @Transactional
+    @Query("UPDATE PaymentAttemptModel a SET a.status = 'queued', a.updatedAt = :now " +
+           "WHERE a.status = 'processing' AND a.updatedAt < :before")
+    int requeueStale(@Param("before") LocalDateTime before, @Param("now") LocalDateTime now);
+}
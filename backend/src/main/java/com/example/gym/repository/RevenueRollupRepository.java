@@ -0,0 +1,49 @@
+package com.example.gym.repository;
+
+import com.example.gym.model.RevenueRollupModel;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface RevenueRollupRepository extends JpaRepository<RevenueRollupModel, UUID> {
+
+    String METHOD_KEY = "COALESCE(NULLIF(LOWER(TRIM(p.payment_method)), ''), 'unknown')";
+
+    // folds one settled payment into its bucket; runs inside the settling transaction
+    @Modifying
+    @Query(value = "INSERT INTO revenue_rollup_model (rollup_id, revenue_date, plan_id, payment_method, total_amount, payment_count) " +
+                   "VALUES (gen_random_uuid(), :revenueDate, :planId, :paymentMethod, :amount, 1) " +
+                   "ON CONFLICT (revenue_date, plan_id, payment_method) DO UPDATE SET " +
+                   "total_amount = revenue_rollup_model.total_amount + EXCLUDED.total_amount, " +
+                   "payment_count = revenue_rollup_model.payment_count + 1", nativeQuery = true)
+    int addPayment(@Param("revenueDate") LocalDate revenueDate, @Param("planId") UUID planId,
+                   @Param("paymentMethod") String paymentMethod, @Param("amount") BigDecimal amount);
+
+    // blocks incremental updates until the rebuild commits, so none is lost or counted twice
+    @Modifying
+    @Query(value = "LOCK TABLE revenue_rollup_model IN EXCLUSIVE MODE", nativeQuery = true)
+    void lockForRebuild();
+
+    @Modifying
+    @Query("DELETE FROM RevenueRollupModel r WHERE r.revenueDate BETWEEN :from AND :to")
+    int deleteBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Modifying
+    @Query(value = "INSERT INTO revenue_rollup_model (rollup_id, revenue_date, plan_id, payment_method, total_amount, payment_count) " +
+                   "SELECT gen_random_uuid(), p.payment_date, s.plan_id, " + METHOD_KEY + ", SUM(p.amount_paid), COUNT(*) " +
+                   "FROM payment_model p JOIN invoice_model i ON i.invoice_id = p.invoice_id " +
+                   "JOIN subscription_model s ON s.sub_id = i.sub_id " +
+                   "WHERE p.payment_date BETWEEN :from AND :to " +
+                   "GROUP BY p.payment_date, s.plan_id, " + METHOD_KEY, nativeQuery = true)
+    int rebuildBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    List<RevenueRollupModel> findByRevenueDateBetweenOrderByRevenueDate(LocalDate from, LocalDate to);
+}
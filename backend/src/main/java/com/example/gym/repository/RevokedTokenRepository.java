@@ -0,0 +1,37 @@
+package com.example.gym.repository;
+
+import com.example.gym.model.RevokedTokenModel;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedTokenModel, UUID> {
+    Boolean existsByTokenId(String tokenId);
+
+    // Latest "revoke everything issued so far" entry for a user
+    @Query("SELECT MAX(r.revokedAt) FROM RevokedTokenModel r WHERE r.subject = :subject AND r.tokenId IS NULL")
+    LocalDateTime findLatestSubjectRevocation(@Param("subject") String subject);
+
+    @Query("SELECT r.tokenId FROM RevokedTokenModel r WHERE r.tokenId IS NOT NULL AND r.expiresAt > :now")
+    List<String> findActiveTokenIds(@Param("now") LocalDateTime now);
+
+    @Query("SELECT DISTINCT r.subject FROM RevokedTokenModel r WHERE r.tokenId IS NULL AND r.expiresAt > :now")
+    List<String> findActiveRevokedSubjects(@Param("now") LocalDateTime now);
+
+    // (tokenId, subject) of entries written since a point in time, by any instance
+    @Query("SELECT r.tokenId, r.subject FROM RevokedTokenModel r WHERE r.revokedAt >= :since")
+    List<Object[]> findRevokedSince(@Param("since") LocalDateTime since);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM RevokedTokenModel r WHERE r.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
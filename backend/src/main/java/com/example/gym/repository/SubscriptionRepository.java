@@ -1,12 +1,15 @@
 package com.example.gym.repository;
 
 import com.example.gym.model.SubscriptionModel;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -15,6 +18,19 @@ public interface SubscriptionRepository extends JpaRepository<SubscriptionModel,
 
     List<SubscriptionModel> findByMemberMemberIdAndStatus(Long memberId, String status);
 
-    @Query("SELECT s FROM SubscriptionModel s WHERE s.endDate <= :expiryDate AND s.status = 'Active'")
+    // Member's subscriptions with their plan, newest first
+    @Query("SELECT s FROM SubscriptionModel s JOIN FETCH s.plan WHERE s.member.memberId = :memberId ORDER BY s.startDate DESC")
+    List<SubscriptionModel> findByMemberWithPlan(@Param("memberId") UUID memberId);
+
+    @Query("SELECT s FROM SubscriptionModel s WHERE s.endDate <= :expiryDate AND s.status = 'active'")
     List<SubscriptionModel> findExpiringSubscriptions(@Param("expiryDate") LocalDate expiryDate);
+
+    // Next chunk of lapsed subscriptions after the job cursor, in key order
+    @Query("SELECT s.subId FROM SubscriptionModel s WHERE s.status = 'active' AND s.endDate < :today " +
+            "AND s.subId > :after ORDER BY s.subId")
+    List<UUID> findLapsedIdsAfter(@Param("today") LocalDate today, @Param("after") UUID after, Limit limit);
+
+    @Modifying
+    @Query("UPDATE SubscriptionModel s SET s.status = 'expired', s.version = s.version + 1 WHERE s.subId IN :ids AND s.status = 'active'")
+    int expireSubscriptions(@Param("ids") Collection<UUID> ids);
 }
\ No newline at end of file
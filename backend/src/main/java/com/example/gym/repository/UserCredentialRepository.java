@@ -1,7 +1,10 @@
 package com.example.gym.repository;
 
 import com.example.gym.model.UserCredentialModel;
+import com.example.gym.security.AuthenticatedUser;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -11,4 +14,12 @@ import java.util.UUID;
 public interface UserCredentialRepository extends JpaRepository<UserCredentialModel, UUID> {
     Optional<UserCredentialModel> findByUserEmail(String userEmail);
     Boolean existsByUserEmailAndUserType(String email, String role);
+
+    // Resolve the caller's identity in one round trip
+    @Query("SELECT new com.example.gym.security.AuthenticatedUser(u.userEmail, u.userType, s.role, m.memberId, m.currentStatus) " +
+            "FROM UserCredentialModel u " +
+            "LEFT JOIN StaffModel s ON s.email = u.userEmail " +
+            "LEFT JOIN MemberModel m ON m.email = u.userEmail " +
+            "WHERE u.userEmail = :email")
+    Optional<AuthenticatedUser> findAuthenticatedUser(@Param("email") String email);
 }
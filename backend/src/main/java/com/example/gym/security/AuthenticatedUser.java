@@ -0,0 +1,40 @@
+package com.example.gym.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.UUID;
+
+// identity of the caller, resolved once per request by AuthenticatedUserArgumentResolver
+@Getter
+@Builder
+@AllArgsConstructor
+public class AuthenticatedUser {
+
+    private final String email;
+
+    private final String userType; // "member" or "staff"
+
+    private final String staffRole; // admin, frontDesk, manager, trainer; null for members
+
+    private final UUID memberId; // null for staff
+
+    private final String memberStatus; // active, expired, banned, pending; null for staff
+
+    public boolean isMember() {
+        return "member".equals(userType);
+    }
+
+    public boolean isStaff() {
+        return "staff".equals(userType);
+    }
+
+    public boolean isAdmin() {
+        return isStaff() && "admin".equals(staffRole);
+    }
+
+    public boolean hasMemberStatus(String status) {
+        return memberId != null && status.equals(memberStatus);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.gym.security;
+
+import com.example.gym.repository.UserCredentialRepository;
+import com.example.gym.service.TokenRevocationService;
+import com.example.gym.util.ValidationUtil;
+import io.jsonwebtoken.Claims;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.server.ResponseStatusException;
+
+@Component
+@RequiredArgsConstructor
+public class AuthenticatedUserArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private static final String REQUEST_ATTRIBUTE = AuthenticatedUser.class.getName();
+
+    private final ValidationUtil validationUtil;
+    private final JwtUtil jwtUtil;
+    private final TokenRevocationService tokenRevocationService;
+    private final UserCredentialRepository userCredentialRepository;
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(CurrentUser.class)
+                && AuthenticatedUser.class.isAssignableFrom(parameter.getParameterType());
+    }
+
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+
+        // resolved at most once per request, however many parameters ask for it
+        Object cached = webRequest.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (cached != null)
+            return cached;
+
+        String authHeader = webRequest.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authHeader == null || !authHeader.startsWith("Bearer "))
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Missing bearer token");
+
+        Claims claims = validationUtil.extractClaimsFromAuthHeader(authHeader);
+
+        if (JwtUtil.REFRESH_TOKEN.equals(claims.get(JwtUtil.CLAIM_TOKEN_TYPE, String.class)))
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Refresh tokens cannot access the API");
+
+        if (tokenRevocationService.isRevoked(claims))
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Token has been revoked");
+
+        // access tokens carry the authorization claims, so no database lookup is needed
+        AuthenticatedUser user = jwtUtil.toAuthenticatedUser(claims);
+
+        // tokens issued before claims were embedded fall back to a single identity query
+        if (user == null)
+            user = userCredentialRepository.findAuthenticatedUser(claims.getSubject())
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Unknown user"));
+
+        webRequest.setAttribute(REQUEST_ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+        return user;
+    }
+}
@@ -1,50 +1,172 @@
 package com.example.gym.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtUtil {
 
+    public static final String CLAIM_TOKEN_TYPE = "typ";
+    public static final String CLAIM_USER_TYPE = "userType";
+    public static final String CLAIM_STAFF_ROLE = "role";
+    public static final String CLAIM_MEMBER_ID = "memberId";
+    public static final String CLAIM_MEMBER_STATUS = "status";
+
+    public static final String ACCESS_TOKEN = "access";
+    public static final String REFRESH_TOKEN = "refresh";
+
     @Value("${jwt.secret}")
     private String jwtSecret;
 
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
-    }
-
+    // refresh tokens live for the full session
     @Value("${jwt.expiration}")
     private long jwtExpiration;
 
-    public String generateToken(String userEmail) {
+    // access tokens carry authorization claims, so they are kept short-lived
+    @Value("${jwt.access-expiration:900000}")
+    private long accessExpiration;
+
+    @Value("${jwt.cache.max-size:10000}")
+    private long cacheMaxSize;
+
+    // key and parser are immutable and thread-safe, so they are built once
+    private Key signingKey;
+    private JwtParser jwtParser;
+
+    // already-verified tokens keyed by their SHA-256 digest, evicted no later than the token's exp
+    private Cache<String, Claims> verifiedTokens;
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes());
+        jwtParser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String key, Claims claims, long currentTime) {
+                        return remainingNanos(claims);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+                        return remainingNanos(claims);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    // short-lived token answering authorization checks without touching the database
+    public String generateToken(AuthenticatedUser user) {
+        JwtBuilder builder = Jwts.builder()
+                .setId(UUID.randomUUID().toString())
+                .setSubject(user.getEmail())
+                .claim(CLAIM_TOKEN_TYPE, ACCESS_TOKEN)
+                .claim(CLAIM_USER_TYPE, user.getUserType())
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + accessExpiration));
+
+        if (user.getStaffRole() != null)
+            builder.claim(CLAIM_STAFF_ROLE, user.getStaffRole());
+        if (user.getMemberId() != null)
+            builder.claim(CLAIM_MEMBER_ID, user.getMemberId().toString());
+        if (user.getMemberStatus() != null)
+            builder.claim(CLAIM_MEMBER_STATUS, user.getMemberStatus());
+
+        return builder.signWith(signingKey, SignatureAlgorithm.HS256).compact();
+    }
+
+    // long-lived token that only identifies the user; exchanged for fresh access tokens
+    public String generateRefreshToken(String userEmail) {
         return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
                 .setSubject(userEmail)
+                .claim(CLAIM_TOKEN_TYPE, REFRESH_TOKEN)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + jwtExpiration))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    // rebuilds the principal from an access token's claims; null if the token carries no authorization claims
+    public AuthenticatedUser toAuthenticatedUser(Claims claims) {
+        if (!ACCESS_TOKEN.equals(claims.get(CLAIM_TOKEN_TYPE, String.class)))
+            return null;
+
+        String memberId = claims.get(CLAIM_MEMBER_ID, String.class);
+        return AuthenticatedUser.builder()
+                .email(claims.getSubject())
+                .userType(claims.get(CLAIM_USER_TYPE, String.class))
+                .staffRole(claims.get(CLAIM_STAFF_ROLE, String.class))
+                .memberId(memberId == null ? null : UUID.fromString(memberId))
+                .memberStatus(claims.get(CLAIM_MEMBER_STATUS, String.class))
+                .build();
+    }
+
+    // parses and verifies the token once, returning its claims; throws JwtException if invalid or expired
+    public Claims verifyToken(String token) {
+        String digest = digest(token);
+
+        Claims cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null && !isExpired(cached))
+            return cached;
+
+        Claims claims = jwtParser.parseClaimsJws(token).getBody();
+        verifiedTokens.put(digest, claims);
+        return claims;
+    }
+
     public String extractUserEmail(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        return verifyToken(token).getSubject();
     }
 
     public boolean validateToken(String token) {
         try {
-            Jwts.parserBuilder().setSigningKey(getSigningKey()).build().parseClaimsJws(token);
+            verifyToken(token);
             return true;
-        } catch (JwtException e) {
+        } catch (JwtException | IllegalArgumentException e) {
             return false;
         }
     }
+
+    private static boolean isExpired(Claims claims) {
+        Date exp = claims.getExpiration();
+        return exp != null && exp.getTime() <= System.currentTimeMillis();
+    }
+
+    private static long remainingNanos(Claims claims) {
+        Date exp = claims.getExpiration();
+        if (exp == null)
+            return TimeUnit.HOURS.toNanos(1);
+        return Math.max(0, TimeUnit.MILLISECONDS.toNanos(exp.getTime() - System.currentTimeMillis()));
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
 }
@@ -0,0 +1,107 @@
+package com.example.gym.service;
+
+import com.example.gym.dto.AttendanceVisit;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Gzipped month files of attendance rows dropped from the database, one visit per line.
+// A month file is written to a temporary name and moved into place, so a file that exists is complete.
+class AttendanceArchive {
+
+    private static final String PREFIX = "attendance-";
+    private static final String SUFFIX = ".csv.gz";
+
+    private final Path directory;
+
+    AttendanceArchive(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+
+    interface RowSource {
+        // feeds every row of the month to the writer
+        void forEach(Writer writer) throws IOException;
+    }
+
+    interface Writer {
+        void write(AttendanceVisit visit) throws IOException;
+    }
+
+    // replaces any earlier file for the month; returns the number of rows written
+    long write(YearMonth month, RowSource rows) throws IOException {
+        Path target = pathOf(month);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        long[] count = {0};
+        try (BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(temporary), 1 << 16), StandardCharsets.UTF_8))) {
+            rows.forEach(visit -> {
+                out.write(visit.toArchiveLine());
+                out.newLine();
+                count[0]++;
+            });
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return count[0];
+    }
+
+    boolean contains(YearMonth month) {
+        return Files.exists(pathOf(month));
+    }
+
+    // streams the month file, keeping only the visits that match
+    List<AttendanceVisit> read(YearMonth month, Predicate<AttendanceVisit> filter) throws IOException {
+        List<AttendanceVisit> visits = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(pathOf(month)), 1 << 16), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                AttendanceVisit visit = AttendanceVisit.fromArchiveLine(line);
+                if (filter.test(visit))
+                    visits.add(visit);
+            }
+        }
+        return visits;
+    }
+
+    List<AttendanceVisit> readMember(YearMonth month, UUID memberId) throws IOException {
+        return read(month, visit -> visit.memberId().equals(memberId));
+    }
+
+    // archived months, oldest first, with their compressed sizes in bytes
+    SortedMap<YearMonth, Long> list() throws IOException {
+        SortedMap<YearMonth, Long> months = new TreeMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().startsWith(PREFIX)
+                            && file.getFileName().toString().endsWith(SUFFIX))
+                    .forEach(file -> months.put(monthOf(file), sizeOf(file)));
+        }
+        return months;
+    }
+
+    private Path pathOf(YearMonth month) {
+        return directory.resolve(PREFIX + month + SUFFIX);
+    }
+
+    private static YearMonth monthOf(Path file) {
+        String name = file.getFileName().toString();
+        return YearMonth.parse(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+}
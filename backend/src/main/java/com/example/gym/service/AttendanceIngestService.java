@@ -0,0 +1,347 @@
+package com.example.gym.service;
+
+import com.example.gym.dto.AttendanceEvent;
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.util.ValidationUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Write-behind ingestion of turnstile check-ins and check-outs. A request is acknowledged once its event is
+// in the local journal and the bounded in-memory buffer; a single flusher writes the buffer to attendance_logs
+// in multi-row batches. A full buffer answers 503 so turnstiles back off instead of queueing without bound.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AttendanceIngestService {
+
+    private static final String INSERT_CHECK_IN =
+            "INSERT INTO attendance_logs (log_id, event_id, member_id, room_id, check_in_time) " +
+            "VALUES (nextval('attendance_logs_seq'), ?, ?, ?, ?) ON CONFLICT (event_id, check_in_time) DO NOTHING";
+    // closes the member's latest open visit that started before the check-out, within the visit window so only
+    // the newest partitions are searched. A check-out event that already closed a visit is skipped, so a replayed
+    // one cannot close an older visit that was left open.
+    private static final String CLOSE_VISIT =
+            "UPDATE attendance_logs SET check_out_time = ?, check_out_event_id = ? WHERE (log_id, check_in_time) = (" +
+            "SELECT log_id, check_in_time FROM attendance_logs WHERE member_id = ? AND check_out_time IS NULL " +
+            "AND check_in_time <= ? AND check_in_time > ? ORDER BY check_in_time DESC LIMIT 1) " +
+            "AND NOT EXISTS (SELECT 1 FROM attendance_logs WHERE member_id = ? AND check_out_event_id = ? " +
+            "AND check_in_time <= ? AND check_in_time > ?)";
+    // never moves backwards, so replayed or reordered events cannot rewind it
+    private static final String TOUCH_LAST_VISIT =
+            "UPDATE member_model SET last_visit = ? WHERE member_id = ? AND last_visit < ?";
+
+    private static final String MEMBER_STATUS = "SELECT current_status FROM member_model WHERE member_id = ?";
+
+    private static final long MAX_RETRY_DELAY_MS = 2000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ValidationUtil validationUtil;
+    private final OccupancyService occupancyService;
+
+    // same window the occupancy view uses; older open visits count as forgotten check-outs
+    @Value("${gym.occupancy.max-visit-hours:12}")
+    private long maxVisitHours;
+
+    @Value("${gym.checkin.write-behind:true}")
+    private boolean writeBehind; // false = one synchronous insert per request, for comparison
+
+    @Value("${gym.checkin.buffer-capacity:10000}")
+    private int bufferCapacity;
+
+    @Value("${gym.checkin.batch-size:500}")
+    private int batchSize;
+
+    @Value("${gym.checkin.flush-interval-ms:5}")
+    private long flushIntervalMs;
+
+    @Value("${gym.checkin.journal-dir:data/attendance-journal}")
+    private String journalDir;
+
+    // fsync per event survives power loss, not just a process crash, at a large throughput cost
+    @Value("${gym.checkin.journal-fsync:false}")
+    private boolean journalFsync;
+
+    @Value("${gym.checkin.journal-segment-events:50000}")
+    private int journalSegmentEvents;
+
+    private record Journaled(AttendanceEvent event, long segment) {
+    }
+
+    // guards the journal and keeps journal order equal to buffer order
+    private final Object lock = new Object();
+
+    private BlockingQueue<Journaled> buffer;
+    private AttendanceJournal journal;
+    private Thread flusher;
+    private volatile boolean running;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private volatile int lastBatchSize;
+    private volatile long lastBatchMillis;
+
+    @PostConstruct
+    void init() throws IOException {
+        if (!writeBehind)
+            return;
+        buffer = new ArrayBlockingQueue<>(bufferCapacity);
+        journal = new AttendanceJournal(Path.of(journalDir), journalFsync, journalSegmentEvents);
+    }
+
+    // the schema exists by now; events from before a crash go in before anything new is flushed
+    @EventListener(ApplicationReadyEvent.class)
+    public void startFlusher() throws IOException {
+        if (!writeBehind)
+            return;
+
+        for (Path segment : journal.leftoverSegments()) {
+            List<AttendanceEvent> events = AttendanceJournal.read(segment);
+            for (int from = 0; from < events.size(); from += batchSize)
+                write(events.subList(from, Math.min(events.size(), from + batchSize)));
+            Files.delete(segment);
+            log.info("Replayed {} attendance events from {}", events.size(), segment.getFileName());
+        }
+
+        running = true;
+        flusher = new Thread(this::flushLoop, "attendance-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    void stop() throws IOException, InterruptedException {
+        if (!writeBehind)
+            return;
+        running = false;
+        if (flusher != null) {
+            flusher.interrupt();
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        }
+        synchronized (lock) {
+            journal.close();
+        }
+    }
+
+    public ResponseEntity<?> checkIn(AuthenticatedUser user, UUID memberId, Long roomId) {
+        if (roomId != null)
+            occupancyService.requireRoom(roomId);
+        return record(user, memberId, roomId, AttendanceEvent.CHECK_IN);
+    }
+
+    public ResponseEntity<?> checkOut(AuthenticatedUser user, UUID memberId) {
+        return record(user, memberId, null, AttendanceEvent.CHECK_OUT);
+    }
+
+    public ResponseEntity<?> getIngestStats(AuthenticatedUser user) {
+        validationUtil.isStaffAdmin(user);
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", writeBehind ? "write-behind" : "direct");
+        stats.put("buffered", buffer == null ? 0 : buffer.size());
+        stats.put("capacity", writeBehind ? bufferCapacity : 0);
+        stats.put("accepted", accepted.get());
+        stats.put("rejected", rejected.get());
+        stats.put("written", written.get());
+        stats.put("dropped", dropped.get());
+        stats.put("batches", batches.get());
+        stats.put("lastBatchSize", lastBatchSize);
+        stats.put("lastBatchMillis", lastBatchMillis);
+        return ResponseEntity.ok(stats);
+    }
+
+    private ResponseEntity<?> record(AuthenticatedUser user, UUID memberId, Long roomId, String type) {
+        AttendanceEvent event = new AttendanceEvent(UUID.randomUUID(), resolveMember(user, memberId, type), roomId, type,
+                LocalDateTime.now());
+        Map<String, Object> body = Map.of("event_id", event.eventId(), "type", type, "at", event.at());
+
+        if (!writeBehind) {
+            write(List.of(event));
+            accepted.incrementAndGet();
+            occupancyService.apply(event);
+            return ResponseEntity.ok(body);
+        }
+
+        synchronized (lock) {
+            if (buffer.remainingCapacity() == 0) {
+                rejected.incrementAndGet();
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, "1")
+                        .body(Map.of("message", "Check-in queue is full, retry shortly"));
+            }
+            try {
+                buffer.add(new Journaled(event, journal.append(event)));
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not journal attendance event", e);
+            }
+        }
+        accepted.incrementAndGet();
+        occupancyService.apply(event);
+        return ResponseEntity.accepted().body(body);
+    }
+
+    // members badge themselves; staff at the desk badge a member by id, and only let active members in. Check-outs
+    // are not gated, so a member whose membership lapsed during the visit can still leave.
+    private UUID resolveMember(AuthenticatedUser user, UUID memberId, String type) {
+        if (user.isMember()) {
+            if (!validationUtil.isMemberActive(user))
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Membership is not active");
+            return user.getMemberId();
+        }
+        if (!user.isStaff())
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        if (memberId == null)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "memberId is required");
+        if (AttendanceEvent.CHECK_IN.equals(type)) {
+            List<String> status = jdbcTemplate.queryForList(MEMBER_STATUS, String.class, memberId);
+            if (status.isEmpty())
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Member not found");
+            if (!"active".equals(status.get(0)))
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Membership is not active");
+        }
+        return memberId;
+    }
+
+    // collects up to batchSize events or whatever arrived within flushIntervalMs of the first one
+    private void flushLoop() {
+        List<Journaled> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            try {
+                Journaled first = buffer.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                    while (batch.size() < batchSize) {
+                        long wait = deadline - System.nanoTime();
+                        Journaled next = wait > 0 ? buffer.poll(wait, TimeUnit.NANOSECONDS) : buffer.poll();
+                        if (next == null)
+                            break;
+                        batch.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // shutting down: write what was collected, then drain the rest without waiting
+            }
+
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Journaled> batch) {
+        List<AttendanceEvent> events = batch.stream().map(Journaled::event).toList();
+        long delay = 50;
+        while (true) {
+            try {
+                long start = System.nanoTime();
+                write(events);
+                lastBatchMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                lastBatchSize = events.size();
+                batches.incrementAndGet();
+                break;
+            } catch (DataAccessException e) {
+                if (!running) {
+                    log.error("Stopping with {} attendance events unwritten; they stay journaled for replay", events.size());
+                    return;
+                }
+                // database unavailable: keep the batch; the buffer fills up and turnstiles see 503
+                log.warn("Attendance flush failed, retrying in {} ms: {}", delay, e.getMessage());
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+                delay = Math.min(MAX_RETRY_DELAY_MS, delay * 2);
+            }
+        }
+
+        Map<Long, Integer> bySegment = new HashMap<>();
+        batch.forEach(journaled -> bySegment.merge(journaled.segment(), 1, Integer::sum));
+        synchronized (lock) {
+            try {
+                journal.written(bySegment);
+            } catch (IOException e) {
+                // the segment stays on disk and is replayed idempotently on the next start
+                log.warn("Could not delete written attendance journal segment: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void write(List<AttendanceEvent> events) {
+        try {
+            transactionTemplate.executeWithoutResult(tx -> writeBatch(events));
+            written.addAndGet(events.size());
+        } catch (DataIntegrityViolationException e) {
+            // an unknown member id; isolate it so the rest of the batch still lands
+            for (AttendanceEvent event : events) {
+                try {
+                    transactionTemplate.executeWithoutResult(tx -> writeBatch(List.of(event)));
+                    written.incrementAndGet();
+                } catch (DataIntegrityViolationException rowFailure) {
+                    dropped.incrementAndGet();
+                    log.warn("Dropped attendance event {} for member {}: {}", event.eventId(), event.memberId(),
+                            rowFailure.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+
+    // check-ins before check-outs, so a visit opened and closed within one batch is closed
+    private void writeBatch(List<AttendanceEvent> events) {
+        List<Object[]> checkIns = new ArrayList<>();
+        List<Object[]> checkOuts = new ArrayList<>();
+        // one last-visit update per member, in id order so concurrent writers lock rows in the same order
+        Map<UUID, LocalDateTime> lastVisits = new TreeMap<>();
+        for (AttendanceEvent event : events) {
+            Timestamp at = Timestamp.valueOf(event.at());
+            if (event.isCheckIn()) {
+                checkIns.add(new Object[]{event.eventId(), event.memberId(), event.roomId(), at});
+                lastVisits.merge(event.memberId(), event.at(), (a, b) -> a.isAfter(b) ? a : b);
+            } else {
+                Timestamp windowStart = Timestamp.valueOf(event.at().minusHours(maxVisitHours));
+                checkOuts.add(new Object[]{at, event.eventId(), event.memberId(), at, windowStart,
+                        event.memberId(), event.eventId(), at, windowStart});
+            }
+        }
+
+        if (!checkIns.isEmpty())
+            jdbcTemplate.batchUpdate(INSERT_CHECK_IN, checkIns);
+        if (!checkOuts.isEmpty())
+            jdbcTemplate.batchUpdate(CLOSE_VISIT, checkOuts);
+        if (!lastVisits.isEmpty()) {
+            List<Object[]> touches = new ArrayList<>(lastVisits.size());
+            lastVisits.forEach((memberId, at) -> touches.add(new Object[]{Timestamp.valueOf(at), memberId, Timestamp.valueOf(at)}));
+            jdbcTemplate.batchUpdate(TOUCH_LAST_VISIT, touches);
+        }
+    }
+}
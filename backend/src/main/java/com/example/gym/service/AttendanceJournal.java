@@ -0,0 +1,133 @@
+package com.example.gym.service;
+
+import com.example.gym.dto.AttendanceEvent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Stream;
+
+// Append-only local journal of acknowledged attendance events, split into numbered segment files.
+// A segment is deleted once every event in it is in the database; whatever is left on disk at startup
+// is replayed. Not thread-safe: the caller serializes access.
+class AttendanceJournal implements Closeable {
+
+    private static final String PREFIX = "attendance-";
+    private static final String SUFFIX = ".journal";
+
+    private final Path directory;
+    private final boolean fsync;
+    private final int segmentEvents;
+
+    // events not yet in the database, per segment
+    private final TreeMap<Long, Integer> pending = new TreeMap<>();
+
+    private final List<Path> leftover;
+    private long segment;
+    private int segmentSize;
+    private FileChannel channel;
+
+    AttendanceJournal(Path directory, boolean fsync, int segmentEvents) throws IOException {
+        this.directory = directory;
+        this.fsync = fsync;
+        this.segmentEvents = segmentEvents;
+
+        Files.createDirectories(directory);
+        leftover = listSegments();
+        segment = leftover.isEmpty() ? 1 : numberOf(leftover.get(leftover.size() - 1)) + 1;
+        open();
+    }
+
+    // segments written before the last shutdown, oldest first; they are not tracked and must be replayed
+    List<Path> leftoverSegments() {
+        return leftover;
+    }
+
+    static List<AttendanceEvent> read(Path segmentFile) throws IOException {
+        List<AttendanceEvent> events = new ArrayList<>();
+        for (String line : Files.readAllLines(segmentFile, StandardCharsets.UTF_8)) {
+            // a torn last line from a crash mid-write is skipped; its request was never acknowledged
+            try {
+                if (!line.isBlank())
+                    events.add(AttendanceEvent.fromJournalLine(line));
+            } catch (RuntimeException e) {
+                break;
+            }
+        }
+        return events;
+    }
+
+    // returns the segment the event went to
+    long append(AttendanceEvent event) throws IOException {
+        if (segmentSize >= segmentEvents)
+            rotate();
+
+        ByteBuffer line = StandardCharsets.UTF_8.encode(event.toJournalLine() + "\n");
+        while (line.hasRemaining())
+            channel.write(line);
+        if (fsync)
+            channel.force(false);
+
+        segmentSize++;
+        pending.merge(segment, 1, Integer::sum);
+        return segment;
+    }
+
+    // records events as written to the database and deletes segments that are fully written
+    void written(Map<Long, Integer> eventsBySegment) throws IOException {
+        eventsBySegment.forEach((number, count) -> pending.merge(number, -count, Integer::sum));
+
+        Iterator<Map.Entry<Long, Integer>> entries = pending.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Long, Integer> entry = entries.next();
+            if (entry.getValue() > 0)
+                break; // events are written in order, so later segments are not complete either
+
+            entries.remove();
+            if (entry.getKey() == segment)
+                rotate();
+            Files.deleteIfExists(pathOf(entry.getKey()));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void rotate() throws IOException {
+        channel.close();
+        segment++;
+        open();
+    }
+
+    private void open() throws IOException {
+        segmentSize = 0;
+        channel = FileChannel.open(pathOf(segment), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(PREFIX)
+                            && file.getFileName().toString().endsWith(SUFFIX))
+                    .sorted(Comparator.comparingLong(AttendanceJournal::numberOf))
+                    .toList();
+        }
+    }
+
+    private Path pathOf(long number) {
+        return directory.resolve(PREFIX + number + SUFFIX);
+    }
+
+    private static long numberOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
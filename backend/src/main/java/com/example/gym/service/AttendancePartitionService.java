@@ -0,0 +1,295 @@
+package com.example.gym.service;
+
+import com.example.gym.dto.AttendanceVisit;
+import com.example.gym.repository.AttendanceLogRepository;
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.util.ValidationUtil;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+// Keeps attendance_logs as monthly range partitions on check_in_time. At startup the table Hibernate created is
+// turned into a partitioned one; a daily job creates the coming months ahead of time and moves months past the
+// retention window into gzipped files under the archive directory, dropping their partitions. Hot queries bound
+// check_in_time, so they only ever touch the few recent partitions and their small indexes; member history falls
+// back to the archive files for months no longer in the database.
+@Slf4j
+@Service
+@DependsOn("entityManagerFactory") // the schema has to exist before it is converted
+@RequiredArgsConstructor
+public class AttendancePartitionService {
+
+    private static final long MAINTENANCE_LOCK = 0x61747470_61727473L; // advisory lock shared by all instances
+    private static final String PARENT = "attendance_logs";
+    private static final String DEFAULT_PARTITION = "attendance_logs_default";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("'_y'uuuu'm'MM");
+    private static final String PARTITIONS =
+            "SELECT c.relname, c.reltuples::bigint, pg_total_relation_size(c.oid) FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = 'attendance_logs'::regclass ORDER BY c.relname";
+    private static final int EXPORT_FETCH_SIZE = 5000;
+    private static final int MAX_HISTORY_DAYS = 366;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AttendanceLogRepository attendanceLogRepository;
+    private final ValidationUtil validationUtil;
+
+    @Value("${gym.attendance.partitions-ahead:3}")
+    private int partitionsAhead;
+
+    // whole months kept in the database besides the current one
+    @Value("${gym.attendance.retention-months:12}")
+    private int retentionMonths;
+
+    @Value("${gym.attendance.archive-dir:data/attendance-archive}")
+    private String archiveDir;
+
+    private AttendanceArchive archive;
+
+    @PostConstruct
+    void init() throws IOException {
+        archive = new AttendanceArchive(Path.of(archiveDir));
+        transactionTemplate.executeWithoutResult(tx -> {
+            jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?)", MAINTENANCE_LOCK);
+            if (!isPartitioned())
+                convert();
+            createUpcoming(YearMonth.now());
+        });
+    }
+
+    @Scheduled(cron = "${gym.attendance.partition-cron:0 15 2 * * *}")
+    public void maintain() {
+        YearMonth current = YearMonth.now();
+        transactionTemplate.executeWithoutResult(tx -> {
+            if (tryLock())
+                createUpcoming(current);
+        });
+
+        YearMonth oldestKept = current.minusMonths(retentionMonths);
+        for (YearMonth month : partitionMonths())
+            if (month.isBefore(oldestKept))
+                archiveMonth(month);
+    }
+
+    // a member's visits between two dates, from the partitions and, for archived months, the archive files
+    public ResponseEntity<?> getHistory(AuthenticatedUser user, UUID memberId, LocalDate from, LocalDate to) {
+        UUID member = resolveMember(user, memberId);
+        if (from == null || to == null || to.isBefore(from))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from and to are required, from not after to");
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_HISTORY_DAYS)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_HISTORY_DAYS + " days per request");
+
+        LocalDateTime start = from.atStartOfDay();
+        LocalDateTime end = to.plusDays(1).atStartOfDay();
+
+        // keyed by log id: a month archived but not yet dropped is in both places
+        Map<Long, AttendanceVisit> visits = new HashMap<>();
+        attendanceLogRepository.findVisits(member, start, end).forEach(visit -> visits.put(visit.logId(), visit));
+
+        List<YearMonth> archived = new ArrayList<>();
+        for (YearMonth month = YearMonth.from(from); !month.isAfter(YearMonth.from(to)); month = month.plusMonths(1)) {
+            if (!archive.contains(month))
+                continue;
+            archived.add(month);
+            try {
+                archive.readMember(month, member).stream()
+                        .filter(visit -> !visit.checkInTime().isBefore(start) && visit.checkInTime().isBefore(end))
+                        .forEach(visit -> visits.putIfAbsent(visit.logId(), visit));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read attendance archive " + month, e);
+            }
+        }
+
+        List<AttendanceVisit> ordered = new ArrayList<>(visits.values());
+        ordered.sort(Comparator.comparing(AttendanceVisit::checkInTime));
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("memberId", member);
+        body.put("from", from);
+        body.put("to", to);
+        body.put("archivedMonths", archived);
+        body.put("visits", ordered);
+        return ResponseEntity.ok(body);
+    }
+
+    public ResponseEntity<?> getStorage(AuthenticatedUser user) {
+        validationUtil.isStaffAdmin(user);
+
+        List<Map<String, Object>> partitions = jdbcTemplate.query(PARTITIONS, (rs, row) -> {
+            Map<String, Object> partition = new LinkedHashMap<>();
+            partition.put("name", rs.getString(1));
+            partition.put("estimatedRows", Math.max(0, rs.getLong(2)));
+            partition.put("bytes", rs.getLong(3));
+            return partition;
+        });
+
+        List<Map<String, Object>> archives = new ArrayList<>();
+        try {
+            archive.list().forEach((month, bytes) -> archives.add(Map.of("month", month.toString(), "bytes", bytes)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list attendance archive", e);
+        }
+
+        return ResponseEntity.ok(Map.of(
+                "retentionMonths", retentionMonths,
+                "partitions", partitions,
+                "archives", archives));
+    }
+
+    private boolean isPartitioned() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT relkind = 'p' FROM pg_class WHERE oid = to_regclass(?)", Boolean.class, PARENT));
+    }
+
+    // rebuilds the plain table as a partitioned one with the same columns, rows, keys and indexes
+    private void convert() {
+        LocalDateTime[] range = jdbcTemplate.queryForObject(
+                "SELECT MIN(check_in_time), MAX(check_in_time) FROM attendance_logs", (rs, row) -> new LocalDateTime[]{
+                        rs.getTimestamp(1) == null ? null : rs.getTimestamp(1).toLocalDateTime(),
+                        rs.getTimestamp(2) == null ? null : rs.getTimestamp(2).toLocalDateTime()});
+
+        jdbcTemplate.execute("ALTER TABLE attendance_logs RENAME TO attendance_logs_legacy");
+        jdbcTemplate.execute("CREATE TABLE attendance_logs (LIKE attendance_logs_legacy INCLUDING DEFAULTS) " +
+                "PARTITION BY RANGE (check_in_time)");
+        // catches rows outside every monthly partition instead of failing the insert
+        jdbcTemplate.execute("CREATE TABLE " + DEFAULT_PARTITION + " PARTITION OF attendance_logs DEFAULT");
+
+        YearMonth current = YearMonth.now();
+        YearMonth first = range[0] == null ? current : YearMonth.from(range[0]);
+        YearMonth last = range[1] == null || YearMonth.from(range[1]).isBefore(current) ? current : YearMonth.from(range[1]);
+        for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1))
+            createPartition(month);
+
+        int moved = jdbcTemplate.update("INSERT INTO attendance_logs SELECT * FROM attendance_logs_legacy");
+        jdbcTemplate.execute("DROP TABLE attendance_logs_legacy");
+
+        // declared on the parent, so every partition gets its own local copy
+        jdbcTemplate.execute("ALTER TABLE attendance_logs ADD CONSTRAINT attendance_logs_pkey PRIMARY KEY (log_id, check_in_time)");
+        jdbcTemplate.execute("ALTER TABLE attendance_logs ADD CONSTRAINT uk_attendance_event UNIQUE (event_id, check_in_time)");
+        jdbcTemplate.execute("ALTER TABLE attendance_logs ADD CONSTRAINT fk_attendance_member " +
+                "FOREIGN KEY (member_id) REFERENCES member_model (member_id)");
+        jdbcTemplate.execute("ALTER TABLE attendance_logs ADD CONSTRAINT fk_attendance_room " +
+                "FOREIGN KEY (room_id) REFERENCES facility_rooms (room_id)");
+        jdbcTemplate.execute("CREATE INDEX idx_attendance_member_checkin ON attendance_logs (member_id, check_in_time)");
+        jdbcTemplate.execute("CREATE INDEX idx_attendance_checkin ON attendance_logs (check_in_time)");
+
+        log.info("Partitioned attendance_logs by month: {} rows moved, {} to {}", moved, first, last);
+    }
+
+    private void createUpcoming(YearMonth current) {
+        for (int ahead = 0; ahead <= partitionsAhead; ahead++)
+            createPartition(current.plusMonths(ahead));
+    }
+
+    private void createPartition(YearMonth month) {
+        String name = partitionName(month);
+        if (jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, name))
+            return;
+
+        Timestamp from = Timestamp.valueOf(month.atDay(1).atStartOfDay());
+        Timestamp to = Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay());
+        String bounds = " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')";
+
+        boolean strays = Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + DEFAULT_PARTITION +
+                " WHERE check_in_time >= ? AND check_in_time < ?)", Boolean.class, from, to));
+        if (!strays) {
+            jdbcTemplate.execute("CREATE TABLE " + name + " PARTITION OF attendance_logs" + bounds);
+            return;
+        }
+
+        // the default partition already holds rows for this month; they move into it before it is attached
+        jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE attendance_logs INCLUDING DEFAULTS)");
+        int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION +
+                " WHERE check_in_time >= ? AND check_in_time < ? RETURNING *) INSERT INTO " + name + " SELECT * FROM moved", from, to);
+        jdbcTemplate.execute("ALTER TABLE attendance_logs ATTACH PARTITION " + name + bounds);
+        log.info("Created attendance partition {} with {} rows from the default partition", name, moved);
+    }
+
+    // writes the month to its archive file, then drops the partition; rerunning after a crash just rewrites the file
+    private void archiveMonth(YearMonth month) {
+        String name = partitionName(month);
+        try {
+            transactionTemplate.executeWithoutResult(tx -> {
+                if (!tryLock())
+                    return;
+                try {
+                    long rows = archive.write(month, writer -> jdbcTemplate.query(connection -> {
+                        PreparedStatement statement = connection.prepareStatement(
+                                "SELECT log_id, member_id, room_id, check_in_time, check_out_time FROM " + name +
+                                " ORDER BY check_in_time");
+                        statement.setFetchSize(EXPORT_FETCH_SIZE); // streams instead of loading the month
+                        return statement;
+                    }, (RowCallbackHandler) rs -> {
+                        long roomId = rs.getLong(3);
+                        Long room = rs.wasNull() ? null : roomId;
+                        Timestamp checkOut = rs.getTimestamp(5);
+                        try {
+                            writer.write(new AttendanceVisit(rs.getLong(1), rs.getObject(2, UUID.class), room,
+                                    rs.getTimestamp(4).toLocalDateTime(), checkOut == null ? null : checkOut.toLocalDateTime()));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }));
+                    jdbcTemplate.execute("DROP TABLE " + name);
+                    log.info("Archived attendance {}: {} rows to {}", month, rows, archiveDir);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            // the partition stays in place and is retried on the next run
+            log.error("Archiving attendance {} failed: {}", month, e.getMessage());
+        }
+    }
+
+    private List<YearMonth> partitionMonths() {
+        List<YearMonth> months = new ArrayList<>();
+        for (String name : jdbcTemplate.query(PARTITIONS, (rs, row) -> rs.getString(1))) {
+            if (!name.equals(DEFAULT_PARTITION))
+                months.add(YearMonth.parse(name.substring(PARENT.length()), PARTITION_SUFFIX));
+        }
+        return months;
+    }
+
+    // another instance holding the lock is already doing the same work
+    private boolean tryLock() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, MAINTENANCE_LOCK));
+    }
+
+    private static String partitionName(YearMonth month) {
+        return PARENT + month.format(PARTITION_SUFFIX);
+    }
+
+    // members read their own history; staff read anyone's
+    private UUID resolveMember(AuthenticatedUser user, UUID memberId) {
+        if (user.isMember())
+            return user.getMemberId();
+        if (!user.isStaff())
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        if (memberId == null)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "memberId is required");
+        return memberId;
+    }
+}
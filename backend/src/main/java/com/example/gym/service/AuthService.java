@@ -2,6 +2,7 @@ package com.example.gym.service;
 
 import com.example.gym.dto.LoginRequest;
 import com.example.gym.dto.MemberRegisterRequest;
+import com.example.gym.dto.RefreshTokenRequest;
 import com.example.gym.dto.TrainerRegister;
 import com.example.gym.dto.UserDetailsRequest;
 import com.example.gym.model.MemberModel;
@@ -12,13 +13,18 @@ import com.example.gym.repository.MemberRepository;
 import com.example.gym.repository.StaffRepository;
 import com.example.gym.repository.TrainerRepository;
 import com.example.gym.repository.UserCredentialRepository;
+import com.example.gym.security.AuthenticatedUser;
 import com.example.gym.security.JwtUtil;
+import com.example.gym.security.PasswordHasher;
 import com.example.gym.util.ValidationUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import lombok.RequiredArgsConstructor;
-import org.mindrot.jbcrypt.BCrypt;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
 import java.util.Map;
@@ -31,9 +37,11 @@ public class AuthService {
         private final UserCredentialRepository userCredentialRepository;
         private final JwtUtil jwtUtil;
         private final MemberRepository memberRepository;
-        private final ValidationUtil validationUtil;
         private final StaffRepository staffRepository;
         private final TrainerRepository trainerRepository;
+        private final PasswordHasher passwordHasher;
+        private final TokenRevocationService tokenRevocationService;
+        private final ValidationUtil validationUtil;
 
         public ResponseEntity<?> registerMember(@RequestBody MemberRegisterRequest member) {
 
@@ -41,7 +49,7 @@ public class AuthService {
                         return ResponseEntity.badRequest().build();
                 }
 
-                String hashedPassword = BCrypt.hashpw(member.getPassword(), BCrypt.gensalt());
+                String hashedPassword = passwordHasher.hash(member.getPassword());
 
                 UserCredentialModel user = UserCredentialModel.builder()
                                 .userEmail(member.getEmail())
@@ -62,10 +70,16 @@ public class AuthService {
                 userCredentialRepository.save(user);
                 memberRepository.save(memberModel);
 
-                String token = jwtUtil.generateToken(user.getUserEmail());
+                String token = jwtUtil.generateToken(AuthenticatedUser.builder()
+                                .email(user.getUserEmail())
+                                .userType(user.getUserType())
+                                .memberId(memberModel.getMemberId())
+                                .memberStatus(memberModel.getCurrentStatus())
+                                .build());
 
                 return ResponseEntity.ok(Map.of(
                                 "token", token,
+                                "refreshToken", jwtUtil.generateRefreshToken(user.getUserEmail()),
                                 "email", member.getEmail()));
         }
 
@@ -75,7 +89,7 @@ public class AuthService {
                         return ResponseEntity.badRequest().build();
                 }
 
-                String hashedPassword = BCrypt.hashpw(trainer.getPassword(), BCrypt.gensalt());
+                String hashedPassword = passwordHasher.hash(trainer.getPassword());
 
                 UserCredentialModel user = UserCredentialModel.builder()
                                 .userEmail(trainer.getEmail())
@@ -103,10 +117,15 @@ public class AuthService {
                 staffRepository.save(staff);
                 trainerRepository.save(trainerModel);
 
-                String token = jwtUtil.generateToken(user.getUserEmail());
+                String token = jwtUtil.generateToken(AuthenticatedUser.builder()
+                                .email(user.getUserEmail())
+                                .userType(user.getUserType())
+                                .staffRole(staff.getRole())
+                                .build());
 
                 return ResponseEntity.ok(Map.of(
                                 "token", token,
+                                "refreshToken", jwtUtil.generateRefreshToken(user.getUserEmail()),
                                 "email", trainer.getEmail()));
         }
 
@@ -115,34 +134,85 @@ public class AuthService {
                 UserCredentialModel _user = userCredentialRepository.findByUserEmail(loginRequest.getEmail())
                                 .orElseThrow(() -> new RuntimeException("Invalid email or password"));
 
-                if (!BCrypt.checkpw(loginRequest.getPassword(), _user.getPasswordHash())) {
+                if (!passwordHasher.matches(loginRequest.getPassword(), _user.getPasswordHash())) {
                         throw new RuntimeException("Invalid email or password");
                 }
 
-                String token = jwtUtil.generateToken(_user.getUserEmail());
+                // upgrade hashes made with an older work factor while we still hold the plain password
+                if (passwordHasher.needsRehash(_user.getPasswordHash())) {
+                        _user.setPasswordHash(passwordHasher.hash(loginRequest.getPassword()));
+                        userCredentialRepository.save(_user);
+                }
+
+                AuthenticatedUser principal = userCredentialRepository.findAuthenticatedUser(_user.getUserEmail())
+                                .orElseThrow(() -> new RuntimeException("Access denied!"));
 
                 String role = "";
 
-                if (_user.getUserType().equals("member")) {
+                if (principal.isMember()) {
                         role = "member";
-                } else if (_user.getUserType().equals("staff")) {
+                } else if (principal.isStaff()) {
 
-                        StaffModel staff = staffRepository.findByEmail(loginRequest.getEmail())
-                                        .orElseThrow(() -> new RuntimeException("Access denied!"));
+                        if (principal.getStaffRole() == null)
+                                throw new RuntimeException("Access denied!");
 
-                        role = staff.getRole();
+                        role = principal.getStaffRole();
                 }
 
                 return ResponseEntity.ok(Map.of(
-                                "token", token,
+                                "token", jwtUtil.generateToken(principal),
+                                "refreshToken", jwtUtil.generateRefreshToken(_user.getUserEmail()),
                                 "email", _user.getUserEmail(),
                                 "role", role));
         }
 
+        // exchanges a refresh token for a new access token carrying the user's current role and status
+        public ResponseEntity<?> refresh(RefreshTokenRequest refreshRequest) {
+
+                if (refreshRequest.getRefreshToken() == null)
+                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Refresh token is required");
+
+                Claims claims;
+                try {
+                        claims = jwtUtil.verifyToken(refreshRequest.getRefreshToken());
+                } catch (JwtException | IllegalArgumentException e) {
+                        throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid refresh token");
+                }
+
+                if (!JwtUtil.REFRESH_TOKEN.equals(claims.get(JwtUtil.CLAIM_TOKEN_TYPE, String.class)))
+                        throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Not a refresh token");
+
+                if (tokenRevocationService.isRevoked(claims))
+                        throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Refresh token has been revoked");
+
+                AuthenticatedUser principal = userCredentialRepository.findAuthenticatedUser(claims.getSubject())
+                                .orElseThrow(() -> new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Unknown user"));
+
+                return ResponseEntity.ok(Map.of(
+                                "token", jwtUtil.generateToken(principal),
+                                "email", principal.getEmail()));
+        }
+
+        // revokes the presented access token and, if supplied, the refresh token issued with it
+        public ResponseEntity<?> logout(String authHeader, RefreshTokenRequest refreshRequest) {
+
+                tokenRevocationService.revokeToken(validationUtil.extractClaimsFromAuthHeader(authHeader));
+
+                if (refreshRequest != null && refreshRequest.getRefreshToken() != null) {
+                        try {
+                                tokenRevocationService.revokeToken(jwtUtil.verifyToken(refreshRequest.getRefreshToken()));
+                        } catch (JwtException | IllegalArgumentException e) {
+                                // an invalid refresh token is already unusable
+                        }
+                }
+
+                return ResponseEntity.ok(Map.of("message", "Logged out"));
+        }
+
         public ResponseEntity<?> createUserDetails(@RequestBody UserDetailsRequest userDetailsRequest,
-                        String authHeader) {
+                        AuthenticatedUser user) {
 
-                String userEmail = validationUtil.extractUserEmailFromAuthHeader(authHeader);
+                String userEmail = user.getEmail();
 
                 MemberModel member = MemberModel.builder()
                                 .firstName(userDetailsRequest.getFirstName())
@@ -155,18 +225,32 @@ public class AuthService {
                                 .build();
 
                 memberRepository.save(member);
+
+                // the caller's token predates the member profile, so hand out one that carries it
+                String token = jwtUtil.generateToken(AuthenticatedUser.builder()
+                                .email(userEmail)
+                                .userType(user.getUserType())
+                                .staffRole(user.getStaffRole())
+                                .memberId(member.getMemberId())
+                                .memberStatus(member.getCurrentStatus())
+                                .build());
+
                 return ResponseEntity.ok(Map.of(
                                 "message", "ok",
+                                "token", token,
                                 "username", member.getFirstName() + " " + member.getLastName(),
                                 "email", userEmail));
         }
 
-        public ResponseEntity<?> getMemberDetails(String authHeader) {
+        public ResponseEntity<?> getMemberDetails(AuthenticatedUser user) {
 
-                String userEmail = validationUtil.extractUserEmailFromAuthHeader(authHeader);
+                String userEmail = user.getEmail();
 
-                MemberModel memberModel = memberRepository.findByEmail(userEmail)
-                                .orElseThrow(() -> new RuntimeException("User details not found"));
+                if (user.getMemberId() == null)
+                        throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User details not found");
+
+                MemberModel memberModel = memberRepository.findById(user.getMemberId())
+                                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User details not found"));
 
                 String username = memberModel.getFirstName() + " " + memberModel.getLastName();
                 LocalDate dob = memberModel.getDob();
@@ -184,9 +268,9 @@ public class AuthService {
 
         }
 
-        public ResponseEntity<?> getTrainerDetails(String authHeader) {
+        public ResponseEntity<?> getTrainerDetails(AuthenticatedUser user) {
 
-                String staffEmail = validationUtil.extractUserEmailFromAuthHeader(authHeader);
+                String staffEmail = user.getEmail();
 
                 StaffModel staffModel = staffRepository.findByEmail(staffEmail)
                                 .orElseThrow(() -> new RuntimeException("User details not found"));
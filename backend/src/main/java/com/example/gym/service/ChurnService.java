@@ -0,0 +1,128 @@
+package com.example.gym.service;
+
+import com.example.gym.dto.ChurnRiskMember;
+import com.example.gym.dto.CursorPage;
+import com.example.gym.model.ChurnSnapshotModel;
+import com.example.gym.repository.ChurnSnapshotRepository;
+import com.example.gym.repository.MemberRepository;
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.util.KeysetCursor;
+import com.example.gym.util.ValidationUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Churn risk from member_model.last_visit, which attendance ingestion keeps current on every check-in.
+// Listing and counting read only the member table through idx_member_status_last_visit, so neither
+// depends on how much attendance history has piled up. A weekly job records the counts per window.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChurnService {
+
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int MAX_INACTIVE_DAYS = 3650;
+    private static final int MAX_SNAPSHOT_WEEKS = 520;
+
+    private final MemberRepository memberRepository;
+    private final ChurnSnapshotRepository churnSnapshotRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ValidationUtil validationUtil;
+
+    @Value("${gym.churn.snapshot-windows:30,60,90}")
+    private int[] snapshotWindows; // inactivity windows in days
+
+    // one keyset page of at-risk members, longest absent first
+    public ResponseEntity<?> getChurnRisk(AuthenticatedUser user, int inactiveDays, String cursor, int size) {
+        validationUtil.isStaffAdmin(user);
+
+        if (inactiveDays < 1 || inactiveDays > MAX_INACTIVE_DAYS)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "inactiveDays must be between 1 and " + MAX_INACTIVE_DAYS);
+        if (size < 1 || size > MAX_PAGE_SIZE)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size must be between 1 and " + MAX_PAGE_SIZE);
+
+        LocalDateTime cutoff = LocalDate.now().minusDays(inactiveDays).atStartOfDay();
+        Limit limit = Limit.of(size + 1);
+        List<ChurnRiskMember> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = memberRepository.findFirstChurnRisk(cutoff, limit);
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            rows = memberRepository.findNextChurnRisk(cutoff, after.timestamp(), after.id(), limit);
+        }
+
+        String nextCursor = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            ChurnRiskMember last = rows.get(size - 1);
+            nextCursor = new KeysetCursor(last.getLastVisit(), last.getMemberId()).encode();
+        }
+
+        return ResponseEntity.ok(new CursorPage<>(rows, nextCursor));
+    }
+
+    public ResponseEntity<?> getSnapshots(AuthenticatedUser user, int weeks) {
+        validationUtil.isStaffAdmin(user);
+
+        if (weeks < 1 || weeks > MAX_SNAPSHOT_WEEKS)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "weeks must be between 1 and " + MAX_SNAPSHOT_WEEKS);
+
+        return ResponseEntity.ok(churnSnapshotRepository
+                .findBySnapshotDateGreaterThanEqualOrderBySnapshotDateAscInactiveDaysAsc(LocalDate.now().minusWeeks(weeks)));
+    }
+
+    public ResponseEntity<?> snapshotNow(AuthenticatedUser user) {
+        validationUtil.isStaffAdmin(user);
+        return ResponseEntity.ok(takeSnapshot(LocalDate.now()));
+    }
+
+    @Scheduled(cron = "${gym.churn.snapshot-cron:0 0 3 * * MON}")
+    public void snapshotScheduled() {
+        takeSnapshot(LocalDate.now());
+    }
+
+    // counts every window in a single pass over the active members
+    List<ChurnSnapshotModel> takeSnapshot(LocalDate date) {
+        int[] windows = Arrays.stream(snapshotWindows).distinct().sorted().toArray();
+        String sql = "SELECT COUNT(*)" + Arrays.stream(windows)
+                .mapToObj(days -> ", COUNT(*) FILTER (WHERE last_visit < ?)")
+                .collect(Collectors.joining()) +
+                " FROM member_model WHERE current_status = 'active'";
+        Object[] cutoffs = Arrays.stream(windows)
+                .mapToObj(days -> Timestamp.valueOf(date.minusDays(days).atStartOfDay()))
+                .toArray();
+
+        LocalDateTime takenAt = LocalDateTime.now();
+        long[] counts = jdbcTemplate.queryForObject(sql, (rs, row) -> {
+            long[] values = new long[windows.length + 1];
+            for (int i = 0; i < values.length; i++)
+                values[i] = rs.getLong(i + 1);
+            return values;
+        }, cutoffs);
+
+        transactionTemplate.executeWithoutResult(tx -> {
+            for (int i = 0; i < windows.length; i++)
+                churnSnapshotRepository.insertIfAbsent(date, windows[i], counts[0], counts[i + 1], takenAt);
+        });
+
+        log.info("Churn snapshot {}: {} active members, at risk per window {} days: {}", date, counts[0],
+                Arrays.toString(windows), Arrays.toString(Arrays.copyOfRange(counts, 1, counts.length)));
+        return churnSnapshotRepository.findBySnapshotDateOrderByInactiveDaysAsc(date);
+    }
+}
@@ -0,0 +1,262 @@
+package com.example.gym.service;
+
+import com.example.gym.model.ClassBookingModel;
+import com.example.gym.model.ClassOccurrenceModel;
+import com.example.gym.repository.ClassBookingRepository;
+import com.example.gym.repository.ClassOccurrenceRepository;
+import com.example.gym.repository.ClassScheduleRepository;
+import com.example.gym.repository.MemberRepository;
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.util.ValidationUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+// Class booking against room capacity, with a FIFO waitlist for full classes. Members book a dated occurrence of a
+// weekly class. Every occurrence carries a seats_taken counter that is only moved by conditional updates in the same
+// transaction as the booking rows, so concurrent bookings serialize on one counter row instead of counting bookings,
+// and a session can never be oversold, whichever instance books. A freed seat goes to the head of the waitlist
+// (oldest booking_time, through idx_booking_queue) in the transaction that freed it, with the occurrence row locked
+// so promotions happen one at a time and in order. The counters of upcoming sessions are recounted from
+// class_bookings at startup in case anything wrote bookings around them.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ClassBookingService {
+
+    static final String CONFIRMED = "confirmed";
+    static final String WAITLIST = "waitlist";
+    static final String CANCELLED = "cancelled";
+
+    private final ClassBookingRepository classBookingRepository;
+    private final ClassScheduleRepository classScheduleRepository;
+    private final ClassOccurrenceRepository classOccurrenceRepository;
+    private final MemberRepository memberRepository;
+    private final WeeklyScheduleService weeklyScheduleService;
+    private final ValidationUtil validationUtil;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ClassWaitlist waitlist = new ClassWaitlist();
+
+    @Value("${gym.classes.max-waitlist:50}")
+    private int maxWaitlist;
+
+    // bookingId is the caller's booking; promoted are waitlisted bookings that got a seat in the same transaction
+    private record Outcome(Long bookingId, String status, List<Long> promoted) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileSeats() {
+        Integer corrected = transactionTemplate.execute(tx -> {
+            classOccurrenceRepository.lockBookings();
+            return classOccurrenceRepository.reconcileSeats();
+        });
+        if (corrected != null && corrected > 0)
+            log.warn("Seat counters of {} class occurrences did not match their bookings and were corrected", corrected);
+        resyncWaitlists();
+    }
+
+    // picks up changes made by other instances; this instance's own changes are mirrored as they commit
+    @Scheduled(fixedDelayString = "${gym.classes.waitlist-resync-ms:30000}", initialDelayString = "${gym.classes.waitlist-resync-ms:30000}")
+    public void resyncWaitlists() {
+        waitlist.replace(classBookingRepository.findAllWaiting(LocalDate.now()));
+    }
+
+    // joinWaitlist queues the member when the class is full instead of refusing
+    public ResponseEntity<?> book(AuthenticatedUser user, Long occurrenceId, UUID memberId, boolean joinWaitlist) {
+        UUID member = resolveMember(user, memberId);
+        Outcome outcome;
+        try {
+            outcome = transactionTemplate.execute(tx -> reserve(occurrenceId, member, joinWaitlist));
+        } catch (DataIntegrityViolationException e) {
+            // the same member booked the same class concurrently; the other request won
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Already booked for this class");
+        }
+
+        waitlist.remove(occurrenceId, outcome.promoted());
+        weeklyScheduleService.invalidate(occurrenceId);
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("booking_id", outcome.bookingId());
+        body.put("occurrence_id", occurrenceId);
+        body.put("status", outcome.status());
+        if (WAITLIST.equals(outcome.status())) {
+            waitlist.append(occurrenceId, outcome.bookingId(), member);
+            body.put("position", waitlist.position(occurrenceId, member));
+            return ResponseEntity.accepted().body(body);
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(body);
+    }
+
+    public ResponseEntity<?> cancel(AuthenticatedUser user, Long bookingId) {
+        ClassBookingModel booking = classBookingRepository.findById(bookingId)
+                .filter(found -> user.isStaff() || found.getMember().getMemberId().equals(user.getMemberId()))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Booking not found."));
+        Long occurrenceId = booking.getOccurrence().getOccurrenceId();
+
+        Outcome outcome = transactionTemplate.execute(tx -> {
+            classOccurrenceRepository.lockOccurrence(occurrenceId);
+            if (classBookingRepository.transition(bookingId, CONFIRMED, CANCELLED) == 1) {
+                classOccurrenceRepository.releaseSeat(occurrenceId);
+                return new Outcome(bookingId, CONFIRMED, fill(occurrenceId));
+            }
+            if (classBookingRepository.transition(bookingId, WAITLIST, CANCELLED) == 1)
+                return new Outcome(bookingId, WAITLIST, List.of());
+            return null;
+        });
+        if (outcome == null)
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Booking is not active");
+
+        waitlist.remove(occurrenceId, outcome.promoted());
+        weeklyScheduleService.invalidate(occurrenceId);
+        if (WAITLIST.equals(outcome.status()))
+            waitlist.remove(occurrenceId, List.of(bookingId));
+
+        return ResponseEntity.ok(Map.of("booking_id", bookingId, "status", CANCELLED, "promoted", outcome.promoted().size()));
+    }
+
+    // admin only; applies to every session of the class, and raising it hands the new seats of upcoming sessions to
+    // their waitlists straight away
+    public ResponseEntity<?> changeCapacity(AuthenticatedUser user, Long scheduleId, int capacity) {
+        validationUtil.isStaffAdmin(user);
+        if (capacity < 1)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "capacity must be at least 1");
+
+        Map<Long, List<Long>> promoted = transactionTemplate.execute(tx -> {
+            if (classScheduleRepository.lockSchedule(scheduleId).isEmpty())
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Class not found.");
+            classScheduleRepository.updateCapacity(scheduleId, capacity);
+            Map<Long, List<Long>> filled = new LinkedHashMap<>();
+            for (Long occurrenceId : classOccurrenceRepository.findUpcomingIds(scheduleId, LocalDate.now()))
+                filled.put(occurrenceId, fill(occurrenceId));
+            return filled;
+        });
+
+        promoted.forEach((occurrenceId, bookings) -> {
+            waitlist.remove(occurrenceId, bookings);
+            weeklyScheduleService.invalidate(occurrenceId);
+        });
+        int total = promoted.values().stream().mapToInt(List::size).sum();
+        return ResponseEntity.ok(Map.of("schedule_id", scheduleId, "capacity", capacity, "promoted", total));
+    }
+
+    // after the occurrence service cancelled a session along with its bookings
+    void forget(Collection<Long> occurrenceIds) {
+        occurrenceIds.forEach(waitlist::clear);
+    }
+
+    // answered from the in-memory mirror; only a member missing from it costs one indexed count
+    public ResponseEntity<?> getWaitlistPosition(AuthenticatedUser user, Long occurrenceId, UUID memberId) {
+        UUID member = user.isMember() ? user.getMemberId() : resolveMember(user, memberId);
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("occurrence_id", occurrenceId);
+        int position = waitlist.position(occurrenceId, member);
+        if (position == 0) {
+            // joined through another instance since the last resync, or not waiting at all
+            Optional<ClassBookingModel> booking = classBookingRepository.findByOccurrenceOccurrenceIdAndMemberMemberId(occurrenceId, member);
+            if (booking.isEmpty() || !WAITLIST.equals(booking.get().getStatus())) {
+                body.put("status", booking.map(ClassBookingModel::getStatus).orElse("none"));
+                return ResponseEntity.ok(body);
+            }
+            position = (int) classBookingRepository.countWaitingAhead(occurrenceId, booking.get().getBookingTime(),
+                    booking.get().getBookingId()) + 1;
+        }
+        body.put("status", WAITLIST);
+        body.put("position", position);
+        body.put("waiting", Math.max(position, waitlist.size(occurrenceId)));
+        return ResponseEntity.ok(body);
+    }
+
+    // members list their own bookings; staff list a member's by id
+    public ResponseEntity<?> listBookings(AuthenticatedUser user, UUID memberId) {
+        UUID member = user.isMember() ? user.getMemberId() : resolveMember(user, memberId);
+        return ResponseEntity.ok(classBookingRepository.findViewsByMember(member));
+    }
+
+    // runs inside the booking transaction; any exception rolls the seat back with it
+    private Outcome reserve(Long occurrenceId, UUID memberId, boolean joinWaitlist) {
+        Optional<ClassBookingModel> existing = classBookingRepository.findByOccurrenceOccurrenceIdAndMemberMemberId(occurrenceId, memberId);
+        if (existing.isPresent() && !CANCELLED.equals(existing.get().getStatus()))
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Already booked for this class");
+
+        if (classOccurrenceRepository.takeSeat(occurrenceId) == 1)
+            return new Outcome(persist(existing, occurrenceId, memberId, CONFIRMED), CONFIRMED, List.of());
+
+        ClassOccurrenceModel occurrence = classOccurrenceRepository.findById(occurrenceId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Class not found."));
+        if (!ClassOccurrenceService.SCHEDULED.equals(occurrence.getStatus()))
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Class is cancelled");
+        if (occurrence.getOccurrenceDate().isBefore(LocalDate.now()))
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Class has already taken place");
+        if (!joinWaitlist)
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Class is full");
+        if (waitlist.size(occurrenceId) >= maxWaitlist)
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Waitlist is full");
+
+        Long bookingId = persist(existing, occurrenceId, memberId, WAITLIST);
+        // a seat may have come free since the counter said full; it goes to the head of the queue, maybe us
+        List<Long> promoted = fill(occurrenceId);
+        return new Outcome(bookingId, promoted.contains(bookingId) ? CONFIRMED : WAITLIST, promoted);
+    }
+
+    // booking again after a cancellation reuses the member's row for this occurrence
+    private Long persist(Optional<ClassBookingModel> existing, Long occurrenceId, UUID memberId, String status) {
+        if (existing.isPresent()) {
+            Long bookingId = existing.get().getBookingId();
+            if (classBookingRepository.reactivate(bookingId, status, LocalDateTime.now()) == 0)
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Already booked for this class");
+            return bookingId;
+        }
+
+        ClassOccurrenceModel occurrence = classOccurrenceRepository.getReferenceById(occurrenceId);
+        return classBookingRepository.saveAndFlush(ClassBookingModel.builder()
+                .member(memberRepository.getReferenceById(memberId))
+                .occurrence(occurrence)
+                .classSchedule(occurrence.getClassSchedule())
+                .status(status)
+                .build()).getBookingId();
+    }
+
+    // moves waitlist heads into free seats, oldest first; runs inside the transaction that freed or added seats
+    private List<Long> fill(Long occurrenceId) {
+        classOccurrenceRepository.lockOccurrence(occurrenceId);
+        List<Long> promoted = new ArrayList<>();
+        while (true) {
+            Optional<Long> head = classBookingRepository.findWaitlistHead(occurrenceId);
+            if (head.isEmpty() || classOccurrenceRepository.takeSeat(occurrenceId) == 0)
+                break;
+            classBookingRepository.transition(head.get(), WAITLIST, CONFIRMED);
+            promoted.add(head.get());
+        }
+        if (!promoted.isEmpty())
+            log.info("Promoted {} waitlisted bookings into class occurrence {}", promoted.size(), occurrenceId);
+        return promoted;
+    }
+
+    // members book themselves; staff at the desk book a member by id
+    private UUID resolveMember(AuthenticatedUser user, UUID memberId) {
+        if (user.isMember()) {
+            if (!validationUtil.isMemberActive(user))
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Membership is not active");
+            return user.getMemberId();
+        }
+        if (!user.isStaff())
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED);
+        if (memberId == null)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "memberId is required");
+        return memberId;
+    }
+}
@@ -0,0 +1,354 @@
+package com.example.gym.service;
+
+import com.example.gym.dto.ClassOccurrenceView;
+import com.example.gym.dto.OccurrenceMoveRequest;
+import com.example.gym.model.ClassClosureModel;
+import com.example.gym.model.ClassOccurrenceModel;
+import com.example.gym.model.ClassScheduleModel;
+import com.example.gym.model.FacilityRoomModel;
+import com.example.gym.repository.ClassBookingRepository;
+import com.example.gym.repository.ClassClosureRepository;
+import com.example.gym.repository.ClassOccurrenceRepository;
+import com.example.gym.repository.FacilityRoomRepository;
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.util.ValidationUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+// Dated occurrences of the weekly classes. Every class is expanded into class_occurrences rows over a rolling horizon
+// by one set-based INSERT ... SELECT per batch of days (generate_series joined to class_schedules on the weekday,
+// ON CONFLICT DO NOTHING), so a quarter of hundreds of classes is a handful of statements and reruns are harmless.
+// The horizon moves forward daily; dates past it are materialized on demand when someone looks at or edits them.
+// Exceptions edit the rows: a session can be cancelled or moved, and closure days cancel every session on them,
+// including ones generated later. Bookings point at occurrences, and "today's classes" is an index range scan.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ClassOccurrenceService {
+
+    static final String SCHEDULED = "scheduled";
+    static final String CANCELLED = "cancelled";
+
+    private static final String GENERATE =
+            "INSERT INTO class_occurrences (schedule_id, scheduled_date, occurrence_date, start_time, end_time, room_id, " +
+            "status, exception_type, note, seats_taken) " +
+            "SELECT s.schedule_id, d.day, d.day, s.start_time, s.end_time, s.room_id, " +
+            "CASE WHEN c.closure_id IS NULL THEN 'scheduled' ELSE 'cancelled' END, " +
+            "CASE WHEN c.closure_id IS NULL THEN NULL ELSE 'closure' END, c.reason, 0 " +
+            "FROM (SELECT CAST(g AS date) AS day FROM generate_series(CAST(? AS date), CAST(? AS date), INTERVAL '1 day') g) d " +
+            "JOIN class_schedules s ON UPPER(TRIM(s.day_of_week)) = TRIM(TO_CHAR(d.day, 'DAY')) " +
+            "LEFT JOIN class_closures c ON c.closure_date = d.day ";
+    private static final String FOR_SCHEDULE = "WHERE s.schedule_id = ? ";
+    private static final String ON_CONFLICT = "ON CONFLICT (schedule_id, scheduled_date) DO NOTHING";
+
+    private final ClassOccurrenceRepository classOccurrenceRepository;
+    private final ClassBookingRepository classBookingRepository;
+    private final ClassClosureRepository classClosureRepository;
+    private final FacilityRoomRepository facilityRoomRepository;
+    private final ClassBookingService classBookingService;
+    private final WeeklyScheduleService weeklyScheduleService;
+    private final ValidationUtil validationUtil;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${gym.classes.occurrence-horizon-days:90}")
+    private int horizonDays;
+
+    @Value("${gym.classes.occurrence-batch-days:31}")
+    private int batchDays;
+
+    @Value("${gym.classes.opening-time:06:00}")
+    private String openingTime;
+
+    @Value("${gym.classes.closing-time:22:00}")
+    private String closingTime;
+
+    // every class is materialized through this date on this instance
+    private volatile LocalDate generatedThrough;
+
+    // from the day after the last run, so the daily run only adds the day entering the horizon
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${gym.classes.occurrence-cron:0 15 0 * * *}")
+    public void extendHorizon() {
+        LocalDate today = LocalDate.now();
+        LocalDate through = today.plusDays(horizonDays);
+        LocalDate from = generatedThrough == null || generatedThrough.isBefore(today) ? today : generatedThrough.plusDays(1);
+        if (from.isAfter(through))
+            return;
+        int inserted = generate(null, from, through);
+        generatedThrough = through;
+        if (inserted > 0)
+            log.info("Materialized {} class occurrences from {} through {}", inserted, from, through);
+    }
+
+    // all classes, or one when scheduleId is set, over [from, to]; returns how many occurrences were new
+    int generate(Long scheduleId, LocalDate from, LocalDate to) {
+        String sql = GENERATE + (scheduleId == null ? "" : FOR_SCHEDULE) + ON_CONFLICT;
+        int inserted = 0;
+        for (LocalDate start = from; !start.isAfter(to); start = start.plusDays(batchDays)) {
+            LocalDate end = start.plusDays(batchDays - 1L).isAfter(to) ? to : start.plusDays(batchDays - 1L);
+            inserted += scheduleId == null
+                    ? jdbcTemplate.update(sql, Date.valueOf(start), Date.valueOf(end))
+                    : jdbcTemplate.update(sql, Date.valueOf(start), Date.valueOf(end), scheduleId);
+        }
+        return inserted;
+    }
+
+    // a new class gets its sessions over the current horizon straight away; runs in the caller's transaction, which
+    // holds the timetable lock
+    void materialize(Long scheduleId) {
+        LocalDate today = LocalDate.now();
+        generate(scheduleId, today, horizonEnd(today));
+        weeklyScheduleService.invalidateAll();
+    }
+
+    // after a class's day, time or room changed: upcoming sessions nobody booked and nobody edited follow it, the rest
+    // keep the slot they were booked or edited for. Joins the caller's transaction.
+    void reschedule(Long scheduleId) {
+        LocalDate today = LocalDate.now();
+        int replaced = transactionTemplate.execute(tx -> {
+            int deleted = classOccurrenceRepository.deleteUnused(scheduleId, today);
+            generate(scheduleId, today, horizonEnd(today));
+            return deleted;
+        });
+        log.info("Regenerated {} upcoming occurrences of class {}", replaced, scheduleId);
+        weeklyScheduleService.invalidateAll();
+    }
+
+    // admin only; materializes a range ahead of the horizon, e.g. a whole quarter for planning
+    public ResponseEntity<?> generateRange(AuthenticatedUser user, LocalDate from, LocalDate to) {
+        validationUtil.isStaffAdmin(user);
+        if (to.isBefore(from) || ChronoUnit.DAYS.between(from, to) > 366)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must not be after to, at most a year apart");
+        long started = System.nanoTime();
+        int inserted = generate(null, from, to);
+        weeklyScheduleService.invalidateAll();
+        return ResponseEntity.ok(Map.of("from", from, "to", to, "inserted", inserted,
+                "elapsed_ms", Duration.ofNanos(System.nanoTime() - started).toMillis()));
+    }
+
+    // any signed-in user; the classes of one day, today by default
+    public ResponseEntity<?> getDay(LocalDate date) {
+        LocalDate day = date == null ? LocalDate.now() : date;
+        ensureMaterialized(day);
+        return ResponseEntity.ok(classOccurrenceRepository.findDay(day));
+    }
+
+    // any signed-in user; the session of a class on the date the weekly schedule puts it, so it can be booked
+    public ResponseEntity<?> getOccurrence(Long scheduleId, LocalDate scheduledDate) {
+        Long occurrenceId = resolve(scheduleId, scheduledDate).getOccurrenceId();
+        return ResponseEntity.ok(classOccurrenceRepository.findViews(List.of(occurrenceId)).get(0));
+    }
+
+    // admin only; cancels one session and every booking for it
+    public ResponseEntity<?> cancel(AuthenticatedUser user, Long occurrenceId, String reason) {
+        validationUtil.isStaffAdmin(user);
+        int bookings = transactionTemplate.execute(tx -> {
+            if (classOccurrenceRepository.lockOccurrence(occurrenceId).isEmpty())
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Class not found.");
+            if (classOccurrenceRepository.cancel(List.of(occurrenceId), CANCELLED, reason) == 0)
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Class is already cancelled");
+            return classBookingRepository.cancelAll(List.of(occurrenceId));
+        });
+
+        classBookingService.forget(List.of(occurrenceId));
+        weeklyScheduleService.invalidate(occurrenceId);
+        return ResponseEntity.ok(Map.of("occurrence_id", occurrenceId, "status", CANCELLED, "cancelled_bookings", bookings));
+    }
+
+    // admin only; moves one session to another date, time or room. Its bookings move with it.
+    public ResponseEntity<?> move(AuthenticatedUser user, Long occurrenceId, OccurrenceMoveRequest request) {
+        validationUtil.isStaffAdmin(user);
+        transactionTemplate.executeWithoutResult(tx -> {
+            jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?)", ClassScheduleService.SCHEDULE_LOCK);
+            if (classOccurrenceRepository.lockOccurrence(occurrenceId).isEmpty())
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Class not found.");
+            ClassOccurrenceModel occurrence = classOccurrenceRepository.findById(occurrenceId).orElseThrow();
+            if (!SCHEDULED.equals(occurrence.getStatus()))
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Class is cancelled");
+
+            LocalDate date = request.getDate() == null ? occurrence.getOccurrenceDate() : request.getDate();
+            LocalTime start = request.getStartTime() == null ? occurrence.getStartTime() : request.getStartTime();
+            // moving only the start keeps the length
+            LocalTime end = request.getEndTime() != null ? request.getEndTime() : request.getStartTime() == null
+                    ? occurrence.getEndTime()
+                    : start.plus(Duration.between(occurrence.getStartTime(), occurrence.getEndTime()));
+            if (date.isBefore(LocalDate.now()))
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot move a class into the past");
+            if (!end.isAfter(start) || start.isBefore(LocalTime.parse(openingTime)) || end.isAfter(LocalTime.parse(closingTime)))
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Classes must run between " + openingTime + " and " + closingTime);
+            if (classClosureRepository.existsByClosureDate(date))
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "The gym is closed on " + date);
+
+            FacilityRoomModel room = request.getRoomId() == null ? occurrence.getRoom()
+                    : facilityRoomRepository.findById(request.getRoomId())
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown room: " + request.getRoomId()));
+            Integer capacity = occurrence.getClassSchedule().getCapacity() != null
+                    ? occurrence.getClassSchedule().getCapacity() : room.getCapacity();
+            if (capacity != null && capacity < occurrence.getSeatsTaken())
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "Room holds " + capacity + " but " + occurrence.getSeatsTaken() + " members are booked");
+
+            // sessions on the target date have to exist before they can be checked against
+            ensureMaterialized(date);
+            List<Long> clash = classOccurrenceRepository.findRoomConflicts(occurrenceId, room.getRoomId(), date, start, end);
+            if (!clash.isEmpty())
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Room is already booked by class occurrence " + clash.get(0));
+            clash = classOccurrenceRepository.findTrainerConflicts(occurrenceId,
+                    occurrence.getClassSchedule().getTrainer().getTrainerId(), date, start, end);
+            if (!clash.isEmpty())
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Trainer is already booked by class occurrence " + clash.get(0));
+
+            occurrence.setOccurrenceDate(date);
+            occurrence.setStartTime(start);
+            occurrence.setEndTime(end);
+            occurrence.setRoom(room);
+            occurrence.setExceptionType("moved");
+            occurrence.setNote(request.getNote());
+            classOccurrenceRepository.save(occurrence);
+        });
+
+        weeklyScheduleService.invalidate(occurrenceId);
+        return ResponseEntity.ok(classOccurrenceRepository.findViews(List.of(occurrenceId)).get(0));
+    }
+
+    // admin only; no classes on that date: its sessions and their bookings are cancelled, later ones start cancelled
+    public ResponseEntity<?> closeDay(AuthenticatedUser user, LocalDate date, String reason) {
+        validationUtil.isStaffAdmin(user);
+        if (date.isBefore(LocalDate.now()))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot close a day in the past");
+
+        Map<String, Integer> counts = new HashMap<>();
+        List<Long> cancelled = transactionTemplate.execute(tx -> {
+            jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?)", ClassScheduleService.SCHEDULE_LOCK);
+            if (classClosureRepository.existsByClosureDate(date))
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "The gym is already closed on " + date);
+            classClosureRepository.save(ClassClosureModel.builder().closureDate(date).reason(reason).build());
+            classClosureRepository.flush();
+            generate(null, date, date);
+
+            List<Long> ids = classOccurrenceRepository.findScheduledIds(date);
+            if (!ids.isEmpty()) {
+                classOccurrenceRepository.cancel(ids, "closure", reason);
+                counts.put("bookings", classBookingRepository.cancelAll(ids));
+            }
+            return ids;
+        });
+
+        classBookingService.forget(cancelled);
+        cancelled.forEach(weeklyScheduleService::invalidate);
+        log.info("Closed {} ({}): {} classes cancelled", date, reason, cancelled.size());
+        return ResponseEntity.ok(Map.of("date", date, "cancelled_classes", cancelled.size(),
+                "cancelled_bookings", counts.getOrDefault("bookings", 0)));
+    }
+
+    // admin only; sessions the closure cancelled are back on, but their bookings have to be made again. The timetable
+    // may have changed while the day was closed: sessions follow their class's current slot, a session whose class no
+    // longer runs that weekday is dropped, and one that would clash with a session already on stays cancelled.
+    public ResponseEntity<?> reopenDay(AuthenticatedUser user, LocalDate date) {
+        validationUtil.isStaffAdmin(user);
+        Map<String, Integer> counts = new HashMap<>();
+        transactionTemplate.executeWithoutResult(tx -> {
+            jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?)", ClassScheduleService.SCHEDULE_LOCK);
+            if (classClosureRepository.deleteByClosureDate(date) == 0)
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "The gym is not closed on " + date);
+
+            for (ClassOccurrenceModel occurrence : classOccurrenceRepository.findClosed(date)) {
+                ClassScheduleModel schedule = occurrence.getClassSchedule();
+                if (!schedule.getDayOfWeek().trim().equalsIgnoreCase(occurrence.getScheduledDate().getDayOfWeek().name())) {
+                    if (classBookingRepository.existsByOccurrenceOccurrenceId(occurrence.getOccurrenceId())) {
+                        occurrence.setExceptionType(CANCELLED);
+                        occurrence.setNote("Class no longer runs on " + occurrence.getScheduledDate().getDayOfWeek());
+                    } else {
+                        classOccurrenceRepository.delete(occurrence);
+                    }
+                    counts.merge("dropped", 1, Integer::sum);
+                    continue;
+                }
+
+                // a session moved onto this day keeps its slot
+                boolean moved = !occurrence.getScheduledDate().equals(date);
+                if (!moved) {
+                    occurrence.setStartTime(schedule.getStartTime());
+                    occurrence.setEndTime(schedule.getEndTime());
+                    occurrence.setRoom(schedule.getRoom());
+                }
+                List<Long> clash = classOccurrenceRepository.findRoomConflicts(occurrence.getOccurrenceId(),
+                        occurrence.getRoom().getRoomId(), date, occurrence.getStartTime(), occurrence.getEndTime());
+                if (clash.isEmpty())
+                    clash = classOccurrenceRepository.findTrainerConflicts(occurrence.getOccurrenceId(),
+                            schedule.getTrainer().getTrainerId(), date, occurrence.getStartTime(), occurrence.getEndTime());
+                if (!clash.isEmpty()) {
+                    occurrence.setExceptionType(CANCELLED);
+                    occurrence.setNote("Clashes with class occurrence " + clash.get(0));
+                    counts.merge("clashing", 1, Integer::sum);
+                    continue;
+                }
+
+                occurrence.setStatus(SCHEDULED);
+                occurrence.setExceptionType(moved ? "moved" : null);
+                occurrence.setNote(null);
+                // the next session's conflict queries must see this one
+                classOccurrenceRepository.saveAndFlush(occurrence);
+                counts.merge("reopened", 1, Integer::sum);
+            }
+        });
+
+        weeklyScheduleService.invalidateAll();
+        log.info("Reopened {}: {}", date, counts);
+        return ResponseEntity.ok(Map.of("date", date, "reopened_classes", counts.getOrDefault("reopened", 0),
+                "dropped_classes", counts.getOrDefault("dropped", 0), "clashing_classes", counts.getOrDefault("clashing", 0)));
+    }
+
+    // staff; upcoming closure days
+    public ResponseEntity<?> listClosures(AuthenticatedUser user) {
+        if (!user.isStaff())
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Staff only");
+        return ResponseEntity.ok(classClosureRepository.findByClosureDateGreaterThanEqualOrderByClosureDateAsc(LocalDate.now())
+                .stream().map(closure -> Map.of("date", closure.getClosureDate(),
+                        "reason", closure.getReason() == null ? "" : closure.getReason()))
+                .toList());
+    }
+
+    // the occurrence a booking by date targets; generated on the spot when the date is past the horizon
+    ClassOccurrenceModel resolve(Long scheduleId, LocalDate scheduledDate) {
+        Optional<ClassOccurrenceModel> found = classOccurrenceRepository
+                .findByClassScheduleScheduleIdAndScheduledDate(scheduleId, scheduledDate);
+        if (found.isEmpty() && !scheduledDate.isBefore(LocalDate.now())) {
+            generate(scheduleId, scheduledDate, scheduledDate);
+            found = classOccurrenceRepository.findByClassScheduleScheduleIdAndScheduledDate(scheduleId, scheduledDate);
+        }
+        return found.orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                "Class " + scheduleId + " does not run on " + scheduledDate));
+    }
+
+    private void ensureMaterialized(LocalDate date) {
+        LocalDate through = generatedThrough;
+        if (!date.isBefore(LocalDate.now()) && (through == null || date.isAfter(through)))
+            generate(null, date, date);
+    }
+
+    private LocalDate horizonEnd(LocalDate today) {
+        LocalDate through = generatedThrough;
+        LocalDate end = today.plusDays(horizonDays);
+        return through != null && through.isAfter(end) ? through : end;
+    }
+}
@@ -0,0 +1,454 @@
+package com.example.gym.service;
+
+import com.example.gym.dto.ClassScheduleRequest;
+import com.example.gym.model.ClassScheduleModel;
+import com.example.gym.model.TrainerModel;
+import com.example.gym.repository.ClassBookingRepository;
+import com.example.gym.repository.ClassOccurrenceRepository;
+import com.example.gym.repository.ClassScheduleRepository;
+import com.example.gym.repository.FacilityRoomRepository;
+import com.example.gym.repository.TrainerRepository;
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.util.ValidationUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// The weekly class timetable. Every room and every trainer has an interval index per weekday, loaded from
+// class_schedules at startup, resynced on a schedule to pick up other instances' changes, and updated after each
+// change committed here. Conflict checks and next-free-slot searches are answered from the indexes without a query.
+// Writes are serialized across instances by an advisory lock and re-checked against the table inside it, so a
+// stale index can delay a write until the next resync but never let a double booking through.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ClassScheduleService {
+
+    static final long SCHEDULE_LOCK = 0x73636865_64756c65L; // advisory lock shared by all instances
+    private static final IntervalIndex EMPTY = new IntervalIndex(); // stands in for days without classes; never written
+
+    private final ClassScheduleRepository classScheduleRepository;
+    private final ClassBookingRepository classBookingRepository;
+    private final ClassOccurrenceRepository classOccurrenceRepository;
+    private final ClassOccurrenceService classOccurrenceService;
+    private final FacilityRoomRepository facilityRoomRepository;
+    private final TrainerRepository trainerRepository;
+    private final WeeklyScheduleService weeklyScheduleService;
+    private final ValidationUtil validationUtil;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${gym.classes.opening-time:06:00}")
+    private String openingTime;
+
+    @Value("${gym.classes.closing-time:22:00}")
+    private String closingTime;
+
+    private record Slot(long scheduleId, long roomId, UUID trainerId, DayOfWeek day, LocalTime start, LocalTime end) {
+        IntervalIndex.Interval interval() {
+            return new IntervalIndex.Interval(start, end, scheduleId);
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<Long, EnumMap<DayOfWeek, IntervalIndex>> rooms = new HashMap<>();
+    private Map<UUID, EnumMap<DayOfWeek, IntervalIndex>> trainers = new HashMap<>();
+    private Map<Long, Slot> slots = new HashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${gym.classes.timetable-resync-ms:60000}", initialDelayString = "${gym.classes.timetable-resync-ms:60000}")
+    public void loadTimetable() {
+        Map<Long, EnumMap<DayOfWeek, IntervalIndex>> loadedRooms = new HashMap<>();
+        Map<UUID, EnumMap<DayOfWeek, IntervalIndex>> loadedTrainers = new HashMap<>();
+        Map<Long, Slot> loadedSlots = new HashMap<>();
+        int overlapping = load(classScheduleRepository.findTimetable(), loadedRooms, loadedTrainers, loadedSlots);
+
+        lock.writeLock().lock();
+        try {
+            rooms = loadedRooms;
+            trainers = loadedTrainers;
+            slots = loadedSlots;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (overlapping > 0)
+            log.warn("{} class schedules overlap another class of the same room or trainer", overlapping);
+    }
+
+    // admin only
+    public ResponseEntity<?> create(AuthenticatedUser user, ClassScheduleRequest request) {
+        validationUtil.isStaffAdmin(user);
+        Slot candidate = validate(null, request);
+        if (request.getCapacity() != null && request.getCapacity() < 1)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "capacity must be at least 1");
+
+        ClassScheduleModel saved = transactionTemplate.execute(tx -> {
+            TrainerModel trainer = lockAndVerify(candidate);
+            ClassScheduleModel schedule = classScheduleRepository.saveAndFlush(ClassScheduleModel.builder()
+                    .trainer(trainer)
+                    .room(facilityRoomRepository.getReferenceById(candidate.roomId()))
+                    .className(request.getClassName())
+                    .dayOfWeek(candidate.day().name())
+                    .startTime(candidate.start())
+                    .endTime(candidate.end())
+                    .capacity(request.getCapacity())
+                    .build());
+            // generated under the same lock, so a session moved concurrently cannot land on the new slot
+            classOccurrenceService.materialize(schedule.getScheduleId());
+            return schedule;
+        });
+
+        Slot slot = new Slot(saved.getScheduleId(), candidate.roomId(), candidate.trainerId(), candidate.day(),
+                candidate.start(), candidate.end());
+        reindex(slot.scheduleId(), slot);
+        return ResponseEntity.status(HttpStatus.CREATED).body(toBody(slot, saved.getClassName()));
+    }
+
+    // admin only; moves or renames a class. Booked or edited sessions keep their slot, the other upcoming ones follow.
+    // Capacity changes go through the booking service so the waitlist moves up with them.
+    public ResponseEntity<?> update(AuthenticatedUser user, Long scheduleId, ClassScheduleRequest request) {
+        validationUtil.isStaffAdmin(user);
+        Slot candidate = validate(scheduleId, request);
+
+        ClassScheduleModel saved = transactionTemplate.execute(tx -> {
+            TrainerModel trainer = lockAndVerify(candidate);
+            ClassScheduleModel schedule = classScheduleRepository.findById(scheduleId)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Class not found."));
+            schedule.setTrainer(trainer);
+            schedule.setRoom(facilityRoomRepository.getReferenceById(candidate.roomId()));
+            schedule.setClassName(request.getClassName());
+            schedule.setDayOfWeek(candidate.day().name());
+            schedule.setStartTime(candidate.start());
+            schedule.setEndTime(candidate.end());
+            ClassScheduleModel updated = classScheduleRepository.saveAndFlush(schedule);
+            classOccurrenceService.reschedule(scheduleId);
+            return updated;
+        });
+
+        reindex(scheduleId, candidate);
+        return ResponseEntity.ok(toBody(candidate, saved.getClassName()));
+    }
+
+    // admin only; a class with confirmed or waitlisted bookings for upcoming sessions has to be emptied first
+    public ResponseEntity<?> delete(AuthenticatedUser user, Long scheduleId) {
+        validationUtil.isStaffAdmin(user);
+        transactionTemplate.executeWithoutResult(tx -> {
+            jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?)", SCHEDULE_LOCK);
+            if (classScheduleRepository.lockSchedule(scheduleId).isEmpty())
+                throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Class not found.");
+            long active = classBookingRepository.countActiveFrom(scheduleId, LocalDate.now());
+            if (active > 0)
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Class still has " + active + " active bookings");
+            classBookingRepository.deleteBySchedule(scheduleId);
+            classOccurrenceRepository.deleteBySchedule(scheduleId);
+            classScheduleRepository.deleteById(scheduleId);
+        });
+
+        reindex(scheduleId, null);
+        return ResponseEntity.noContent().build();
+    }
+
+    // staff; classes of the room and of the trainer that [start, end) would overlap. Either id may be left out.
+    public ResponseEntity<?> getConflicts(AuthenticatedUser user, Long roomId, UUID trainerId, String dayOfWeek,
+                                          LocalTime start, LocalTime end) {
+        requireStaff(user);
+        DayOfWeek day = requireDay(dayOfWeek);
+        if (start == null || end == null || !end.isAfter(start))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "end must be after start");
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            if (roomId != null)
+                body.put("room", toBodies(find(rooms, roomId, day).conflicts(start, end)));
+            if (trainerId != null)
+                body.put("trainer", toBodies(find(trainers, trainerId, day).conflicts(start, end)));
+        } finally {
+            lock.readLock().unlock();
+        }
+        return ResponseEntity.ok(body);
+    }
+
+    // staff; the earliest gap of the given length where both the room and the trainer are free, searching from
+    // the given day and time through the following week, within opening hours
+    public ResponseEntity<?> findNextFreeSlot(AuthenticatedUser user, Long roomId, UUID trainerId, String dayOfWeek,
+                                              LocalTime from, int minutes) {
+        requireStaff(user);
+        DayOfWeek day = requireDay(dayOfWeek);
+        if (minutes < 1)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "minutes must be at least 1");
+        Duration length = Duration.ofMinutes(minutes);
+        LocalTime opening = LocalTime.parse(openingTime);
+        LocalTime closing = LocalTime.parse(closingTime);
+
+        lock.readLock().lock();
+        try {
+            for (int offset = 0; offset <= 7; offset++) {
+                DayOfWeek candidate = day.plus(offset);
+                LocalTime earliest = offset == 0 && from != null && from.isAfter(opening) ? from : opening;
+                List<IntervalIndex> busy = new ArrayList<>(2);
+                if (roomId != null)
+                    busy.add(find(rooms, roomId, candidate));
+                if (trainerId != null)
+                    busy.add(find(trainers, trainerId, candidate));
+                LocalTime start = IntervalIndex.nextFree(busy, earliest, length, closing);
+                if (start != null)
+                    return ResponseEntity.ok(Map.of("day_of_week", candidate.name(), "start_time", start,
+                            "end_time", start.plus(length)));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No free slot of " + minutes + " minutes within a week");
+    }
+
+    // for callers that already checked admin rights; adds a batch of classes in one transaction, all or none.
+    // The batch is checked against a fresh load of the table under the write lock: one query instead of two per class,
+    // plus the two indexed lookups of dated sessions that left their weekly slot.
+    List<Long> createAll(List<ClassScheduleRequest> requests) {
+        List<Slot> candidates = new ArrayList<>(requests.size());
+        for (ClassScheduleRequest request : requests)
+            candidates.add(describe(-1, request));
+
+        List<ClassScheduleModel> saved = transactionTemplate.execute(tx -> {
+            jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?)", SCHEDULE_LOCK);
+            Map<Long, EnumMap<DayOfWeek, IntervalIndex>> currentRooms = new HashMap<>();
+            Map<UUID, EnumMap<DayOfWeek, IntervalIndex>> currentTrainers = new HashMap<>();
+            load(classScheduleRepository.findTimetable(), currentRooms, currentTrainers, new HashMap<>());
+
+            List<ClassScheduleModel> schedules = new ArrayList<>(requests.size());
+            for (int i = 0; i < candidates.size(); i++) {
+                Slot candidate = candidates.get(i);
+                IntervalIndex room = index(currentRooms, candidate.roomId(), candidate.day());
+                IntervalIndex.Interval taken = room.firstConflict(candidate.start(), candidate.end(), -1);
+                if (taken != null)
+                    throw conflict("Room", taken.scheduleId());
+                IntervalIndex trainer = index(currentTrainers, candidate.trainerId(), candidate.day());
+                taken = trainer.firstConflict(candidate.start(), candidate.end(), -1);
+                if (taken != null)
+                    throw conflict("Trainer", taken.scheduleId());
+                verifyOccurrences(candidate);
+                // later classes of the batch are checked against earlier ones under a placeholder id
+                room.add(new IntervalIndex.Interval(candidate.start(), candidate.end(), -2 - i));
+                trainer.add(new IntervalIndex.Interval(candidate.start(), candidate.end(), -2 - i));
+
+                schedules.add(ClassScheduleModel.builder()
+                        .trainer(trainerRepository.getReferenceById(candidate.trainerId()))
+                        .room(facilityRoomRepository.getReferenceById(candidate.roomId()))
+                        .className(requests.get(i).getClassName())
+                        .dayOfWeek(candidate.day().name())
+                        .startTime(candidate.start())
+                        .endTime(candidate.end())
+                        .capacity(requests.get(i).getCapacity())
+                        .build());
+            }
+            List<ClassScheduleModel> created = classScheduleRepository.saveAllAndFlush(schedules);
+            classOccurrenceService.materialize(null);
+            return created;
+        });
+
+        List<Long> ids = new ArrayList<>(saved.size());
+        for (int i = 0; i < saved.size(); i++) {
+            reindex(saved.get(i).getScheduleId(), candidates.get(i));
+            ids.add(saved.get(i).getScheduleId());
+        }
+        log.info("Added {} generated classes to the timetable", ids.size());
+        return ids;
+    }
+
+    // checks the request against the index first, which answers most conflicts without touching the database
+    private Slot validate(Long scheduleId, ClassScheduleRequest request) {
+        long ignored = scheduleId == null ? -1 : scheduleId;
+        Slot candidate = describe(ignored, request);
+        DayOfWeek day = candidate.day();
+        LocalTime start = candidate.start();
+        LocalTime end = candidate.end();
+
+        lock.readLock().lock();
+        try {
+            IntervalIndex.Interval room = find(rooms, request.getRoomId(), day).firstConflict(start, end, ignored);
+            if (room != null)
+                throw conflict("Room", room.scheduleId());
+            IntervalIndex.Interval trainer = find(trainers, request.getTrainerId(), day).firstConflict(start, end, ignored);
+            if (trainer != null)
+                throw conflict("Trainer", trainer.scheduleId());
+        } finally {
+            lock.readLock().unlock();
+        }
+        return candidate;
+    }
+
+    private Slot describe(long scheduleId, ClassScheduleRequest request) {
+        if (request.getTrainerId() == null || request.getRoomId() == null)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "trainerId and roomId are required");
+        if (request.getClassName() == null || request.getClassName().isBlank())
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "className is required");
+        DayOfWeek day = requireDay(request.getDayOfWeek());
+        LocalTime start = request.getStartTime();
+        LocalTime end = request.getEndTime();
+        if (start == null || end == null || !end.isAfter(start))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "endTime must be after startTime");
+        if (start.isBefore(LocalTime.parse(openingTime)) || end.isAfter(LocalTime.parse(closingTime)))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Classes must run between " + openingTime + " and " + closingTime);
+        return new Slot(scheduleId, request.getRoomId(), request.getTrainerId(), day, start, end);
+    }
+
+    // runs inside the write transaction; the table decides, in case another instance changed it since the last resync
+    private TrainerModel lockAndVerify(Slot candidate) {
+        jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?)", SCHEDULE_LOCK);
+        if (!facilityRoomRepository.existsById(candidate.roomId()))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown room: " + candidate.roomId());
+        TrainerModel trainer = trainerRepository.findById(candidate.trainerId())
+                .filter(found -> "hired".equals(found.getStatus()))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown or inactive trainer"));
+
+        String day = candidate.day().name();
+        classScheduleRepository.findRoomConflicts(candidate.roomId(), day, candidate.start(), candidate.end()).stream()
+                .filter(other -> other.getScheduleId() != candidate.scheduleId())
+                .findFirst().ifPresent(other -> {
+                    throw conflict("Room", other.getScheduleId());
+                });
+        classScheduleRepository.findTrainerConflicts(candidate.trainerId(), day, candidate.start(), candidate.end()).stream()
+                .filter(other -> other.getScheduleId() != candidate.scheduleId())
+                .findFirst().ifPresent(other -> {
+                    throw conflict("Trainer", other.getScheduleId());
+                });
+        verifyOccurrences(candidate);
+        return trainer;
+    }
+
+    // the weekly checks miss sessions that sit outside their class's slot (moved, or kept in an old slot because they
+    // were booked), so the new slot is also checked against the dated sessions still to come
+    private void verifyOccurrences(Slot candidate) {
+        int isoDay = candidate.day().getValue();
+        LocalDate today = LocalDate.now();
+        List<Long> clash = classOccurrenceRepository.findWeeklyRoomConflicts(candidate.scheduleId(), candidate.roomId(),
+                isoDay, today, candidate.start(), candidate.end());
+        if (!clash.isEmpty())
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Room is already booked by class occurrence " + clash.get(0));
+        clash = classOccurrenceRepository.findWeeklyTrainerConflicts(candidate.scheduleId(), candidate.trainerId(),
+                isoDay, today, candidate.start(), candidate.end());
+        if (!clash.isEmpty())
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Trainer is already booked by class occurrence " + clash.get(0));
+    }
+
+    // indexes (scheduleId, roomId, trainerId, dayOfWeek, startTime, endTime) rows; returns how many overlap another
+    private static int load(List<Object[]> rows, Map<Long, EnumMap<DayOfWeek, IntervalIndex>> rooms,
+                            Map<UUID, EnumMap<DayOfWeek, IntervalIndex>> trainers, Map<Long, Slot> slots) {
+        int overlapping = 0;
+        for (Object[] row : rows) {
+            DayOfWeek day = parseDay((String) row[3]);
+            Slot slot = new Slot((Long) row[0], (Long) row[1], (UUID) row[2], day, (LocalTime) row[4], (LocalTime) row[5]);
+            if (day == null || !slot.end().isAfter(slot.start())) {
+                log.warn("Class schedule {} has an unusable day or time range and is not indexed", slot.scheduleId());
+                continue;
+            }
+            slots.put(slot.scheduleId(), slot);
+            // double bookings from before conflicts were checked properly; the first one keeps the index slot
+            if (!index(rooms, slot.roomId(), day).add(slot.interval())
+                    | !index(trainers, slot.trainerId(), day).add(slot.interval()))
+                overlapping++;
+        }
+        return overlapping;
+    }
+
+    // replaces a class's entries after its change committed; slot is null when it was deleted
+    private void reindex(long scheduleId, Slot slot) {
+        weeklyScheduleService.invalidateAll();
+        lock.writeLock().lock();
+        try {
+            Slot previous = slots.remove(scheduleId);
+            if (previous != null) {
+                find(rooms, previous.roomId(), previous.day()).remove(scheduleId, previous.start());
+                find(trainers, previous.trainerId(), previous.day()).remove(scheduleId, previous.start());
+            }
+            if (slot == null)
+                return;
+            slot = new Slot(scheduleId, slot.roomId(), slot.trainerId(), slot.day(), slot.start(), slot.end());
+            slots.put(scheduleId, slot);
+            place(index(rooms, slot.roomId(), slot.day()), slot);
+            place(index(trainers, slot.trainerId(), slot.day()), slot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // the table just confirmed the slot is free, so anything overlapping it in the index is stale
+    private void place(IntervalIndex index, Slot slot) {
+        for (IntervalIndex.Interval stale : index.conflicts(slot.start(), slot.end()))
+            index.remove(stale.scheduleId(), stale.start());
+        index.add(slot.interval());
+    }
+
+    private static <K> IntervalIndex index(Map<K, EnumMap<DayOfWeek, IntervalIndex>> indexes, K key, DayOfWeek day) {
+        return indexes.computeIfAbsent(key, k -> new EnumMap<>(DayOfWeek.class))
+                .computeIfAbsent(day, d -> new IntervalIndex());
+    }
+
+    private static <K> IntervalIndex find(Map<K, EnumMap<DayOfWeek, IntervalIndex>> indexes, K key, DayOfWeek day) {
+        EnumMap<DayOfWeek, IntervalIndex> week = indexes.get(key);
+        IntervalIndex index = week == null ? null : week.get(day);
+        return index == null ? EMPTY : index;
+    }
+
+    static DayOfWeek parseDay(String dayOfWeek) {
+        try {
+            return dayOfWeek == null ? null : DayOfWeek.valueOf(dayOfWeek.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static DayOfWeek requireDay(String dayOfWeek) {
+        DayOfWeek day = parseDay(dayOfWeek);
+        if (day == null)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "dayOfWeek must be MONDAY to SUNDAY");
+        return day;
+    }
+
+    private static void requireStaff(AuthenticatedUser user) {
+        if (!user.isStaff())
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Staff only");
+    }
+
+    private static ResponseStatusException conflict(String what, long scheduleId) {
+        return new ResponseStatusException(HttpStatus.CONFLICT, what + " is already booked by class " + scheduleId);
+    }
+
+    private static Map<String, Object> toBody(Slot slot, String className) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("schedule_id", slot.scheduleId());
+        body.put("class_name", className);
+        body.put("room_id", slot.roomId());
+        body.put("trainer_id", slot.trainerId());
+        body.put("day_of_week", slot.day().name());
+        body.put("start_time", slot.start());
+        body.put("end_time", slot.end());
+        return body;
+    }
+
+    private static List<Map<String, Object>> toBodies(List<IntervalIndex.Interval> intervals) {
+        return intervals.stream()
+                .map(interval -> Map.<String, Object>of("schedule_id", interval.scheduleId(),
+                        "start_time", interval.start(), "end_time", interval.end()))
+                .toList();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.gym.service;
+
+import java.util.*;
+
+// In-memory mirror of the waitlisted bookings of every upcoming class occurrence, in queue order, so members can
+// poll their position without a query. class_bookings stays the source of truth: the mirror is updated after each
+// committed change on this instance and replaced wholesale from the table on a schedule.
+class ClassWaitlist {
+
+    private volatile Map<Long, LinkedHashMap<Long, UUID>> queues = new HashMap<>();
+
+    // a snapshot of (occurrenceId, bookingId, memberId) rows in queue order
+    void replace(List<Object[]> rows) {
+        Map<Long, LinkedHashMap<Long, UUID>> loaded = new HashMap<>();
+        for (Object[] row : rows)
+            loaded.computeIfAbsent((Long) row[0], id -> new LinkedHashMap<>()).put((Long) row[1], (UUID) row[2]);
+        synchronized (this) {
+            queues = loaded;
+        }
+    }
+
+    synchronized void append(Long occurrenceId, Long bookingId, UUID memberId) {
+        queues.computeIfAbsent(occurrenceId, id -> new LinkedHashMap<>()).put(bookingId, memberId);
+    }
+
+    synchronized void remove(Long occurrenceId, Collection<Long> bookingIds) {
+        LinkedHashMap<Long, UUID> queue = queues.get(occurrenceId);
+        if (queue == null)
+            return;
+        bookingIds.forEach(queue::remove);
+        if (queue.isEmpty())
+            queues.remove(occurrenceId);
+    }
+
+    synchronized void clear(Long occurrenceId) {
+        queues.remove(occurrenceId);
+    }
+
+    synchronized int size(Long occurrenceId) {
+        LinkedHashMap<Long, UUID> queue = queues.get(occurrenceId);
+        return queue == null ? 0 : queue.size();
+    }
+
+    // 1-based; 0 when the member is not waiting here. Linear in the queue, which is capped in length
+    synchronized int position(Long occurrenceId, UUID memberId) {
+        LinkedHashMap<Long, UUID> queue = queues.get(occurrenceId);
+        if (queue == null)
+            return 0;
+        int position = 0;
+        for (UUID waiting : queue.values()) {
+            position++;
+            if (waiting.equals(memberId))
+                return position;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.gym.service;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.*;
+
+// The classes of one room or one trainer on one weekday, as half-open [start, end) intervals ordered by start.
+// Scheduling keeps each timeline free of overlaps, so ends are ordered like starts and the only interval that
+// can overlap [start, end) without a later one also doing so is the last one starting before end: conflict checks
+// are a single floor lookup, O(log n). Intervals that merely touch ([9:00, 10:00) and [10:00, 11:00)) do not
+// conflict. Not thread-safe: the caller serializes access.
+class IntervalIndex {
+
+    record Interval(LocalTime start, LocalTime end, long scheduleId) {
+    }
+
+    private final TreeMap<LocalTime, Interval> byStart = new TreeMap<>();
+
+    // false when the interval overlaps one already indexed; nothing is added then
+    boolean add(Interval interval) {
+        if (!interval.end().isAfter(interval.start()))
+            throw new IllegalArgumentException("Interval must end after it starts");
+        if (firstConflict(interval.start(), interval.end(), interval.scheduleId()) != null)
+            return false;
+        byStart.put(interval.start(), interval);
+        return true;
+    }
+
+    void remove(long scheduleId, LocalTime start) {
+        Interval indexed = byStart.get(start);
+        if (indexed != null && indexed.scheduleId() == scheduleId)
+            byStart.remove(start);
+    }
+
+    // the latest-starting interval overlapping [start, end), ignoring the given schedule (the one being moved)
+    Interval firstConflict(LocalTime start, LocalTime end, long ignoredScheduleId) {
+        Map.Entry<LocalTime, Interval> candidate = byStart.lowerEntry(end);
+        while (candidate != null && candidate.getValue().end().isAfter(start)) {
+            if (candidate.getValue().scheduleId() != ignoredScheduleId)
+                return candidate.getValue();
+            candidate = byStart.lowerEntry(candidate.getKey());
+        }
+        return null;
+    }
+
+    // every interval overlapping [start, end), in start order; O(log n + k)
+    List<Interval> conflicts(LocalTime start, LocalTime end) {
+        Deque<Interval> found = new ArrayDeque<>();
+        Map.Entry<LocalTime, Interval> candidate = byStart.lowerEntry(end);
+        while (candidate != null && candidate.getValue().end().isAfter(start)) {
+            found.addFirst(candidate.getValue());
+            candidate = byStart.lowerEntry(candidate.getKey());
+        }
+        return new ArrayList<>(found);
+    }
+
+    // earliest start at or after from where [start, start + length) is free in every index and ends by closing;
+    // null when the day has no such gap. Each step jumps past a conflict, so it is O(k log n) for k conflicts.
+    static LocalTime nextFree(Collection<IntervalIndex> indexes, LocalTime from, Duration length, LocalTime closing) {
+        if (length.isNegative() || length.isZero())
+            throw new IllegalArgumentException("Length must be positive");
+        LocalTime start = from;
+        boolean moved = true;
+        while (moved) {
+            if (Duration.between(start, closing).compareTo(length) < 0)
+                return null; // also covers a start pushed past closing
+            LocalTime end = start.plus(length);
+            moved = false;
+            for (IntervalIndex index : indexes) {
+                Interval conflict = index.firstConflict(start, end, -1);
+                if (conflict != null) {
+                    start = conflict.end();
+                    moved = true;
+                    break;
+                }
+            }
+        }
+        return start;
+    }
+
+    int size() {
+        return byStart.size();
+    }
+}
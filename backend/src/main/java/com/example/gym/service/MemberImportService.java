@@ -0,0 +1,295 @@
+package com.example.gym.service;
+
+import com.example.gym.dto.MemberImportReport;
+import com.example.gym.dto.MemberRegisterRequest;
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.security.PasswordHasher;
+import com.example.gym.util.CsvUtil;
+import com.example.gym.util.ValidationUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+// Streams members from CSV or NDJSON, hashing passwords in parallel and writing rows in JDBC batches.
+// Bad or duplicate rows are reported individually and never abort the rest of the import.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MemberImportService {
+
+    private static final int BATCH_SIZE = 500;
+    private static final int PROGRESS_LOG_INTERVAL = 10_000;
+    private static final int MAX_TRACKED_IMPORTS = 20;
+
+    private static final String INSERT_CREDENTIAL =
+            "INSERT INTO user_credential_model (user_id, user_type, user_email, password_hash, last_login) " +
+            "VALUES (?, 'member', ?, ?, ?)";
+    private static final String INSERT_MEMBER =
+            "INSERT INTO member_model (member_id, first_name, last_name, email, phone, emergency_contact, dob, " +
+            "current_status, created_at, last_visit) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PasswordHasher passwordHasher;
+    private final ValidationUtil validationUtil;
+    private final JsonMapper jsonMapper;
+
+    // running imports plus the most recent finished ones, for progress polling
+    private final Deque<MemberImportReport> imports = new ConcurrentLinkedDeque<>();
+
+    private record ImportRow(long line, MemberRegisterRequest member) {
+    }
+
+    public ResponseEntity<?> importMembers(AuthenticatedUser user, InputStream body, String contentType, String status) {
+        validationUtil.isStaffAdmin(user);
+
+        if (!StaffService.MEMBER_STATUSES.contains(status))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "status must be one of " + StaffService.MEMBER_STATUSES);
+
+        boolean csv = contentType != null && contentType.startsWith("text/csv");
+        MemberImportReport report = new MemberImportReport(csv ? "csv" : "ndjson");
+        track(report);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            readRows(reader, csv, status, report);
+            report.setStatus("completed");
+        } catch (ResponseStatusException e) {
+            report.setStatus("failed");
+            report.setFailure(e.getReason());
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            log.error("Member import {} failed after {} rows", report.getImportId(), report.getRowsRead().get(), e);
+            report.setStatus("failed");
+            report.setFailure(e.getMessage());
+        } finally {
+            report.setFinishedAt(LocalDateTime.now());
+        }
+
+        return ResponseEntity.ok(report);
+    }
+
+    public ResponseEntity<?> listImports(AuthenticatedUser user) {
+        validationUtil.isStaffAdmin(user);
+        return ResponseEntity.ok(List.copyOf(imports));
+    }
+
+    private void readRows(BufferedReader reader, boolean csv, String status, MemberImportReport report) throws IOException {
+        Map<String, Integer> columns = csv ? readHeader(reader) : null;
+        long lineNumber = csv ? 1 : 0;
+
+        // uniqueness inside the file itself; the database is checked per batch
+        Set<String> seenEmails = new HashSet<>();
+        Set<String> seenPhones = new HashSet<>();
+        Set<String> seenContacts = new HashSet<>();
+
+        List<ImportRow> batch = new ArrayList<>(BATCH_SIZE);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank())
+                continue;
+
+            long rows = report.getRowsRead().incrementAndGet();
+            try {
+                MemberRegisterRequest member = csv ? fromCsv(CsvUtil.parseLine(line), columns)
+                        : jsonMapper.readValue(line, MemberRegisterRequest.class);
+                if (member == null) // a literal null line
+                    report.reject(lineNumber, null, "Malformed row: not a JSON object");
+                else
+                    batch.add(new ImportRow(lineNumber, member));
+            } catch (RuntimeException e) {
+                report.reject(lineNumber, null, "Malformed row: " + e.getMessage());
+            }
+
+            if (batch.size() == BATCH_SIZE) {
+                flush(batch, status, report, seenEmails, seenPhones, seenContacts);
+                batch.clear();
+            }
+
+            if (rows % PROGRESS_LOG_INTERVAL == 0)
+                log.info("Member import {}: {} rows read, {} imported, {} rejected", report.getImportId(),
+                        rows, report.getImported().get(), report.getRejected().get());
+        }
+
+        if (!batch.isEmpty())
+            flush(batch, status, report, seenEmails, seenPhones, seenContacts);
+    }
+
+    private void flush(List<ImportRow> batch, String status, MemberImportReport report,
+                       Set<String> seenEmails, Set<String> seenPhones, Set<String> seenContacts) {
+
+        List<ImportRow> candidates = new ArrayList<>(batch.size());
+        for (ImportRow row : batch) {
+            MemberRegisterRequest member = row.member();
+            String problem = validate(member);
+            if (problem == null && !seenEmails.add(member.getEmail()))
+                problem = "Duplicate email in import";
+            if (problem == null && !seenPhones.add(member.getPhone()))
+                problem = "Duplicate phone in import";
+            if (problem == null && member.getEmergencyContact() != null && !seenContacts.add(member.getEmergencyContact()))
+                problem = "Duplicate emergency contact in import";
+
+            if (problem != null)
+                report.reject(row.line(), member.getEmail(), problem);
+            else
+                candidates.add(row);
+        }
+
+        List<ImportRow> valid = rejectExisting(candidates, report);
+        if (valid.isEmpty())
+            return;
+
+        List<String> hashes = passwordHasher.hashAll(valid.stream().map(row -> row.member().getPassword()).toList());
+
+        try {
+            transactionTemplate.executeWithoutResult(tx -> insert(valid, hashes, status));
+            report.getImported().addAndGet(valid.size());
+        } catch (DataIntegrityViolationException e) {
+            // a concurrent registration took one of the keys; retry row by row to isolate it
+            for (int i = 0; i < valid.size(); i++) {
+                ImportRow row = valid.get(i);
+                String hash = hashes.get(i);
+                try {
+                    transactionTemplate.executeWithoutResult(tx -> insert(List.of(row), List.of(hash), status));
+                    report.getImported().incrementAndGet();
+                } catch (DataIntegrityViolationException rowFailure) {
+                    report.reject(row.line(), row.member().getEmail(), "Conflicts with an existing user");
+                }
+            }
+        }
+    }
+
+    // one round trip per unique column for the whole batch
+    private List<ImportRow> rejectExisting(List<ImportRow> rows, MemberImportReport report) {
+        if (rows.isEmpty())
+            return rows;
+
+        Map<String, Object> params = Map.of(
+                "emails", rows.stream().map(row -> row.member().getEmail()).toList(),
+                "phones", rows.stream().map(row -> row.member().getPhone()).toList(),
+                "contacts", rows.stream().map(row -> Objects.requireNonNullElse(row.member().getEmergencyContact(), "")).toList());
+
+        Set<String> takenEmails = new HashSet<>(namedParameterJdbcTemplate.queryForList(
+                "SELECT user_email FROM user_credential_model WHERE user_email IN (:emails) " +
+                "UNION SELECT email FROM member_model WHERE email IN (:emails)", params, String.class));
+        Set<String> takenPhones = new HashSet<>(namedParameterJdbcTemplate.queryForList(
+                "SELECT phone FROM member_model WHERE phone IN (:phones)", params, String.class));
+        Set<String> takenContacts = new HashSet<>(namedParameterJdbcTemplate.queryForList(
+                "SELECT emergency_contact FROM member_model WHERE emergency_contact IN (:contacts)", params, String.class));
+
+        List<ImportRow> fresh = new ArrayList<>(rows.size());
+        for (ImportRow row : rows) {
+            MemberRegisterRequest member = row.member();
+            if (takenEmails.contains(member.getEmail()))
+                report.reject(row.line(), member.getEmail(), "Email already registered");
+            else if (takenPhones.contains(member.getPhone()))
+                report.reject(row.line(), member.getEmail(), "Phone already registered");
+            else if (member.getEmergencyContact() != null && takenContacts.contains(member.getEmergencyContact()))
+                report.reject(row.line(), member.getEmail(), "Emergency contact already registered");
+            else
+                fresh.add(row);
+        }
+        return fresh;
+    }
+
+    private void insert(List<ImportRow> rows, List<String> hashes, String status) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        List<Object[]> credentials = new ArrayList<>(rows.size());
+        List<Object[]> members = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            MemberRegisterRequest member = rows.get(i).member();
+            credentials.add(new Object[]{UUID.randomUUID(), member.getEmail(), hashes.get(i), now});
+            members.add(new Object[]{UUID.randomUUID(), member.getFirstName(), member.getLastName(), member.getEmail(),
+                    member.getPhone(), member.getEmergencyContact(), Date.valueOf(member.getDob()), status, now, now});
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_CREDENTIAL, credentials);
+        jdbcTemplate.batchUpdate(INSERT_MEMBER, members);
+    }
+
+    private static String validate(MemberRegisterRequest member) {
+        if (isBlank(member.getEmail()))
+            return "email is required";
+        if (isBlank(member.getPassword()))
+            return "password is required";
+        if (isBlank(member.getFirstName()) || isBlank(member.getLastName()))
+            return "firstName and lastName are required";
+        if (isBlank(member.getPhone()))
+            return "phone is required";
+        if (member.getDob() == null)
+            return "dob is required";
+        return null;
+    }
+
+    private static Map<String, Integer> readHeader(BufferedReader reader) throws IOException {
+        String header = reader.readLine();
+        if (header == null)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "CSV header row is missing");
+
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = CsvUtil.parseLine(header);
+        for (int i = 0; i < names.size(); i++)
+            columns.put(names.get(i).toLowerCase(Locale.ROOT), i);
+
+        for (String required : List.of("firstname", "lastname", "email", "password", "phone", "dob"))
+            if (!columns.containsKey(required))
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "CSV header is missing column " + required);
+        return columns;
+    }
+
+    private static MemberRegisterRequest fromCsv(List<String> fields, Map<String, Integer> columns) {
+        MemberRegisterRequest member = new MemberRegisterRequest();
+        member.setFirstName(field(fields, columns, "firstname"));
+        member.setLastName(field(fields, columns, "lastname"));
+        member.setEmail(field(fields, columns, "email"));
+        member.setPassword(field(fields, columns, "password"));
+        member.setPhone(field(fields, columns, "phone"));
+        member.setEmergencyContact(field(fields, columns, "emergencycontact"));
+        String dob = field(fields, columns, "dob");
+        member.setDob(dob == null ? null : LocalDate.parse(dob));
+        return member;
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= fields.size() || fields.get(index).isEmpty())
+            return null;
+        return fields.get(index);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private void track(MemberImportReport report) {
+        imports.addFirst(report);
+        while (imports.size() > MAX_TRACKED_IMPORTS) {
+            MemberImportReport oldest = imports.peekLast();
+            if (oldest == null || oldest.getFinishedAt() == null)
+                break;
+            imports.remove(oldest);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.gym.service;
+
+import com.example.gym.dto.PlanSnapshot;
+import com.example.gym.repository.MembershipPlanRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+// Immutable in-memory view of the membership plans. Lookups are a hash probe on the normalized name;
+// the whole map is swapped atomically whenever plans change.
+@Component
+@RequiredArgsConstructor
+public class MembershipPlanCatalog {
+
+    private final MembershipPlanRepository membershipPlanRepository;
+
+    private volatile Map<String, PlanSnapshot> plansByName;
+
+    // after the CommandLineRunners, so the seeded plans are included
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        refresh();
+    }
+
+    // picks up plan edits made by other backend instances
+    @Scheduled(fixedDelayString = "${gym.plans.refresh-interval-ms:300000}", initialDelayString = "${gym.plans.refresh-interval-ms:300000}")
+    public void refresh() {
+        Map<String, PlanSnapshot> loaded = new HashMap<>();
+        membershipPlanRepository.findAll().forEach(plan -> loaded.put(normalize(plan.getName()), PlanSnapshot.of(plan)));
+        plansByName = Map.copyOf(loaded);
+    }
+
+    // "gold", "Gold" and " GOLD " all resolve to the same plan
+    public Optional<PlanSnapshot> findByName(String name) {
+        if (name == null)
+            return Optional.empty();
+        return Optional.ofNullable(plans().get(normalize(name)));
+    }
+
+    public List<PlanSnapshot> findAll() {
+        return plans().values().stream()
+                .sorted(Comparator.comparing(PlanSnapshot::durationDays).thenComparing(PlanSnapshot::name))
+                .toList();
+    }
+
+    public static String normalize(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private Map<String, PlanSnapshot> plans() {
+        Map<String, PlanSnapshot> current = plansByName;
+        if (current == null) {
+            refresh();
+            current = plansByName;
+        }
+        return current;
+    }
+}
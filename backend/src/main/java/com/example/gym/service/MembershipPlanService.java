@@ -0,0 +1,103 @@
+package com.example.gym.service;
+
+import com.example.gym.dto.MembershipPlanRequest;
+import com.example.gym.dto.PlanSnapshot;
+import com.example.gym.model.MembershipPlanModel;
+import com.example.gym.repository.MembershipPlanRepository;
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.util.ValidationUtil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+public class MembershipPlanService {
+
+    private final MembershipPlanRepository membershipPlanRepository;
+    private final MembershipPlanCatalog membershipPlanCatalog;
+    private final ValidationUtil validationUtil;
+
+    // served from the catalog, no query
+    public ResponseEntity<?> listPlans() {
+        return ResponseEntity.ok(membershipPlanCatalog.findAll());
+    }
+
+    public ResponseEntity<?> createPlan(AuthenticatedUser user, MembershipPlanRequest request) {
+        validationUtil.isStaffAdmin(user);
+        validate(request);
+
+        if (membershipPlanCatalog.findByName(request.getName()).isPresent())
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Plan already exists: " + request.getName());
+
+        MembershipPlanModel plan = MembershipPlanModel.builder()
+                .name(request.getName().trim())
+                .durationDays(request.getDurationDays())
+                .baseFee(request.getBaseFee())
+                .discountedFee(request.getDiscountedFee())
+                .build();
+
+        membershipPlanRepository.save(plan);
+        membershipPlanCatalog.refresh();
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(PlanSnapshot.of(plan));
+    }
+
+    public ResponseEntity<?> updatePlan(AuthenticatedUser user, UUID planId, MembershipPlanRequest request) {
+        validationUtil.isStaffAdmin(user);
+        validate(request);
+
+        MembershipPlanModel plan = membershipPlanRepository.findById(planId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Membership Plan Not Found"));
+
+        membershipPlanCatalog.findByName(request.getName())
+                .filter(existing -> !existing.planId().equals(planId))
+                .ifPresent(existing -> {
+                    throw new ResponseStatusException(HttpStatus.CONFLICT, "Plan already exists: " + request.getName());
+                });
+
+        plan.setName(request.getName().trim());
+        plan.setDurationDays(request.getDurationDays());
+        plan.setBaseFee(request.getBaseFee());
+        plan.setDiscountedFee(request.getDiscountedFee());
+
+        membershipPlanRepository.save(plan);
+        membershipPlanCatalog.refresh();
+
+        return ResponseEntity.ok(PlanSnapshot.of(plan));
+    }
+
+    public ResponseEntity<?> deletePlan(AuthenticatedUser user, UUID planId) {
+        validationUtil.isStaffAdmin(user);
+
+        if (!membershipPlanRepository.existsById(planId))
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Membership Plan Not Found");
+
+        try {
+            membershipPlanRepository.deleteById(planId);
+        } catch (DataIntegrityViolationException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Plan is referenced by existing subscriptions");
+        }
+        membershipPlanCatalog.refresh();
+
+        return ResponseEntity.ok(Map.of("message", "Plan deleted"));
+    }
+
+    private static void validate(MembershipPlanRequest request) {
+        if (request.getName() == null || request.getName().isBlank())
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "name is required");
+        if (request.getDurationDays() == null || request.getDurationDays() <= 0)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "durationDays must be positive");
+        if (request.getBaseFee() == null || request.getBaseFee().compareTo(BigDecimal.ZERO) < 0)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "baseFee must not be negative");
+        if (request.getDiscountedFee() != null && request.getDiscountedFee().compareTo(BigDecimal.ZERO) < 0)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "discountedFee must not be negative");
+    }
+}
@@ -0,0 +1,291 @@
+package com.example.gym.service;
+
+import com.example.gym.dto.OccupancyHeatmap;
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.util.ValidationUtil;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.Array;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// Weekday x time-of-day occupancy per room, kept in occupancy_heatmap_model as one row of slot arrays per day.
+// Completed visits and arrivals from the occupancy event stream are summed in memory and added to the rows
+// periodically with element-wise upserts; a heatmap for any range then merges at most one row per room and day.
+// Days can be rebuilt from attendance_logs after the fact, e.g. when an instance died with unflushed counts, as long
+// as they are still inside the attendance retention window.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OccupancyHeatmapService {
+
+    static final int SLOT_MINUTES = 15;
+    private static final int SLOTS = 24 * 60 / SLOT_MINUTES;
+    private static final int SLOT_SECONDS = SLOT_MINUTES * 60;
+    private static final Set<Integer> RESOLUTIONS = Set.of(15, 30, 60);
+    private static final int MAX_RANGE_DAYS = 731;
+    private static final int EXPORT_FETCH_SIZE = 5000;
+
+    private static final String ADD_ARRAYS = "(SELECT array_agg(a + b ORDER BY i) FROM unnest(occupancy_heatmap_model.%1$s, " +
+            "EXCLUDED.%1$s) WITH ORDINALITY AS t(a, b, i))";
+    private static final String UPSERT_DAY =
+            "INSERT INTO occupancy_heatmap_model (heatmap_id, heatmap_date, room_id, arrivals, presence_seconds) " +
+            "VALUES (gen_random_uuid(), ?, ?, ?, ?) ON CONFLICT (heatmap_date, room_id) DO UPDATE SET " +
+            "arrivals = " + ADD_ARRAYS.formatted("arrivals") + ", presence_seconds = " + ADD_ARRAYS.formatted("presence_seconds");
+    private static final String COMPLETED_VISITS =
+            "SELECT room_id, check_in_time, check_out_time FROM attendance_logs WHERE check_in_time >= ? AND check_in_time < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ValidationUtil validationUtil;
+
+    // longer visits are forgotten check-outs and would smear one member across the whole day
+    @Value("${gym.occupancy.max-visit-hours:12}")
+    private long maxVisitHours;
+
+    // months older than this are archived out of attendance_logs, so they cannot be recomputed from it
+    @Value("${gym.attendance.retention-months:12}")
+    private int retentionMonths;
+
+    private record Key(LocalDate date, long roomId) {
+    }
+
+    private static final Comparator<Key> KEY_ORDER = Comparator.comparing(Key::date).thenComparingLong(Key::roomId);
+
+    private static final class Day {
+        final int[] arrivals = new int[SLOTS];
+        final int[] presenceSeconds = new int[SLOTS];
+
+        void add(Day other) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                arrivals[slot] += other.arrivals[slot];
+                presenceSeconds[slot] += other.presenceSeconds[slot];
+            }
+        }
+
+        // both ends on the same date; end may be the following midnight
+        void addPresence(LocalDateTime start, LocalDateTime end) {
+            int from = start.toLocalTime().toSecondOfDay();
+            int to = end.toLocalDate().isAfter(start.toLocalDate()) ? 24 * 3600 : end.toLocalTime().toSecondOfDay();
+            for (int slot = from / SLOT_SECONDS; from < to; slot++) {
+                int boundary = (slot + 1) * SLOT_SECONDS;
+                presenceSeconds[slot] += Math.min(to, boundary) - from;
+                from = boundary;
+            }
+        }
+    }
+
+    // counts not yet added to the table; replaced under compute, so a flushed Day is never written to again
+    private final ConcurrentHashMap<Key, Day> pending = new ConcurrentHashMap<>();
+
+    public void recordArrival(long roomId, LocalDateTime at) {
+        addArrival(pending, roomId, at);
+    }
+
+    public void recordVisit(long roomId, LocalDateTime checkIn, LocalDateTime checkOut) {
+        addVisit(pending, roomId, checkIn, checkOut);
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${gym.analytics.heatmap-flush-ms:10000}")
+    public void flush() {
+        if (pending.isEmpty())
+            return;
+
+        Map<Key, Day> batch = new TreeMap<>(KEY_ORDER); // same row order on every instance, so upserts cannot deadlock
+        for (Key key : pending.keySet()) {
+            Day day = pending.remove(key);
+            if (day != null)
+                batch.put(key, day);
+        }
+
+        try {
+            write(batch);
+        } catch (DataAccessException e) {
+            // keep the counts for the next tick
+            batch.forEach((key, day) -> apply(pending, key, current -> current.add(day)));
+            log.warn("Heatmap flush of {} room-days failed, retrying later: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    // admin only; merges the stored days of the range into one weekday x slot grid, for one room or all of them
+    public ResponseEntity<?> getHeatmap(AuthenticatedUser user, LocalDate from, LocalDate to, Long roomId, int resolution) {
+        validationUtil.isStaffAdmin(user);
+        validateRange(from, to);
+        if (!RESOLUTIONS.contains(resolution))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "resolution must be one of " + RESOLUTIONS + " minutes");
+
+        int perBucket = resolution / SLOT_MINUTES;
+        int buckets = SLOTS / perBucket;
+        long[][] presence = new long[7][buckets];
+        long[][] arrivals = new long[7][buckets];
+
+        StringBuilder sql = new StringBuilder(
+                "SELECT heatmap_date, arrivals, presence_seconds FROM occupancy_heatmap_model WHERE heatmap_date BETWEEN ? AND ?");
+        List<Object> args = new ArrayList<>(List.of(Date.valueOf(from), Date.valueOf(to)));
+        if (roomId != null) {
+            sql.append(" AND room_id = ?");
+            args.add(roomId);
+        }
+
+        jdbcTemplate.query(sql.toString(), (RowCallbackHandler) rs -> {
+            int weekday = rs.getDate(1).toLocalDate().getDayOfWeek().getValue() - 1;
+            Integer[] dayArrivals = (Integer[]) rs.getArray(2).getArray();
+            Integer[] dayPresence = (Integer[]) rs.getArray(3).getArray();
+            for (int slot = 0; slot < SLOTS; slot++) {
+                arrivals[weekday][slot / perBucket] += dayArrivals[slot];
+                presence[weekday][slot / perBucket] += dayPresence[slot];
+            }
+        }, args.toArray());
+
+        // every date counts towards its weekday, including days nobody came in
+        int[] days = new int[7];
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1))
+            days[date.getDayOfWeek().getValue() - 1]++;
+
+        double[][] average = new double[7][buckets];
+        for (int weekday = 0; weekday < 7; weekday++) {
+            if (days[weekday] == 0)
+                continue;
+            for (int bucket = 0; bucket < buckets; bucket++)
+                average[weekday][bucket] = Math.round(presence[weekday][bucket] * 100.0 / (resolution * 60L * days[weekday])) / 100.0;
+        }
+
+        List<String> weekdays = Arrays.stream(DayOfWeek.values()).map(DayOfWeek::name).toList();
+        return ResponseEntity.ok(new OccupancyHeatmap(from, to, roomId, resolution, weekdays, average, arrivals, days));
+    }
+
+    // admin only; recomputes closed days from attendance_logs, replacing what was accumulated for them
+    public ResponseEntity<?> rebuild(AuthenticatedUser user, LocalDate from, LocalDate to) {
+        validationUtil.isStaffAdmin(user);
+        validateRange(from, to);
+        if (!to.isBefore(LocalDate.now()))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Only days before today can be rebuilt");
+        // the rows of archived days would be deleted and nothing read back; visits carried in from the day before
+        // must still be in the database too
+        LocalDateTime kept = YearMonth.now().minusMonths(retentionMonths).atDay(1).atStartOfDay().plusHours(maxVisitHours);
+        LocalDate earliest = kept.toLocalTime().equals(LocalTime.MIDNIGHT) ? kept.toLocalDate() : kept.toLocalDate().plusDays(1);
+        if (from.isBefore(earliest))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Days before " + earliest + " are archived and cannot be rebuilt");
+
+        flush(); // so nothing accumulated for the range is added on top of the rebuilt rows later
+
+        Map<Key, Day> rebuilt = new TreeMap<>(KEY_ORDER);
+        LocalDateTime start = from.atStartOfDay();
+        LocalDateTime end = to.plusDays(1).atStartOfDay();
+        // one transaction, so the driver streams the visits with the fetch size instead of loading them all
+        transactionTemplate.executeWithoutResult(tx -> {
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(COMPLETED_VISITS);
+                statement.setTimestamp(1, Timestamp.valueOf(start.minusHours(maxVisitHours)));
+                statement.setTimestamp(2, Timestamp.valueOf(end));
+                statement.setFetchSize(EXPORT_FETCH_SIZE);
+                return statement;
+            }, (RowCallbackHandler) rs -> {
+                long roomId = rs.getLong(1);
+                LocalDateTime checkIn = rs.getTimestamp(2).toLocalDateTime();
+                Timestamp checkOut = rs.getTimestamp(3);
+                if (!checkIn.isBefore(start))
+                    addArrival(rebuilt, roomId, checkIn);
+                if (checkOut != null)
+                    addVisit(rebuilt, roomId, checkIn, checkOut.toLocalDateTime());
+            });
+            // visits that began before the range only contribute their part inside it
+            rebuilt.keySet().removeIf(key -> key.date().isBefore(from) || key.date().isAfter(to));
+
+            jdbcTemplate.execute("LOCK TABLE occupancy_heatmap_model IN EXCLUSIVE MODE");
+            jdbcTemplate.update("DELETE FROM occupancy_heatmap_model WHERE heatmap_date BETWEEN ? AND ?",
+                    Date.valueOf(from), Date.valueOf(to));
+            write(rebuilt);
+        });
+
+        log.info("Rebuilt occupancy heatmap {} to {}: {} room-days", from, to, rebuilt.size());
+        return ResponseEntity.ok(Map.of("from", from, "to", to, "roomDays", rebuilt.size()));
+    }
+
+    private void write(Map<Key, Day> days) {
+        if (days.isEmpty())
+            return;
+        List<Map.Entry<Key, Day>> rows = new ArrayList<>(days.entrySet());
+        jdbcTemplate.batchUpdate(UPSERT_DAY, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int i) throws SQLException {
+                Map.Entry<Key, Day> row = rows.get(i);
+                statement.setDate(1, Date.valueOf(row.getKey().date()));
+                statement.setLong(2, row.getKey().roomId());
+                statement.setArray(3, toSqlArray(statement, row.getValue().arrivals));
+                statement.setArray(4, toSqlArray(statement, row.getValue().presenceSeconds));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+    }
+
+    private static Array toSqlArray(PreparedStatement statement, int[] values) throws SQLException {
+        return statement.getConnection().createArrayOf("integer", Arrays.stream(values).boxed().toArray());
+    }
+
+    private static void addArrival(Map<Key, Day> target, long roomId, LocalDateTime at) {
+        int slot = at.toLocalTime().toSecondOfDay() / SLOT_SECONDS;
+        apply(target, new Key(at.toLocalDate(), roomId), day -> day.arrivals[slot]++);
+    }
+
+    // splits the visit at midnight, so each part lands on its own date
+    private void addVisit(Map<Key, Day> target, long roomId, LocalDateTime checkIn, LocalDateTime checkOut) {
+        if (!checkOut.isAfter(checkIn) || Duration.between(checkIn, checkOut).toHours() >= maxVisitHours)
+            return;
+
+        LocalDateTime cursor = checkIn;
+        while (cursor.isBefore(checkOut)) {
+            LocalDateTime midnight = cursor.toLocalDate().plusDays(1).atStartOfDay();
+            LocalDateTime start = cursor;
+            LocalDateTime until = checkOut.isBefore(midnight) ? checkOut : midnight;
+            apply(target, new Key(start.toLocalDate(), roomId), day -> day.addPresence(start, until));
+            cursor = until;
+        }
+    }
+
+    private static void apply(Map<Key, Day> target, Key key, Consumer<Day> change) {
+        target.compute(key, (ignored, day) -> {
+            Day current = day == null ? new Day() : day;
+            change.accept(current);
+            return current;
+        });
+    }
+
+    private static void validateRange(LocalDate from, LocalDate to) {
+        if (from == null || to == null || from.isAfter(to))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from and to are required, with from <= to");
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_RANGE_DAYS)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_RANGE_DAYS + " days per request");
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.gym.service;
+
+import com.example.gym.dto.AttendanceEvent;
+import com.example.gym.dto.OccupancySnapshot;
+import com.example.gym.dto.RoomOccupancy;
+import com.example.gym.model.FacilityRoomModel;
+import com.example.gym.repository.FacilityRoomRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Live count of members inside each room. Check-ins and check-outs adjust per-room LongAdders through a
+// per-member presence map, so concurrent turnstiles never contend on a shared counter. The counts are
+// periodically reconciled with the open visits in attendance_logs, and pushed to SSE subscribers at most
+// once per push interval: one serialization per change, however many dashboards are listening. Completed visits
+// are handed to the heatmap as they happen.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OccupancyService {
+
+    // latest open visit per member, started within the visit window
+    private static final String OPEN_VISITS =
+            "SELECT DISTINCT ON (member_id) member_id, room_id, check_in_time FROM attendance_logs " +
+            "WHERE check_out_time IS NULL AND check_in_time > ? ORDER BY member_id, check_in_time DESC";
+
+    private static final long NO_ROOM = 0L; // visits through an entrance not tied to a room
+
+    private final FacilityRoomRepository facilityRoomRepository;
+    private final OccupancyHeatmapService occupancyHeatmapService;
+    private final JdbcTemplate jdbcTemplate;
+    private final JsonMapper jsonMapper;
+
+    // visits left open longer than this are treated as forgotten check-outs
+    @Value("${gym.occupancy.max-visit-hours:12}")
+    private long maxVisitHours;
+
+    // events younger than this may still sit in the write-behind buffer, so the database cannot overrule them yet
+    @Value("${gym.occupancy.reconcile-grace-ms:30000}")
+    private long reconcileGraceMs;
+
+    @Value("${gym.occupancy.stream-timeout-ms:1800000}")
+    private long streamTimeoutMs;
+
+    @Value("${gym.occupancy.heartbeat-ms:15000}")
+    private long heartbeatMs;
+
+    private record Presence(long roomId, boolean inside, LocalDateTime at) {
+    }
+
+    private final ConcurrentHashMap<UUID, Presence> presence = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, LongAdder> occupancy = new ConcurrentHashMap<>();
+    private volatile Map<Long, FacilityRoomModel> rooms = Map.of();
+
+    private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+    private final AtomicLong version = new AtomicLong();
+    private volatile boolean dirty = true;
+    private volatile long lastPushMillis;
+
+    public void requireRoom(Long roomId) {
+        if (!rooms.containsKey(roomId)) {
+            refreshRooms(); // the room may have been added since the last reconcile
+            if (!rooms.containsKey(roomId))
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown room: " + roomId);
+        }
+    }
+
+    // called for every acknowledged check-in and check-out
+    public void apply(AttendanceEvent event) {
+        presence.compute(event.memberId(), (memberId, previous) -> {
+            if (previous != null && previous.at().isAfter(event.at()))
+                return previous; // a newer event for this member already landed
+            Presence next = new Presence(event.roomId() == null ? NO_ROOM : event.roomId(), event.isCheckIn(), event.at());
+            move(previous, next);
+            // a check-out, or a check-in elsewhere, completes the previous visit
+            if (previous != null && previous.inside())
+                occupancyHeatmapService.recordVisit(previous.roomId(), previous.at(), event.at());
+            if (next.inside())
+                occupancyHeatmapService.recordArrival(next.roomId(), event.at());
+            return next;
+        });
+        dirty = true;
+    }
+
+    public OccupancySnapshot snapshot() {
+        Map<Long, FacilityRoomModel> known = rooms;
+        List<RoomOccupancy> perRoom = new ArrayList<>(known.size());
+        for (FacilityRoomModel room : known.values())
+            perRoom.add(new RoomOccupancy(room.getRoomId(), room.getName(), room.getCapacity(), count(room.getRoomId())));
+        perRoom.sort(Comparator.comparing(RoomOccupancy::name));
+
+        long total = occupancy.values().stream().mapToLong(LongAdder::sum).sum();
+        return new OccupancySnapshot(version.get(), LocalDateTime.now(), total, perRoom);
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(() -> subscribers.remove(emitter));
+        emitter.onError(error -> subscribers.remove(emitter));
+        subscribers.add(emitter);
+
+        // a new subscriber starts from the current state instead of waiting for the next change
+        send(emitter, jsonMapper.writeValueAsString(snapshot()));
+        return emitter;
+    }
+
+    // coalesces every change since the last tick into a single event
+    @Scheduled(fixedDelayString = "${gym.occupancy.push-interval-ms:1000}")
+    public void push() {
+        if (subscribers.isEmpty())
+            return;
+
+        long now = System.currentTimeMillis();
+        if (dirty) {
+            dirty = false;
+            version.incrementAndGet();
+            String payload = jsonMapper.writeValueAsString(snapshot());
+            subscribers.forEach(emitter -> send(emitter, payload));
+            lastPushMillis = now;
+        } else if (now - lastPushMillis >= heartbeatMs) {
+            // keeps idle connections from being closed by proxies
+            subscribers.forEach(emitter -> {
+                try {
+                    emitter.send(SseEmitter.event().comment("keep-alive"));
+                } catch (IOException | IllegalStateException e) {
+                    subscribers.remove(emitter);
+                }
+            });
+            lastPushMillis = now;
+        }
+    }
+
+    // the database is the source of truth for members without recent in-memory events
+    @Scheduled(fixedDelayString = "${gym.occupancy.reconcile-interval-ms:60000}", initialDelayString = "${gym.occupancy.reconcile-initial-delay-ms:5000}")
+    public void reconcile() {
+        refreshRooms();
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime settled = now.minusNanos(reconcileGraceMs * 1_000_000);
+
+        Map<UUID, Presence> open = new HashMap<>();
+        jdbcTemplate.query(OPEN_VISITS, rs -> {
+            long roomId = rs.getLong(2);
+            open.put(rs.getObject(1, UUID.class),
+                    new Presence(rs.wasNull() ? NO_ROOM : roomId, true, rs.getTimestamp(3).toLocalDateTime()));
+        }, Timestamp.valueOf(now.minusHours(maxVisitHours)));
+
+        Set<UUID> members = new HashSet<>(presence.keySet());
+        members.addAll(open.keySet());
+
+        AtomicInteger corrected = new AtomicInteger();
+        for (UUID memberId : members) {
+            presence.compute(memberId, (key, current) -> {
+                if (current != null && current.at().isAfter(settled))
+                    return current;
+                Presence truth = open.get(key);
+                if (!sameState(current, truth)) {
+                    move(current, truth);
+                    corrected.incrementAndGet();
+                }
+                return truth; // also prunes old check-outs and forgotten visits
+            });
+        }
+
+        if (corrected.get() > 0) {
+            dirty = true;
+            log.info("Occupancy reconciled: {} members corrected", corrected.get());
+        }
+    }
+
+    private void refreshRooms() {
+        Map<Long, FacilityRoomModel> loaded = new HashMap<>();
+        facilityRoomRepository.findAll().forEach(room -> loaded.put(room.getRoomId(), room));
+        rooms = Map.copyOf(loaded);
+    }
+
+    private void move(Presence from, Presence to) {
+        if (from != null && from.inside())
+            occupancy.computeIfAbsent(from.roomId(), room -> new LongAdder()).decrement();
+        if (to != null && to.inside())
+            occupancy.computeIfAbsent(to.roomId(), room -> new LongAdder()).increment();
+    }
+
+    private long count(long roomId) {
+        LongAdder adder = occupancy.get(roomId);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    private static boolean sameState(Presence a, Presence b) {
+        boolean aInside = a != null && a.inside();
+        boolean bInside = b != null && b.inside();
+        return aInside == bInside && (!aInside || a.roomId() == b.roomId());
+    }
+
+    private void send(SseEmitter emitter, String payload) {
+        try {
+            emitter.send(SseEmitter.event().name("occupancy").data(payload, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            subscribers.remove(emitter); // client went away
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.gym.service;
+
+import com.example.gym.dto.GatewayResult;
+
+import java.math.BigDecimal;
+
+// External payment processor. Implementations must treat transactionRef as an idempotency key,
+// since an attempt interrupted by a crash is charged again after it is requeued.
+public interface PaymentGateway {
+
+    // returns a decline as a result; throws for transient failures that are worth retrying
+    GatewayResult charge(String transactionRef, BigDecimal amount, String paymentMethod);
+
+    // gives the money back when a charge could not be applied to its invoice
+    void refund(String gatewayRef, BigDecimal amount);
+}
@@ -0,0 +1,315 @@
+package com.example.gym.service;
+
+import com.example.gym.config.PaymentRequest;
+import com.example.gym.dto.GatewayResult;
+import com.example.gym.model.InvoiceModel;
+import com.example.gym.model.MemberModel;
+import com.example.gym.model.PaymentAttemptModel;
+import com.example.gym.model.PaymentModel;
+import com.example.gym.model.SubscriptionModel;
+import com.example.gym.repository.InvoiceRepository;
+import com.example.gym.repository.PaymentAttemptRepository;
+import com.example.gym.repository.PaymentRepository;
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.util.ValidationUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.net.URI;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Accepts payments into the payment_attempt_model queue and settles them on a worker pool.
+// The gateway is called outside any transaction; payment, invoice, subscription, revenue rollup and attempt are then
+// written together in one transaction. A poller requeues attempts lost to a crash or a full pool.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PaymentProcessingService {
+
+    private final ValidationUtil validationUtil;
+    private final PaymentAttemptRepository paymentAttemptRepository;
+    private final InvoiceRepository invoiceRepository;
+    private final PaymentRepository paymentRepository;
+    private final PaymentGateway paymentGateway;
+    private final RevenueReportService revenueReportService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${gym.payments.workers:8}")
+    private int workers;
+
+    @Value("${gym.payments.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${gym.payments.max-attempts:5}")
+    private int maxAttempts;
+
+    // longer than any gateway call, so a live worker is never mistaken for a dead one
+    @Value("${gym.payments.stale-after-ms:120000}")
+    private long staleAfterMs;
+
+    @Value("${gym.payments.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    // first wait after a gateway error; doubles with every further try
+    @Value("${gym.payments.retry-backoff-ms:2000}")
+    private long retryBackoffMs;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "payment-worker-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // unfinished attempts stay queued or processing in the table and are resumed on the next start
+        executor.shutdownNow();
+    }
+
+    public ResponseEntity<?> enqueuePayment(AuthenticatedUser user, PaymentRequest paymentRequest) {
+        if (!validationUtil.findIfMemberExists(user) || user.getMemberId() == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized");
+        }
+
+        UUID invoiceId = paymentRequest.getPaymentId();
+        String transactionRef = paymentRequest.getTransactionRef();
+        if (invoiceId == null || transactionRef == null || transactionRef.isBlank() || paymentRequest.getAmountPaid() == null)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "paymentId, amountPaid and transactionRef are required");
+
+        // a retried request gets the tracking id of its first submission, unless that one already failed: the gateway
+        // would replay the same outcome for the same reference, so a new attempt needs a new transactionRef
+        Optional<PaymentAttemptModel> previous = paymentAttemptRepository.findByInvoiceIdAndTransactionRef(invoiceId, transactionRef);
+        if (previous.isPresent())
+            return replay(previous.get());
+
+        InvoiceModel invoice = invoiceRepository.findWithSubscription(invoiceId)
+                .filter(found -> found.getSubscription().getMember().getMemberId().equals(user.getMemberId()))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Invoice not found."));
+
+        if ("paid".equals(invoice.getStatus()))
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Invoice has already been paid.");
+        if ("void".equals(invoice.getStatus()))
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Invoice was voided when its subscription expired.");
+
+        if (paymentRequest.getAmountPaid().compareTo(invoice.getAmount()) < 0)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Insufficient funds");
+
+        PaymentAttemptModel attempt = PaymentAttemptModel.builder()
+                .invoiceId(invoiceId)
+                .memberId(user.getMemberId())
+                .amount(paymentRequest.getAmountPaid())
+                .paymentMethod(paymentRequest.getPaymentMethod())
+                .transactionRef(transactionRef)
+                .status("queued")
+                .attempts(0)
+                .updatedAt(LocalDateTime.now())
+                .build();
+
+        try {
+            attempt = paymentAttemptRepository.saveAndFlush(attempt);
+        } catch (DataIntegrityViolationException e) {
+            // the same request was submitted concurrently; both callers track the one attempt
+            return replay(paymentAttemptRepository.findByInvoiceIdAndTransactionRef(invoiceId, transactionRef)
+                    .orElseThrow(() -> e));
+        }
+
+        dispatch(attempt.getAttemptId());
+        return accepted(attempt);
+    }
+
+    public ResponseEntity<?> getPaymentStatus(AuthenticatedUser user, UUID trackingId) {
+        PaymentAttemptModel attempt = paymentAttemptRepository.findById(trackingId)
+                .filter(found -> found.getMemberId().equals(user.getMemberId()))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Payment not found."));
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("tracking_id", attempt.getAttemptId());
+        body.put("invoice_id", attempt.getInvoiceId());
+        body.put("status", attempt.getStatus());
+        body.put("attempts", attempt.getAttempts());
+        if (attempt.getPaymentId() != null)
+            body.put("payment_id", attempt.getPaymentId());
+        if (attempt.getFailureReason() != null)
+            body.put("reason", attempt.getFailureReason());
+        return ResponseEntity.ok(body);
+    }
+
+    // picks up attempts the hand-off missed: pool was full, instance restarted, or a worker died mid-flight
+    @Scheduled(fixedDelayString = "${gym.payments.poll-interval-ms:1000}")
+    public void pollQueue() {
+        LocalDateTime now = LocalDateTime.now();
+        int requeued = paymentAttemptRepository.requeueStale(now.minusNanos(staleAfterMs * 1_000_000), now);
+        if (requeued > 0)
+            log.warn("Requeued {} payment attempts abandoned mid-flight", requeued);
+
+        int free = executor.getQueue().remainingCapacity();
+        if (free == 0)
+            return;
+
+        // only attempts older than one poll, so fresh ones are left to their direct hand-off
+        for (UUID attemptId : paymentAttemptRepository.findQueuedBefore(now.minusNanos(pollIntervalMs * 1_000_000), now, Limit.of(free)))
+            dispatch(attemptId);
+    }
+
+    private void dispatch(UUID attemptId) {
+        try {
+            executor.execute(() -> process(attemptId));
+        } catch (RejectedExecutionException e) {
+            // still queued in the table; the poller retries once the pool drains
+            log.debug("Payment pool full, attempt {} left for the poller", attemptId);
+        }
+    }
+
+    void process(UUID attemptId) {
+        if (paymentAttemptRepository.claim(attemptId, LocalDateTime.now()) == 0)
+            return; // another worker or instance has it
+
+        PaymentAttemptModel attempt = paymentAttemptRepository.findById(attemptId).orElseThrow();
+
+        GatewayResult result;
+        try {
+            result = paymentGateway.charge(attempt.getTransactionRef(), attempt.getAmount(), attempt.getPaymentMethod());
+        } catch (RuntimeException e) {
+            log.warn("Gateway error on attempt {} (try {}): {}", attemptId, attempt.getAttempts(), e.getMessage());
+            if (attempt.getAttempts() < maxAttempts)
+                requeue(attemptId, attempt.getAttempts());
+            else
+                finish(attemptId, "failed", "Gateway unavailable", null);
+            return;
+        }
+
+        if (!result.approved()) {
+            finish(attemptId, "declined", result.declineReason(), null);
+            return;
+        }
+
+        boolean settled;
+        try {
+            settled = Boolean.TRUE.equals(transactionTemplate.execute(tx -> settle(attemptId, result.gatewayRef())));
+        } catch (ObjectOptimisticLockingFailureException | DataIntegrityViolationException e) {
+            settled = false; // another payment settled the invoice at the same moment
+        }
+
+        if (!settled) {
+            paymentGateway.refund(result.gatewayRef(), attempt.getAmount());
+            finish(attemptId, "rejected", "Invoice was already paid or voided; the charge was refunded", result.gatewayRef());
+        }
+    }
+
+    // one transaction for payment, invoice, subscription, member status, revenue rollup and attempt; false when the
+    // invoice is already paid or voided
+    private boolean settle(UUID attemptId, String gatewayRef) {
+        PaymentAttemptModel attempt = paymentAttemptRepository.findById(attemptId).orElseThrow();
+        InvoiceModel invoice = invoiceRepository.findById(attempt.getInvoiceId()).orElseThrow();
+
+        // voided by the expiry sweep while the charge was in flight
+        if ("paid".equals(invoice.getStatus()) || "void".equals(invoice.getStatus()))
+            return false;
+
+        PaymentModel payment = PaymentModel.builder()
+                .invoice(invoice)
+                .paymentDate(LocalDate.now())
+                .amountPaid(attempt.getAmount())
+                .paymentMethod(attempt.getPaymentMethod())
+                .transactionRef(attempt.getTransactionRef())
+                .build();
+
+        invoice.setStatus("paid");
+        invoice.setPayments(payment);
+
+        SubscriptionModel subscription = invoice.getSubscription();
+        subscription.setStatus("active");
+
+        // the expiry sweep only moves members to expired; paying again is what brings them back. Their token picks
+        // the status up at the next refresh.
+        MemberModel member = subscription.getMember();
+        if ("expired".equals(member.getCurrentStatus()))
+            member.setCurrentStatus("active");
+
+        // a paid renewal invoice extends the subscription through the period it covers
+        if (invoice.getBillingPeriodStart().isAfter(subscription.getStartDate())) {
+            LocalDate periodEnd = invoice.getBillingPeriodStart().plusDays(subscription.getPlan().getDurationDays());
+            if (periodEnd.isAfter(subscription.getEndDate()))
+                subscription.setEndDate(periodEnd);
+        }
+
+        paymentRepository.save(payment);
+        revenueReportService.recordPayment(payment.getPaymentDate(), subscription.getPlan().getPlanId(),
+                payment.getPaymentMethod(), payment.getAmountPaid());
+
+        attempt.setStatus("settled");
+        attempt.setGatewayRef(gatewayRef);
+        attempt.setPaymentId(payment.getPaymentId());
+        attempt.setUpdatedAt(LocalDateTime.now());
+
+        // version and unique key conflicts surface here, inside the transaction
+        invoiceRepository.flush();
+        return true;
+    }
+
+    private void finish(UUID attemptId, String status, String reason, String gatewayRef) {
+        transactionTemplate.executeWithoutResult(tx -> {
+            PaymentAttemptModel attempt = paymentAttemptRepository.findById(attemptId).orElseThrow();
+            attempt.setStatus(status);
+            attempt.setFailureReason(reason);
+            attempt.setGatewayRef(gatewayRef);
+            attempt.setUpdatedAt(LocalDateTime.now());
+        });
+    }
+
+    // back to the queue, held back until the gateway has had time to recover
+    private void requeue(UUID attemptId, int attempts) {
+        LocalDateTime now = LocalDateTime.now();
+        long delayMs = retryBackoffMs << Math.min(attempts - 1, 10);
+        transactionTemplate.executeWithoutResult(tx -> {
+            PaymentAttemptModel attempt = paymentAttemptRepository.findById(attemptId).orElseThrow();
+            attempt.setStatus("queued");
+            attempt.setNextAttemptAt(now.plusNanos(delayMs * 1_000_000));
+            attempt.setUpdatedAt(now);
+        });
+    }
+
+    private static ResponseEntity<?> replay(PaymentAttemptModel previous) {
+        if (!Set.of("queued", "processing", "settled").contains(previous.getStatus()))
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Payment " + previous.getTransactionRef() + " was " + previous.getStatus() + "; retry with a new transactionRef.");
+        return accepted(previous);
+    }
+
+    private static ResponseEntity<?> accepted(PaymentAttemptModel attempt) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/subscriptions/payments/" + attempt.getAttemptId()))
+                .body(Map.of(
+                        "tracking_id", attempt.getAttemptId(),
+                        "status", attempt.getStatus()));
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.gym.service;
+
+import com.example.gym.dto.PlanSnapshot;
+import com.example.gym.dto.RenewalRunReport;
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.util.ValidationUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.Date;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Bills the next period of every active subscription ending within the lead window.
+// The member id space is cut into ranges that worker threads drain independently, each inserting in JDBC batches.
+// The (sub_id, billing_period_start) unique key makes every run idempotent: rerunning a period never double-bills.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RenewalBillingService {
+
+    private static final String SELECT_DUE =
+            "SELECT s.sub_id, s.plan_id, s.end_date FROM subscription_model s " +
+            "WHERE s.status = 'active' AND s.end_date BETWEEN ? AND ? " +
+            "AND s.member_id BETWEEN ? AND ? AND s.sub_id > ? " +
+            "AND NOT EXISTS (SELECT 1 FROM invoice_model i WHERE i.sub_id = s.sub_id AND i.billing_period_start = s.end_date) " +
+            "ORDER BY s.sub_id LIMIT ?";
+    private static final String INSERT_INVOICE =
+            "INSERT INTO invoice_model (invoice_id, sub_id, amount, due_date, billing_period_start, status, version) " +
+            "VALUES (?, ?, ?, ?, ?, 'pending', 0) ON CONFLICT (sub_id, billing_period_start) DO NOTHING";
+
+    private static final UUID START = new UUID(0, 0);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MembershipPlanCatalog membershipPlanCatalog;
+    private final ValidationUtil validationUtil;
+
+    @Value("${gym.billing.lead-days:7}")
+    private int leadDays;
+
+    @Value("${gym.billing.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${gym.billing.threads:0}")
+    private int threads; // 0 = one per core, capped so the connection pool is not exhausted
+
+    @Value("${gym.billing.max-threads:8}")
+    private int maxThreads;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile RenewalRunReport lastRun;
+
+    private record DueSubscription(UUID subId, UUID planId, LocalDate endDate) {
+    }
+
+    @Scheduled(cron = "${gym.billing.cron:0 30 1 * * *}")
+    public void billScheduled() {
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Renewal billing still running, skipping this trigger");
+            return;
+        }
+        try {
+            billRenewals(LocalDate.now());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public ResponseEntity<?> runNow(AuthenticatedUser user, LocalDate asOf) {
+        validationUtil.isStaffAdmin(user);
+
+        if (!running.compareAndSet(false, true))
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Renewal billing is already running");
+        try {
+            return ResponseEntity.ok(billRenewals(asOf != null ? asOf : LocalDate.now()));
+        } finally {
+            running.set(false);
+        }
+    }
+
+    public ResponseEntity<?> getLastRun(AuthenticatedUser user) {
+        validationUtil.isStaffAdmin(user);
+
+        RenewalRunReport report = lastRun;
+        if (report == null)
+            return ResponseEntity.ok().body(Map.of("message", "No renewal billing run yet"));
+        return ResponseEntity.ok(report);
+    }
+
+    RenewalRunReport billRenewals(LocalDate asOf) {
+        LocalDateTime startedAt = LocalDateTime.now();
+        LocalDate from = asOf;
+        LocalDate to = asOf.plusDays(leadDays);
+
+        // one snapshot of the prices for the whole run
+        Map<UUID, PlanSnapshot> plans = membershipPlanCatalog.findAll().stream()
+                .collect(Collectors.toMap(PlanSnapshot::planId, Function.identity()));
+
+        int workers = Math.min(threads > 0 ? threads : Runtime.getRuntime().availableProcessors(), maxThreads);
+        // more ranges than workers, so a dense range does not leave the other threads idle
+        List<UUID[]> ranges = memberIdRanges(workers * 4);
+
+        AtomicLong scanned = new AtomicLong();
+        AtomicLong created = new AtomicLong();
+        AtomicLong skipped = new AtomicLong();
+
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "renewal-billing-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>(ranges.size());
+            for (UUID[] range : ranges)
+                futures.add(executor.submit(() -> billRange(range[0], range[1], from, to, plans, scanned, created, skipped)));
+
+            for (Future<?> future : futures)
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during renewal billing", e);
+        } catch (ExecutionException e) {
+            // invoices already inserted stay; the next run picks up the rest
+            throw new IllegalStateException("Renewal billing failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        RenewalRunReport report = new RenewalRunReport(from, to, ranges.size(), scanned.get(), created.get(),
+                skipped.get(), startedAt, Duration.between(startedAt, LocalDateTime.now()).toMillis());
+        lastRun = report;
+        log.info("Renewal billing for {}..{}: {} due, {} invoices created, {} skipped in {} ms",
+                from, to, report.scanned(), report.created(), report.skipped(), report.durationMillis());
+        return report;
+    }
+
+    // drains one member id range page by page; every page is one batched insert
+    private void billRange(UUID lower, UUID upper, LocalDate from, LocalDate to, Map<UUID, PlanSnapshot> plans,
+                           AtomicLong scanned, AtomicLong created, AtomicLong skipped) {
+        UUID after = START;
+        while (true) {
+            List<DueSubscription> page = jdbcTemplate.query(SELECT_DUE,
+                    (rs, rowNum) -> new DueSubscription(rs.getObject(1, UUID.class), rs.getObject(2, UUID.class),
+                            rs.getDate(3).toLocalDate()),
+                    Date.valueOf(from), Date.valueOf(to), lower, upper, after, batchSize);
+            if (page.isEmpty())
+                return;
+
+            List<Object[]> rows = new ArrayList<>(page.size());
+            for (DueSubscription due : page) {
+                PlanSnapshot plan = plans.get(due.planId());
+                if (plan == null) {
+                    log.warn("Subscription {} references unknown plan {}, not billed", due.subId(), due.planId());
+                    continue;
+                }
+                // the renewal period starts the day the current one ends, and is due that day
+                rows.add(new Object[]{UUID.randomUUID(), due.subId(), plan.effectiveFee(),
+                        Date.valueOf(due.endDate()), Date.valueOf(due.endDate())});
+            }
+
+            int[] counts = jdbcTemplate.batchUpdate(INSERT_INVOICE, rows);
+            for (int count : counts) {
+                // rewritten batches report SUCCESS_NO_INFO per row; 0 means the conflict clause fired
+                if (count == 0)
+                    skipped.incrementAndGet();
+                else if (count > 0 || count == Statement.SUCCESS_NO_INFO)
+                    created.incrementAndGet();
+            }
+            scanned.addAndGet(page.size());
+
+            if (page.size() < batchSize)
+                return;
+            after = page.get(page.size() - 1).subId();
+        }
+    }
+
+    // splits the uuid space into contiguous inclusive ranges on the leading 32 bits, in Postgres uuid order
+    static List<UUID[]> memberIdRanges(int partitions) {
+        long space = 1L << 32;
+        List<UUID[]> ranges = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            long first = space * i / partitions;
+            long last = space * (i + 1) / partitions - 1;
+            ranges.add(new UUID[]{
+                    UUID.fromString(String.format("%08x-0000-0000-0000-000000000000", first)),
+                    UUID.fromString(String.format("%08x-ffff-ffff-ffff-ffffffffffff", last))});
+        }
+        return ranges;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.gym.service;
+
+import com.example.gym.dto.PlanSnapshot;
+import com.example.gym.dto.RevenueRow;
+import com.example.gym.model.RevenueRollupModel;
+import com.example.gym.repository.RevenueRollupRepository;
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.util.ValidationUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Revenue reporting from the daily rollups in revenue_rollup_model.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RevenueReportService {
+
+    private static final Set<String> GROUPINGS = Set.of("day", "month", "plan", "method");
+    private static final LocalDate EPOCH = LocalDate.of(1970, 1, 1);
+
+    private final RevenueRollupRepository revenueRollupRepository;
+    private final MembershipPlanCatalog membershipPlanCatalog;
+    private final ValidationUtil validationUtil;
+
+    // must be called inside the transaction that settles the payment
+    public void recordPayment(LocalDate paymentDate, UUID planId, String paymentMethod, BigDecimal amount) {
+        revenueRollupRepository.addPayment(paymentDate, planId, methodKey(paymentMethod), amount);
+    }
+
+    public ResponseEntity<?> getRevenue(AuthenticatedUser user, LocalDate from, LocalDate to, String groupBy) {
+        validationUtil.isStaffAdmin(user);
+
+        if (from == null || to == null || from.isAfter(to))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from and to are required, with from <= to");
+        if (!GROUPINGS.contains(groupBy))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "groupBy must be one of " + GROUPINGS);
+
+        Function<RevenueRollupModel, String> key = switch (groupBy) {
+            case "month" -> rollup -> YearMonth.from(rollup.getRevenueDate()).toString();
+            case "plan" -> planNames();
+            case "method" -> RevenueRollupModel::getPaymentMethod;
+            default -> rollup -> rollup.getRevenueDate().toString();
+        };
+
+        // at most one row per day, plan and method in the range
+        Map<String, BigDecimal> amounts = new TreeMap<>();
+        Map<String, Long> counts = new HashMap<>();
+        BigDecimal total = BigDecimal.ZERO;
+        long payments = 0;
+        for (RevenueRollupModel rollup : revenueRollupRepository.findByRevenueDateBetweenOrderByRevenueDate(from, to)) {
+            String bucket = key.apply(rollup);
+            amounts.merge(bucket, rollup.getTotalAmount(), BigDecimal::add);
+            counts.merge(bucket, rollup.getPaymentCount(), Long::sum);
+            total = total.add(rollup.getTotalAmount());
+            payments += rollup.getPaymentCount();
+        }
+
+        List<RevenueRow> rows = amounts.entrySet().stream()
+                .map(entry -> new RevenueRow(entry.getKey(), entry.getValue(), counts.get(entry.getKey())))
+                .toList();
+
+        return ResponseEntity.ok().body(Map.of(
+                "from", from,
+                "to", to,
+                "groupBy", groupBy,
+                "total", total,
+                "payments", payments,
+                "rows", rows));
+    }
+
+    // recomputes the rollups of a date range (everything when unbounded) from the payments themselves
+    @Transactional
+    public ResponseEntity<?> rebuild(AuthenticatedUser user, LocalDate from, LocalDate to) {
+        validationUtil.isStaffAdmin(user);
+
+        LocalDate start = from != null ? from : EPOCH;
+        LocalDate end = to != null ? to : LocalDate.now().plusDays(1);
+        if (start.isAfter(end))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must not be after to");
+
+        revenueRollupRepository.lockForRebuild();
+        int removed = revenueRollupRepository.deleteBetween(start, end);
+        int rebuilt = revenueRollupRepository.rebuildBetween(start, end);
+        log.info("Rebuilt revenue rollups {}..{}: {} rows replaced by {}", start, end, removed, rebuilt);
+
+        return ResponseEntity.ok().body(Map.of(
+                "from", start,
+                "to", end,
+                "rows", rebuilt));
+    }
+
+    // same normalization as RevenueRollupRepository.METHOD_KEY
+    static String methodKey(String paymentMethod) {
+        if (paymentMethod == null || paymentMethod.isBlank())
+            return "unknown";
+        return paymentMethod.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private Function<RevenueRollupModel, String> planNames() {
+        Map<UUID, String> names = membershipPlanCatalog.findAll().stream()
+                .collect(Collectors.toMap(PlanSnapshot::planId, PlanSnapshot::name));
+        return rollup -> names.getOrDefault(rollup.getPlanId(), rollup.getPlanId().toString());
+    }
+}
@@ -1,44 +1,148 @@
 package com.example.gym.service;
 
+import com.example.gym.dto.BulkStatusRequest;
+import com.example.gym.dto.BulkStatusResult;
+import com.example.gym.dto.CursorPage;
+import com.example.gym.dto.MemberSummary;
 import com.example.gym.model.MemberModel;
 import com.example.gym.repository.MemberRepository;
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.util.KeysetCursor;
 import com.example.gym.util.ValidationUtil;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.util.Map;
-import java.util.UUID;
+import java.util.*;
 
 @Service
 @RequiredArgsConstructor
 
 public class StaffService {
 
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final int MAX_BULK_SIZE = 5000;
+    private static final int BULK_CHUNK_SIZE = 1000; // keeps IN lists well inside driver limits
+    static final Set<String> MEMBER_STATUSES = Set.of("active", "expired", "banned", "pending");
+
     private final MemberRepository memberRepository;
     private final ValidationUtil validationUtil;
+    private final TokenRevocationService tokenRevocationService;
 
-    public ResponseEntity<?> getPendingRequest(String authHeader)
+    // one keyset page of members in signup order; memory stays bounded by the page size
+    public ResponseEntity<?> getPendingRequest(AuthenticatedUser user, String status, String cursor, int size, String sort)
     {
-        validationUtil.isStaffAdmin(authHeader);
-        return ResponseEntity.ok(memberRepository.findPendingMembers("pending"));
+        validationUtil.isStaffAdmin(user);
+
+        if (size < 1 || size > MAX_PAGE_SIZE)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "size must be between 1 and " + MAX_PAGE_SIZE);
+
+        boolean descending = sort.equalsIgnoreCase("desc");
+        if (!descending && !sort.equalsIgnoreCase("asc"))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "sort must be asc or desc");
+
+        // fetch one extra row to know whether another page exists
+        Limit limit = Limit.of(size + 1);
+        List<MemberSummary> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = descending
+                    ? memberRepository.findFirstByStatusDesc(status, limit)
+                    : memberRepository.findFirstByStatusAsc(status, limit);
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            rows = descending
+                    ? memberRepository.findNextByStatusDesc(status, after.timestamp(), after.id(), limit)
+                    : memberRepository.findNextByStatusAsc(status, after.timestamp(), after.id(), limit);
+        }
+
+        String nextCursor = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            MemberSummary last = rows.get(size - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getMemberId()).encode();
+        }
+
+        return ResponseEntity.ok(new CursorPage<>(rows, nextCursor));
+    }
+
+    // applies one status to many members with set-based updates in a single transaction
+    @Transactional
+    public ResponseEntity<?> alterMembersStatus(AuthenticatedUser user, BulkStatusRequest request)
+    {
+        validationUtil.isStaffAdmin(user);
+
+        String targetStatus = request.getTargetStatus();
+        if (targetStatus == null || !MEMBER_STATUSES.contains(targetStatus))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "targetStatus must be one of " + MEMBER_STATUSES);
+
+        List<UUID> memberIds;
+        if (request.getMemberIds() != null && !request.getMemberIds().isEmpty())
+            memberIds = request.getMemberIds().stream().distinct().toList();
+        else if (request.getFromStatus() != null)
+            memberIds = memberRepository.findIdsByStatus(request.getFromStatus(), Limit.of(MAX_BULK_SIZE));
+        else
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Provide memberIds or fromStatus");
+
+        if (memberIds.size() > MAX_BULK_SIZE)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_BULK_SIZE + " members per request");
+
+        List<BulkStatusResult> results = new ArrayList<>(memberIds.size());
+        List<String> bannedEmails = new ArrayList<>();
+        int updated = 0;
+
+        for (int from = 0; from < memberIds.size(); from += BULK_CHUNK_SIZE) {
+            List<UUID> chunk = memberIds.subList(from, Math.min(from + BULK_CHUNK_SIZE, memberIds.size()));
+
+            Map<UUID, MemberSummary> existing = new HashMap<>();
+            memberRepository.findSummariesByIds(chunk).forEach(member -> existing.put(member.getMemberId(), member));
+
+            updated += memberRepository.updateStatus(chunk, targetStatus);
+
+            for (UUID memberId : chunk) {
+                MemberSummary member = existing.get(memberId);
+                if (member == null) {
+                    results.add(new BulkStatusResult(memberId, "not_found", null));
+                } else if (member.getCurrentStatus().equals(targetStatus)) {
+                    results.add(new BulkStatusResult(memberId, "unchanged", member.getCurrentStatus()));
+                } else {
+                    results.add(new BulkStatusResult(memberId, "updated", member.getCurrentStatus()));
+                    if (targetStatus.equals("banned"))
+                        bannedEmails.add(member.getEmail());
+                }
+            }
+        }
+
+        tokenRevocationService.revokeAllFor(bannedEmails);
+
+        return ResponseEntity.ok(Map.of(
+                "targetStatus", targetStatus,
+                "updated", updated,
+                "results", results
+        ));
     }
 
-    public ResponseEntity<?> alterMemberCurrentStatus(@PathVariable UUID uuid, String authHeader, String currentStatus)
+    public ResponseEntity<?> alterMemberCurrentStatus(@PathVariable UUID uuid, AuthenticatedUser user, String currentStatus)
     {
-        validationUtil.isStaffAdmin(authHeader);
+        validationUtil.isStaffAdmin(user);
         MemberModel memberModel = memberRepository.findByMemberId(uuid)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Member not found"));
         String previousStatus = memberModel.getCurrentStatus();
+        // access tokens carry the member status, so the change reaches the member at their next refresh
         memberModel.setCurrentStatus(currentStatus);
         memberRepository.save(memberModel);
 
+        // a ban must not wait for the member's tokens to expire
+        if (currentStatus.equals("banned"))
+            tokenRevocationService.revokeAllFor(memberModel.getEmail());
+
         return ResponseEntity.ok(Map.of(
                 "message", "Status changed from " + previousStatus + " to " + currentStatus,
                 "member", Map.of(
@@ -0,0 +1,67 @@
+package com.example.gym.service;
+
+import com.example.gym.dto.GatewayResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+// In-process gateway for local runs and tests, with configurable latency, decline rate and error rate.
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "gym.payments.gateway", havingValue = "stub", matchIfMissing = true)
+public class StubPaymentGateway implements PaymentGateway {
+
+    @Value("${gym.payments.stub.latency-ms:200}")
+    private long latencyMs;
+
+    @Value("${gym.payments.stub.failure-rate:0.0}")
+    private double failureRate; // share of charges declined
+
+    @Value("${gym.payments.stub.error-rate:0.0}")
+    private double errorRate; // share of charges failing with a transient error
+
+    // approved charges by transactionRef, so a repeated charge returns the original approval
+    private final Map<String, String> approved = new ConcurrentHashMap<>();
+
+    @Override
+    public GatewayResult charge(String transactionRef, BigDecimal amount, String paymentMethod) {
+        sleep();
+
+        String previous = approved.get(transactionRef);
+        if (previous != null)
+            return GatewayResult.approved(previous);
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < errorRate)
+            throw new IllegalStateException("Gateway unavailable");
+        if (random.nextDouble() < failureRate)
+            return GatewayResult.declined("Card declined");
+
+        return GatewayResult.approved(approved.computeIfAbsent(transactionRef, ref -> "stub-" + UUID.randomUUID()));
+    }
+
+    @Override
+    public void refund(String gatewayRef, BigDecimal amount) {
+        sleep();
+        approved.values().remove(gatewayRef);
+        log.info("Stub gateway refunded {} for {}", amount, gatewayRef);
+    }
+
+    private void sleep() {
+        if (latencyMs <= 0)
+            return;
+        try {
+            Thread.sleep(latencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while calling the gateway", e);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.gym.service;
+
+import com.example.gym.model.JobCursorModel;
+import com.example.gym.repository.InvoiceRepository;
+import com.example.gym.repository.JobCursorRepository;
+import com.example.gym.repository.MemberRepository;
+import com.example.gym.repository.SubscriptionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+// Moves subscriptions past their end date to "expired", and their members with them, in bounded chunks. Their open
+// invoices are voided.
+// Progress is kept in a JobCursorModel row so an interrupted run resumes from its last chunk,
+// and that row is locked per chunk so several instances can run the sweeper without double-processing.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SubscriptionExpiryService {
+
+    static final String JOB_NAME = "subscription-expiry";
+    private static final UUID START = new UUID(0, 0);
+
+    private final SubscriptionRepository subscriptionRepository;
+    private final MemberRepository memberRepository;
+    private final InvoiceRepository invoiceRepository;
+    private final JobCursorRepository jobCursorRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${gym.expiry.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${gym.expiry.interval-ms:900000}")
+    private long intervalMs;
+
+    @Scheduled(fixedDelayString = "${gym.expiry.interval-ms:900000}", initialDelayString = "${gym.expiry.initial-delay-ms:60000}")
+    public void sweep() {
+        jobCursorRepository.createIfMissing(JOB_NAME);
+
+        while (Boolean.TRUE.equals(transactionTemplate.execute(tx -> processChunk(LocalDate.now())))) {
+            // keep going until the run is finished, by this or another instance
+        }
+    }
+
+    // one chunk under the job row lock; returns true while more work may remain
+    private boolean processChunk(LocalDate today) {
+        JobCursorModel job = jobCursorRepository.lockByJobName(JOB_NAME).orElseThrow();
+        LocalDateTime now = LocalDateTime.now();
+
+        // a finished (or never started) run means this chunk begins a new one; otherwise resume
+        if (job.getRunStartedAt() == null || job.getRunFinishedAt() != null) {
+            // another instance completed a run moments ago, nothing left for us
+            if (job.getRunFinishedAt() != null && job.getRunFinishedAt().isAfter(now.minusNanos(intervalMs * 500_000)))
+                return false;
+
+            job.setRunStartedAt(now);
+            job.setRunFinishedAt(null);
+            job.setCursorValue(null);
+            job.setRowsTouched(0L);
+        }
+
+        UUID after = job.getCursorValue() == null ? START : UUID.fromString(job.getCursorValue());
+        List<UUID> ids = subscriptionRepository.findLapsedIdsAfter(today, after, Limit.of(chunkSize));
+
+        if (ids.isEmpty()) {
+            job.setRunFinishedAt(now);
+            job.setDurationMillis(Duration.between(job.getRunStartedAt(), now).toMillis());
+            log.info("Subscription expiry run finished: {} rows touched in {} ms", job.getRowsTouched(), job.getDurationMillis());
+            return false;
+        }
+
+        int subscriptions = subscriptionRepository.expireSubscriptions(ids);
+        int members = memberRepository.expireMembersOfSubscriptions(ids);
+        // a stale renewal invoice paid after a re-apply would revive the old subscription next to the new one
+        int invoices = invoiceRepository.voidPendingOfSubscriptions(ids);
+
+        job.setCursorValue(ids.get(ids.size() - 1).toString());
+        job.setRowsTouched(job.getRowsTouched() + subscriptions + members + invoices);
+        return true;
+    }
+}
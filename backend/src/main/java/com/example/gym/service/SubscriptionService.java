@@ -1,9 +1,9 @@
 package com.example.gym.service;
 
-import com.example.gym.config.PaymentRequest;
+import com.example.gym.dto.PlanSnapshot;
 import com.example.gym.model.*;
 import com.example.gym.repository.*;
-import com.example.gym.security.JwtUtil;
+import com.example.gym.security.AuthenticatedUser;
 import com.example.gym.util.ValidationUtil;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -12,6 +12,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -23,58 +24,47 @@ public class SubscriptionService {
     private final ValidationUtil validationUtil;
     private final SubscriptionRepository subscriptionRepository;
     private final MembershipPlanRepository membershipPlanRepository;
+    private final MembershipPlanCatalog membershipPlanCatalog;
     private final MemberRepository memberRepository;
     private final InvoiceRepository invoiceRepository;
-    private final PaymentRepository paymentRepository;
 
-    private final JwtUtil jwtUtil;
+    public ResponseEntity<?> applyForSubscription(AuthenticatedUser user, String subscriptionName) {
+        // case-insensitive hash lookup in the in-memory catalog, no query
+        PlanSnapshot plan = membershipPlanCatalog.findByName(subscriptionName)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.FORBIDDEN, "Plan not found: " + subscriptionName));
 
-    public ResponseEntity<?> applyForSubscription(String authHeader, String subscriptionName) {
-        if (!membershipPlanRepository.existsByName(subscriptionName) &&
-                !membershipPlanRepository.existsByName(subscriptionName.toLowerCase()) &&
-                !membershipPlanRepository.existsByName(
-                        subscriptionName.substring(0, 1).toUpperCase() + subscriptionName.substring(1).toLowerCase())) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Plan not found: " + subscriptionName);
-        }
-
-        if (!validationUtil.findIfMemberExists(authHeader)) {
+        if (!validationUtil.findIfMemberExists(user)) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
-        String email = validationUtil.extractUserEmailFromAuthHeader(authHeader);
+        if (user.getMemberId() == null)
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Member not found.");
 
-        MemberModel member = memberRepository.findByEmail(email)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Member not found."));
+        SubscriptionModel current = latestSubscription(user);
 
-        if (member.getSubscriptions() != null && !member.getSubscriptions().getStatus().equals("canceled"))
+        if (current != null && !current.getStatus().equals("canceled") && !current.getStatus().equals("expired"))
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body("You already have an " + member.getSubscriptions().getStatus() + " subscription.");
+                    .body("You already have an " + current.getStatus() + " subscription.");
 
-        // Try exact, then capitalized, then lowercase
-        MembershipPlanModel plan = membershipPlanRepository.findByName(subscriptionName)
-                .or(() -> membershipPlanRepository.findByName(
-                        subscriptionName.substring(0, 1).toUpperCase() + subscriptionName.substring(1).toLowerCase()))
-                .or(() -> membershipPlanRepository.findByName(subscriptionName.toLowerCase()))
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Membership Plan Not Found"));
+        // the principal already carries the member id, so a reference is enough for the FK
+        MemberModel member = memberRepository.getReferenceById(user.getMemberId());
 
         SubscriptionModel subscription = SubscriptionModel.builder()
-                .plan(plan)
+                .plan(membershipPlanRepository.getReferenceById(plan.planId()))
                 .status("pending")
                 .member(member)
                 .startDate(LocalDate.now())
-                .endDate(LocalDate.now().plusDays(plan.getDurationDays()))
+                .endDate(LocalDate.now().plusDays(plan.durationDays()))
                 .build();
 
         InvoiceModel invoice = InvoiceModel.builder()
                 .subscription(subscription)
-                .amount(plan.getDiscountedFee())
+                .amount(plan.effectiveFee())
                 .dueDate(LocalDate.now().plusDays(7))
+                .billingPeriodStart(subscription.getStartDate())
                 .status("pending")
                 .build();
 
-        member.setSubscriptions(subscription);
-
-        memberRepository.save(member);
         subscriptionRepository.save(subscription);
         invoiceRepository.save(invoice);
 
@@ -85,51 +75,15 @@ public class SubscriptionService {
         );
     }
 
-    public ResponseEntity<?> paymentForSubscription(String authHeader, PaymentRequest paymentRequest) {
-        if (!validationUtil.findIfMemberExists(authHeader)) {
+    public ResponseEntity<?> seeSubsciptionDetail(AuthenticatedUser user) {
+        if (!validationUtil.findIfMemberExists(user)) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized");
         }
 
-        InvoiceModel invoice = invoiceRepository.findById(paymentRequest.getPaymentId())
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Invoice not found."));
-
-        if (paymentRequest.getAmountPaid().compareTo(invoice.getAmount()) < 0)
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Insufficient funds");
-
-        PaymentModel payment = PaymentModel.builder()
-                .invoice(invoice)
-                .paymentDate(LocalDate.now())
-                .amountPaid(paymentRequest.getAmountPaid())
-                .paymentMethod(paymentRequest.getPaymentMethod())
-                .transactionRef(paymentRequest.getTransactionRef())
-                .build();
-
-        // Update invoice status
-        invoice.setStatus("paid");
-        invoice.setPayments(payment);
-
-        // Update subscription status
-        SubscriptionModel subscription = invoice.getSubscription();
-        subscription.setStatus("active");
+        if (user.getMemberId() == null)
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
 
-        paymentRepository.save(payment);
-        invoiceRepository.save(invoice);
-        subscriptionRepository.save(subscription);
-
-        return ResponseEntity.ok().body(Map.of(
-                "message", "payment is in processing"));
-    }
-
-    public ResponseEntity<?> seeSubsciptionDetail(String authHeader) {
-        if (!validationUtil.findIfMemberExists(authHeader)) {
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized");
-        }
-
-        MemberModel memberModel = memberRepository
-                .findByEmail(validationUtil.extractUserEmailFromAuthHeader(authHeader))
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.FORBIDDEN));
-
-        SubscriptionModel subscriptionModel = memberModel.getSubscriptions();
+        SubscriptionModel subscriptionModel = latestSubscription(user);
 
         if (subscriptionModel == null)
             return ResponseEntity.ok().body(Map.of(
@@ -145,26 +99,39 @@ public class SubscriptionService {
 
     }
 
-    public ResponseEntity<?> getPendingInvoices(String authHeader) {
-        if (!validationUtil.findIfMemberExists(authHeader)) {
+    public ResponseEntity<?> getPendingInvoices(AuthenticatedUser user) {
+        if (!validationUtil.findIfMemberExists(user)) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Unauthorized");
         }
 
-        String email = validationUtil.extractUserEmailFromAuthHeader(authHeader);
-        MemberModel member = memberRepository.findByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Member not found"));
+        if (user.getMemberId() == null)
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Member not found");
 
-        List<InvoiceModel> invoices = invoiceRepository.findUnpaidInvoicesByMember(member.getMemberId());
+        List<InvoiceModel> invoices = invoiceRepository.findUnpaidInvoicesByMember(user.getMemberId());
 
         if (invoices.isEmpty()) {
             return ResponseEntity.ok().body(Map.of());
         }
 
-        InvoiceModel invoice = invoices.get(0);
-        return ResponseEntity.ok().body(Map.of(
-                "invoice_id", invoice.getInvoiceId(),
-                "status", invoice.getStatus(),
-                "plan", invoice.getSubscription().getPlan().getName(),
-                "amount", invoice.getAmount()));
+        // renewals bill one invoice per period; the oldest is due first and stays at the top level for existing
+        // clients, the full list is under "invoices"
+        Map<String, Object> body = pendingInvoice(invoices.get(0));
+        body.put("invoices", invoices.stream().map(SubscriptionService::pendingInvoice).toList());
+        return ResponseEntity.ok().body(body);
+    }
+
+    private SubscriptionModel latestSubscription(AuthenticatedUser user) {
+        List<SubscriptionModel> subscriptions = subscriptionRepository.findByMemberWithPlan(user.getMemberId());
+        return subscriptions.isEmpty() ? null : subscriptions.get(0);
+    }
+
+    private static Map<String, Object> pendingInvoice(InvoiceModel invoice) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("invoice_id", invoice.getInvoiceId());
+        body.put("status", invoice.getStatus());
+        body.put("plan", invoice.getSubscription().getPlan().getName());
+        body.put("amount", invoice.getAmount());
+        body.put("billing_period_start", invoice.getBillingPeriodStart());
+        return body;
     }
 }
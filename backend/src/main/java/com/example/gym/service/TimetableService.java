@@ -0,0 +1,222 @@
+package com.example.gym.service;
+
+import com.example.gym.dto.ClassScheduleRequest;
+import com.example.gym.dto.TimetableRequest;
+import com.example.gym.model.FacilityRoomModel;
+import com.example.gym.model.TrainerModel;
+import com.example.gym.repository.ClassScheduleRepository;
+import com.example.gym.repository.FacilityRoomRepository;
+import com.example.gym.repository.TrainerRepository;
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.util.ValidationUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.Semaphore;
+
+// Generates a week of classes from what the manager wants to run: class kinds with their length, expected
+// attendance, room type and preferred days and hours, plus when each trainer is available. Rooms and trainers come
+// from the database, and by default the classes already on the timetable stay where they are. The search itself is
+// TimetableSolver, spread over all cores for at most the time budget; the proposal is returned with its score and,
+// when asked and conflict-free, saved in one transaction through the class schedule service.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TimetableService {
+
+    private final FacilityRoomRepository facilityRoomRepository;
+    private final TrainerRepository trainerRepository;
+    private final ClassScheduleRepository classScheduleRepository;
+    private final ClassScheduleService classScheduleService;
+    private final ValidationUtil validationUtil;
+
+    @Value("${gym.classes.opening-time:06:00}")
+    private String openingTime;
+
+    @Value("${gym.classes.closing-time:22:00}")
+    private String closingTime;
+
+    @Value("${gym.timetable.slot-minutes:15}")
+    private int slotMinutes;
+
+    @Value("${gym.timetable.default-budget-ms:10000}")
+    private long defaultBudgetMs;
+
+    @Value("${gym.timetable.max-budget-ms:60000}")
+    private long maxBudgetMs;
+
+    // 0 uses every core
+    @Value("${gym.timetable.workers:0}")
+    private int workers;
+
+    // the solver's moves scale with the number of sessions; a week rarely holds more than a few hundred classes
+    @Value("${gym.timetable.max-sessions:500}")
+    private int maxSessions;
+
+    // a run already takes every core for its whole budget, so a second one is refused instead of queued
+    private final Semaphore running = new Semaphore(1);
+
+    // admin only; 200 with the proposal, 201 when it was applied, 409 when apply was asked but conflicts remain or
+    // another run is in progress
+    public ResponseEntity<?> generate(AuthenticatedUser user, TimetableRequest request) {
+        validationUtil.isStaffAdmin(user);
+        if (request.getClasses() == null || request.getClasses().isEmpty())
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "classes are required");
+        long budgetMs = request.getTimeBudgetMs() == null ? defaultBudgetMs : request.getTimeBudgetMs();
+        if (budgetMs < 1 || budgetMs > maxBudgetMs)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "timeBudgetMs must be between 1 and " + maxBudgetMs);
+        // ignoring the classes already on the timetable is only good for a preview: saving would clash with them
+        if (Boolean.FALSE.equals(request.getKeepExisting()) && Boolean.TRUE.equals(request.getApply()))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "apply requires keepExisting; remove the current classes first");
+        List<TimetableSolver.Session> sessions = sessions(request.getClasses());
+
+        if (!running.tryAcquire())
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A timetable is already being generated, try again when it finishes");
+        try {
+            return generate(request, sessions, budgetMs);
+        } finally {
+            running.release();
+        }
+    }
+
+    private ResponseEntity<?> generate(TimetableRequest request, List<TimetableSolver.Session> sessions, long budgetMs) {
+        List<TimetableSolver.Busy> busy = new ArrayList<>();
+        if (!Boolean.FALSE.equals(request.getKeepExisting()))
+            for (Object[] row : classScheduleRepository.findTimetable())
+                busy.add(new TimetableSolver.Busy((Long) row[1], (UUID) row[2], ClassScheduleService.parseDay((String) row[3]),
+                        (LocalTime) row[4], (LocalTime) row[5]));
+        busy.removeIf(taken -> taken.day() == null);
+
+        TimetableSolver solver;
+        try {
+            solver = new TimetableSolver(LocalTime.parse(openingTime), LocalTime.parse(closingTime), slotMinutes,
+                    rooms(), trainers(request.getAvailability()), sessions, busy);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        int threads = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        TimetableSolver.Result result = solver.solve(Duration.ofMillis(budgetMs), threads, System.nanoTime());
+        log.info("Timetable for {} classes: {} hard violations, quality {} after {} iterations in {} ms on {} workers",
+                sessions.size(), result.hardViolations(), result.quality(), result.iterations(), result.elapsedMs(), threads);
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("hard_violations", result.hardViolations());
+        body.put("soft_penalty", result.softPenalty());
+        body.put("quality", result.quality());
+        body.put("iterations", result.iterations());
+        body.put("workers", result.workers());
+        body.put("elapsed_ms", result.elapsedMs());
+        if (!Boolean.TRUE.equals(request.getApply())) {
+            body.put("classes", result.placements().stream().map(placement -> toBody(placement, null)).toList());
+            return ResponseEntity.ok(body);
+        }
+        if (result.hardViolations() > 0) {
+            body.put("classes", result.placements().stream().map(placement -> toBody(placement, null)).toList());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+        }
+
+        List<Long> ids = classScheduleService.createAll(result.placements().stream().map(this::toRequest).toList());
+        List<Map<String, Object>> classes = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++)
+            classes.add(toBody(result.placements().get(i), ids.get(i)));
+        body.put("classes", classes);
+        return ResponseEntity.status(HttpStatus.CREATED).body(body);
+    }
+
+    private List<TimetableSolver.Session> sessions(List<TimetableRequest.ClassDemand> demands) {
+        List<TimetableSolver.Session> sessions = new ArrayList<>();
+        for (TimetableRequest.ClassDemand demand : demands) {
+            if (demand.getClassName() == null || demand.getClassName().isBlank() || demand.getMinutes() == null)
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "className and minutes are required");
+            Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+            if (demand.getPreferredDays() != null)
+                for (String day : demand.getPreferredDays()) {
+                    DayOfWeek parsed = ClassScheduleService.parseDay(day);
+                    if (parsed == null)
+                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown day: " + day);
+                    days.add(parsed);
+                }
+            TimetableSolver.Window window = demand.getPreferredFrom() == null || demand.getPreferredTo() == null ? null
+                    : new TimetableSolver.Window(demand.getPreferredFrom(), demand.getPreferredTo());
+            int attendance = demand.getExpectedAttendance() == null ? 0 : demand.getExpectedAttendance();
+            TimetableSolver.Session session = new TimetableSolver.Session(demand.getClassName(), demand.getClassType(),
+                    demand.getRoomType(), demand.getMinutes(), attendance, days, window);
+            int count = demand.getSessions() == null ? 1 : demand.getSessions();
+            if (count < 1)
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "sessions must be at least 1");
+            if (count > maxSessions - sessions.size())
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + maxSessions + " sessions can be generated at once");
+            for (int i = 0; i < count; i++)
+                sessions.add(session);
+        }
+        return sessions;
+    }
+
+    private List<TimetableSolver.Room> rooms() {
+        List<TimetableSolver.Room> rooms = new ArrayList<>();
+        for (FacilityRoomModel room : facilityRoomRepository.findAll())
+            rooms.add(new TimetableSolver.Room(room.getRoomId(), room.getCapacity(), room.getRoomType()));
+        return rooms;
+    }
+
+    // hired trainers; specializations are a comma separated list
+    private List<TimetableSolver.Trainer> trainers(List<TimetableRequest.TrainerAvailability> availability) {
+        Map<UUID, Map<DayOfWeek, List<TimetableSolver.Window>>> windows = new HashMap<>();
+        if (availability != null)
+            for (TimetableRequest.TrainerAvailability entry : availability) {
+                DayOfWeek day = ClassScheduleService.parseDay(entry.getDayOfWeek());
+                if (entry.getTrainerId() == null || day == null || entry.getFrom() == null || entry.getTo() == null)
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "availability needs trainerId, dayOfWeek, from and to");
+                windows.computeIfAbsent(entry.getTrainerId(), id -> new EnumMap<>(DayOfWeek.class))
+                        .computeIfAbsent(day, d -> new ArrayList<>())
+                        .add(new TimetableSolver.Window(entry.getFrom(), entry.getTo()));
+            }
+
+        List<TimetableSolver.Trainer> trainers = new ArrayList<>();
+        for (TrainerModel trainer : trainerRepository.findAll()) {
+            if (!"hired".equals(trainer.getStatus()))
+                continue;
+            Set<String> skills = new HashSet<>();
+            if (trainer.getSpecialization() != null)
+                for (String skill : trainer.getSpecialization().split(","))
+                    if (!skill.isBlank())
+                        skills.add(skill.trim().toLowerCase(Locale.ROOT));
+            trainers.add(new TimetableSolver.Trainer(trainer.getTrainerId(), skills,
+                    windows.getOrDefault(trainer.getTrainerId(), Map.of())));
+        }
+        return trainers;
+    }
+
+    private ClassScheduleRequest toRequest(TimetableSolver.Placement placement) {
+        ClassScheduleRequest request = new ClassScheduleRequest();
+        request.setClassName(placement.session().className());
+        request.setRoomId(placement.roomId());
+        request.setTrainerId(placement.trainerId());
+        request.setDayOfWeek(placement.day().name());
+        request.setStartTime(placement.start());
+        request.setEndTime(placement.end());
+        return request;
+    }
+
+    private static Map<String, Object> toBody(TimetableSolver.Placement placement, Long scheduleId) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        if (scheduleId != null)
+            body.put("schedule_id", scheduleId);
+        body.put("class_name", placement.session().className());
+        body.put("day_of_week", placement.day().name());
+        body.put("start_time", placement.start());
+        body.put("end_time", placement.end());
+        body.put("room_id", placement.roomId());
+        body.put("trainer_id", placement.trainerId());
+        return body;
+    }
+}
@@ -0,0 +1,444 @@
+package com.example.gym.service;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Places a week of classes into rooms, trainers and times. The day is cut into fixed slots from opening to closing,
+// and every class only ever gets a room of the right type and size and a trainer with the right specialization, so
+// what is left to search is overlaps, trainer availability and preferences. Each worker builds a randomized greedy
+// timetable and improves it by late acceptance hill climbing: one class is moved or two swap times, the score is
+// updated by taking the class out of and back into per-slot usage counts, and the move is kept when the result is
+// no worse than now or than the score a fixed number of steps ago. Workers search independently from different seeds
+// on their own cores; the best timetable wins, and the search ends early once one of them is perfect.
+// Not thread-safe to build; solve() may be called from any thread.
+class TimetableSolver {
+
+    static final int HARD = 1000;     // per overlapping or unavailable slot
+    static final int OFF_DAY = 10;    // class outside its preferred days
+    static final int OFF_WINDOW = 5;  // class outside its preferred time window
+    static final int SAME_DAY = 3;    // each further class of the same name on one day
+
+    private static final int DAYS = 7;
+    private static final int HISTORY = 2_000;
+    private static final int CONSTRUCTION_SAMPLES = 300;
+
+    record Room(long roomId, Integer capacity, String type) {
+    }
+
+    // without availability windows a trainer can teach whenever the gym is open
+    record Trainer(UUID trainerId, Set<String> skills, Map<DayOfWeek, List<Window>> availability) {
+    }
+
+    record Window(LocalTime from, LocalTime to) {
+    }
+
+    // classType matches a trainer skill and roomType a room type; either may be null for "any"
+    record Session(String className, String classType, String roomType, int minutes, int attendance,
+                   Set<DayOfWeek> preferredDays, Window preferredWindow) {
+    }
+
+    // a class already on the timetable that generated ones have to work around
+    record Busy(Long roomId, UUID trainerId, DayOfWeek day, LocalTime start, LocalTime end) {
+    }
+
+    record Placement(Session session, DayOfWeek day, LocalTime start, LocalTime end, long roomId, UUID trainerId) {
+    }
+
+    // quality is 0-100: zero while any hard constraint is broken, otherwise the share of preference penalty avoided
+    record Result(List<Placement> placements, int hardViolations, int softPenalty, double quality,
+                  long iterations, int workers, long elapsedMs) {
+    }
+
+    private final LocalTime opening;
+    private final int slotMinutes;
+    private final int slots;
+    private final List<Room> rooms;
+    private final List<Trainer> trainers;
+    private final List<Session> sessions;
+
+    private final int[] length;           // per session, in slots
+    private final int[][] roomOptions;    // per session, the rooms it fits
+    private final int[][] trainerOptions; // per session, the trainers who can teach it
+    private final int[] nameOf;           // per session, its class name as an index
+    private final int[] preferredDays;    // per session, bit per weekday; 0 for any
+    private final int[] windowFrom;       // per session, first allowed start slot; -1 for any
+    private final int[] windowTo;         // per session, slot the class must end by
+    private final int names;
+    private final int[] roomBase;         // existing classes per (room, day, slot)
+    private final int[] trainerBase;      // existing classes per (trainer, day, slot)
+    private final boolean[] trainerAway;  // per (trainer, day, slot)
+
+    TimetableSolver(LocalTime opening, LocalTime closing, int slotMinutes,
+                    List<Room> rooms, List<Trainer> trainers, List<Session> sessions, List<Busy> busy) {
+        this.opening = opening;
+        this.slotMinutes = slotMinutes;
+        this.slots = (int) (Duration.between(opening, closing).toMinutes() / slotMinutes);
+        this.rooms = List.copyOf(rooms);
+        this.trainers = List.copyOf(trainers);
+        this.sessions = List.copyOf(sessions);
+        if (slots < 1)
+            throw new IllegalArgumentException("Opening hours are shorter than one slot");
+
+        int n = sessions.size();
+        length = new int[n];
+        roomOptions = new int[n][];
+        trainerOptions = new int[n][];
+        nameOf = new int[n];
+        preferredDays = new int[n];
+        windowFrom = new int[n];
+        windowTo = new int[n];
+        Map<String, Integer> nameIndex = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            Session session = sessions.get(i);
+            length[i] = (session.minutes() + slotMinutes - 1) / slotMinutes;
+            if (session.minutes() < 1 || length[i] > slots)
+                throw new IllegalArgumentException(session.className() + " does not fit into opening hours");
+            roomOptions[i] = roomsFor(session);
+            if (roomOptions[i].length == 0)
+                throw new IllegalArgumentException("No room of type " + session.roomType() + " holds "
+                        + session.attendance() + " for " + session.className());
+            trainerOptions[i] = trainersFor(session);
+            if (trainerOptions[i].length == 0)
+                throw new IllegalArgumentException("No trainer teaches " + session.classType() + " for " + session.className());
+            nameOf[i] = nameIndex.computeIfAbsent(session.className(), name -> nameIndex.size());
+            for (DayOfWeek day : session.preferredDays() == null ? Set.<DayOfWeek>of() : session.preferredDays())
+                preferredDays[i] |= 1 << day.ordinal();
+            windowFrom[i] = -1;
+            if (session.preferredWindow() != null) {
+                windowFrom[i] = Math.max(0, slotCeil(session.preferredWindow().from()));
+                windowTo[i] = Math.min(slots, slotFloor(session.preferredWindow().to()));
+            }
+        }
+        names = nameIndex.size();
+
+        roomBase = new int[rooms.size() * DAYS * slots];
+        trainerBase = new int[trainers.size() * DAYS * slots];
+        Map<Long, Integer> roomIndex = new HashMap<>();
+        for (int r = 0; r < rooms.size(); r++)
+            roomIndex.put(rooms.get(r).roomId(), r);
+        Map<UUID, Integer> trainerIndex = new HashMap<>();
+        for (int t = 0; t < trainers.size(); t++)
+            trainerIndex.put(trainers.get(t).trainerId(), t);
+        for (Busy taken : busy) {
+            int from = Math.max(0, slotFloor(taken.start()));
+            int to = Math.min(slots, slotCeil(taken.end()));
+            Integer r = taken.roomId() == null ? null : roomIndex.get(taken.roomId());
+            Integer t = taken.trainerId() == null ? null : trainerIndex.get(taken.trainerId());
+            for (int s = from; s < to; s++) {
+                if (r != null)
+                    roomBase[cell(r, taken.day().ordinal(), s)]++;
+                if (t != null)
+                    trainerBase[cell(t, taken.day().ordinal(), s)]++;
+            }
+        }
+
+        trainerAway = new boolean[trainers.size() * DAYS * slots];
+        for (int t = 0; t < trainers.size(); t++) {
+            Map<DayOfWeek, List<Window>> availability = trainers.get(t).availability();
+            if (availability == null || availability.isEmpty())
+                continue;
+            for (DayOfWeek day : DayOfWeek.values()) {
+                for (int s = 0; s < slots; s++) {
+                    LocalTime from = opening.plusMinutes((long) s * slotMinutes);
+                    LocalTime to = from.plusMinutes(slotMinutes);
+                    boolean free = availability.getOrDefault(day, List.of()).stream()
+                            .anyMatch(window -> !from.isBefore(window.from()) && !to.isAfter(window.to()));
+                    trainerAway[cell(t, day.ordinal(), s)] = !free;
+                }
+            }
+        }
+    }
+
+    Result solve(Duration budget, int workers, long seed) {
+        long started = System.nanoTime();
+        long deadline = started + budget.toNanos();
+        AtomicBoolean solved = new AtomicBoolean();
+
+        List<Search> searches = new ArrayList<>(workers);
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<?>> running = new ArrayList<>(workers);
+            for (int w = 0; w < workers; w++) {
+                Search search = new Search(new SplittableRandom(seed + w * 0x9E3779B97F4A7C15L));
+                searches.add(search);
+                running.add(executor.submit(() -> search.run(deadline, solved)));
+            }
+            for (Future<?> future : running)
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Timetable search interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Timetable search failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Search best = searches.stream().min(Comparator.comparingLong(Search::bestCost)).orElseThrow();
+        long iterations = searches.stream().mapToLong(search -> search.iterations).sum();
+        return best.result(iterations, workers, Duration.ofNanos(System.nanoTime() - started).toMillis());
+    }
+
+    private int[] roomsFor(Session session) {
+        List<Integer> fits = new ArrayList<>();
+        for (int r = 0; r < rooms.size(); r++) {
+            Room room = rooms.get(r);
+            if ((session.roomType() == null || session.roomType().equalsIgnoreCase(room.type()))
+                    && (room.capacity() == null || room.capacity() >= session.attendance()))
+                fits.add(r);
+        }
+        return fits.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private int[] trainersFor(Session session) {
+        List<Integer> fits = new ArrayList<>();
+        for (int t = 0; t < trainers.size(); t++)
+            if (session.classType() == null || trainers.get(t).skills().contains(session.classType().toLowerCase(Locale.ROOT)))
+                fits.add(t);
+        return fits.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private int slotFloor(LocalTime time) {
+        return (int) Math.floorDiv(Duration.between(opening, time).toMinutes(), slotMinutes);
+    }
+
+    private int slotCeil(LocalTime time) {
+        return (int) -Math.floorDiv(-Duration.between(opening, time).toMinutes(), slotMinutes);
+    }
+
+    private int cell(int owner, int day, int slot) {
+        return (owner * DAYS + day) * slots + slot;
+    }
+
+    // one worker's timetable and score; only touched by its own thread
+    private final class Search {
+
+        private final SplittableRandom random;
+        private final int n = sessions.size();
+        private final int[] day = new int[n];
+        private final int[] start = new int[n];
+        private final int[] room = new int[n];
+        private final int[] trainer = new int[n];
+        private final int[] roomUse = roomBase.clone();
+        private final int[] trainerUse = trainerBase.clone();
+        private final int[] nameDay = new int[names * DAYS];
+        private int hard;
+        private int soft;
+
+        private int[] bestDay;
+        private int[] bestStart;
+        private int[] bestRoom;
+        private int[] bestTrainer;
+        private int bestHard;
+        private int bestSoft;
+        private long iterations;
+
+        Search(SplittableRandom random) {
+            this.random = random;
+        }
+
+        long bestCost() {
+            return (long) bestHard * HARD + bestSoft;
+        }
+
+        void run(long deadline, AtomicBoolean solved) {
+            construct();
+            remember();
+
+            long[] history = new long[HISTORY];
+            Arrays.fill(history, cost());
+            while (bestCost() > 0 && !solved.get()) {
+                if ((iterations & 255) == 0 && System.nanoTime() >= deadline)
+                    break;
+                long before = cost();
+                int slot = (int) (iterations % HISTORY);
+                if (random.nextInt(5) == 0)
+                    trySwap(random.nextInt(n), random.nextInt(n), before, history[slot]);
+                else
+                    tryMove(random.nextInt(n), before, history[slot]);
+                history[slot] = cost();
+                if (cost() < bestCost())
+                    remember();
+                iterations++;
+            }
+            if (bestCost() == 0)
+                solved.set(true);
+        }
+
+        // most constrained classes first, each into the cheapest of a sample of random placements
+        private void construct() {
+            Integer[] order = new Integer[n];
+            for (int i = 0; i < n; i++)
+                order[i] = i;
+            Arrays.sort(order, Comparator.<Integer>comparingLong(i -> (long) roomOptions[i].length * trainerOptions[i].length)
+                    .thenComparingInt(i -> -length[i]));
+
+            for (int i : order) {
+                long bestDelta = Long.MAX_VALUE;
+                int bd = 0, bs = 0, br = 0, bt = 0;
+                for (int sample = 0; sample < CONSTRUCTION_SAMPLES; sample++) {
+                    randomTime(i, sample % 2 == 0);
+                    room[i] = pick(roomOptions[i]);
+                    trainer[i] = pick(trainerOptions[i]);
+                    long before = cost();
+                    place(i, 1);
+                    long delta = cost() - before;
+                    place(i, -1);
+                    if (delta < bestDelta) {
+                        bestDelta = delta;
+                        bd = day[i];
+                        bs = start[i];
+                        br = room[i];
+                        bt = trainer[i];
+                    }
+                }
+                day[i] = bd;
+                start[i] = bs;
+                room[i] = br;
+                trainer[i] = bt;
+                place(i, 1);
+            }
+        }
+
+        private void tryMove(int i, long before, long threshold) {
+            int d = day[i], s = start[i], r = room[i], t = trainer[i];
+            place(i, -1);
+            switch (random.nextInt(4)) {
+                case 0 -> randomTime(i, random.nextBoolean());
+                case 1 -> room[i] = pick(roomOptions[i]);
+                case 2 -> trainer[i] = pick(trainerOptions[i]);
+                default -> start[i] = Math.max(0, Math.min(slots - length[i], s + random.nextInt(5) - 2));
+            }
+            place(i, 1);
+            if (!accept(before, threshold)) {
+                place(i, -1);
+                day[i] = d;
+                start[i] = s;
+                room[i] = r;
+                trainer[i] = t;
+                place(i, 1);
+            }
+        }
+
+        // two classes trade day and start time, when each fits into the other's
+        private void trySwap(int i, int j, long before, long threshold) {
+            if (i == j || start[i] + length[j] > slots || start[j] + length[i] > slots)
+                return;
+            place(i, -1);
+            place(j, -1);
+            exchangeTimes(i, j);
+            place(i, 1);
+            place(j, 1);
+            if (!accept(before, threshold)) {
+                place(i, -1);
+                place(j, -1);
+                exchangeTimes(i, j);
+                place(i, 1);
+                place(j, 1);
+            }
+        }
+
+        private void exchangeTimes(int i, int j) {
+            int d = day[i], s = start[i];
+            day[i] = day[j];
+            start[i] = start[j];
+            day[j] = d;
+            start[j] = s;
+        }
+
+        private boolean accept(long before, long threshold) {
+            long after = cost();
+            return after <= before || after <= threshold;
+        }
+
+        // half the time inside the class's preferred days and window, when it has them
+        private void randomTime(int i, boolean preferred) {
+            int dayMask = preferredDays[i];
+            if (preferred && dayMask != 0) {
+                int pick = random.nextInt(Integer.bitCount(dayMask));
+                int d = Integer.numberOfTrailingZeros(dayMask);
+                for (int k = 0; k < pick; k++)
+                    d = Integer.numberOfTrailingZeros(dayMask & ~((2 << d) - 1));
+                day[i] = d;
+            } else {
+                day[i] = random.nextInt(DAYS);
+            }
+            int latest = slots - length[i];
+            if (preferred && windowFrom[i] >= 0 && windowTo[i] - length[i] >= windowFrom[i])
+                start[i] = windowFrom[i] + random.nextInt(windowTo[i] - length[i] - windowFrom[i] + 1);
+            else
+                start[i] = random.nextInt(latest + 1);
+        }
+
+        private int pick(int[] options) {
+            return options[random.nextInt(options.length)];
+        }
+
+        // sign 1 puts session i into the usage counts at its current placement, -1 takes it out; the score follows
+        private void place(int i, int sign) {
+            int d = day[i];
+            int roomCell = cell(room[i], d, start[i]);
+            int trainerCell = cell(trainer[i], d, start[i]);
+            for (int k = 0; k < length[i]; k++) {
+                if (sign > 0) {
+                    if (roomUse[roomCell + k]++ > 0)
+                        hard++;
+                    if (trainerUse[trainerCell + k]++ > 0)
+                        hard++;
+                } else {
+                    if (--roomUse[roomCell + k] > 0)
+                        hard--;
+                    if (--trainerUse[trainerCell + k] > 0)
+                        hard--;
+                }
+                if (trainerAway[trainerCell + k])
+                    hard += sign;
+            }
+
+            int sameName = nameOf[i] * DAYS + d;
+            if (sign > 0) {
+                if (nameDay[sameName]++ > 0)
+                    soft += SAME_DAY;
+            } else if (--nameDay[sameName] > 0) {
+                soft -= SAME_DAY;
+            }
+            if (preferredDays[i] != 0 && (preferredDays[i] & 1 << d) == 0)
+                soft += sign * OFF_DAY;
+            if (windowFrom[i] >= 0 && (start[i] < windowFrom[i] || start[i] + length[i] > windowTo[i]))
+                soft += sign * OFF_WINDOW;
+        }
+
+        private long cost() {
+            return (long) hard * HARD + soft;
+        }
+
+        private void remember() {
+            bestDay = day.clone();
+            bestStart = start.clone();
+            bestRoom = room.clone();
+            bestTrainer = trainer.clone();
+            bestHard = hard;
+            bestSoft = soft;
+        }
+
+        Result result(long iterations, int workers, long elapsedMs) {
+            List<Placement> placements = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                LocalTime from = opening.plusMinutes((long) bestStart[i] * slotMinutes);
+                placements.add(new Placement(sessions.get(i), DayOfWeek.of(bestDay[i] + 1), from,
+                        from.plusMinutes(sessions.get(i).minutes()), rooms.get(bestRoom[i]).roomId(),
+                        trainers.get(bestTrainer[i]).trainerId()));
+            }
+            double worst = (double) n * (OFF_DAY + OFF_WINDOW + SAME_DAY);
+            double quality = n == 0 ? 100 : bestHard > 0 ? 0 : Math.round(1000 * (1 - bestSoft / worst)) / 10.0;
+            return new Result(placements, bestHard, bestSoft, quality, iterations, workers, elapsedMs);
+        }
+    }
+}
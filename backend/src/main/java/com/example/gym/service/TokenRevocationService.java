@@ -0,0 +1,189 @@
+package com.example.gym.service;
+
+import com.example.gym.model.RevokedTokenModel;
+import com.example.gym.repository.RevokedTokenRepository;
+import com.example.gym.util.BloomFilter;
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+// Denylist of revoked JWTs. An in-memory Bloom filter sits in front of the revoked-token table,
+// so a token that was never revoked is cleared without a database round trip. Revocations made on other
+// instances reach the filter through a short incremental sync of recently written rows.
+@Service
+@RequiredArgsConstructor
+public class TokenRevocationService {
+
+    private static final String TOKEN_KEY = "jti:";
+    private static final String SUBJECT_KEY = "sub:";
+    private static final int MIN_CAPACITY = 1024;
+    // a row is stamped before its transaction commits, so each sync looks back this far for late commits
+    private static final Duration COMMIT_GRACE = Duration.ofMinutes(1);
+
+    private final RevokedTokenRepository revokedTokenRepository;
+
+    @Value("${jwt.expiration}")
+    private long jwtExpiration;
+
+    @Value("${security.revocation.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    private final Object lock = new Object();
+
+    private volatile BloomFilter filter;
+    private volatile LocalDateTime syncedFrom; // rows revoked before this are in the filter
+
+    @PostConstruct
+    void init() {
+        rebuild();
+    }
+
+    public boolean isRevoked(Claims claims) {
+        BloomFilter current = filter;
+        String tokenId = claims.getId();
+
+        boolean tokenHit = tokenId != null && current.mightContain(TOKEN_KEY + tokenId);
+        boolean subjectHit = current.mightContain(SUBJECT_KEY + claims.getSubject());
+
+        // common case: never revoked, answered from memory
+        if (!tokenHit && !subjectHit)
+            return false;
+
+        if (tokenHit && revokedTokenRepository.existsByTokenId(tokenId))
+            return true;
+
+        if (subjectHit) {
+            LocalDateTime revokedAt = revokedTokenRepository.findLatestSubjectRevocation(claims.getSubject());
+            Date issuedAt = claims.getIssuedAt();
+            // iat has whole seconds and so does revokedAt: a token issued in the second of the revocation, e.g. by
+            // the refresh that follows it, stays valid
+            return revokedAt != null && (issuedAt == null || toLocalDateTime(issuedAt).isBefore(revokedAt));
+        }
+
+        return false;
+    }
+
+    // revokes a single token, e.g. on logout
+    public void revokeToken(Claims claims) {
+        if (claims.getId() == null)
+            return;
+
+        revokedTokenRepository.save(RevokedTokenModel.builder()
+                .tokenId(claims.getId())
+                .subject(claims.getSubject())
+                .revokedAt(LocalDateTime.now())
+                .expiresAt(toLocalDateTime(claims.getExpiration()))
+                .build());
+
+        remember(List.of(TOKEN_KEY + claims.getId()));
+    }
+
+    // revokes every token issued to the user up to now, e.g. when a member is banned
+    public void revokeAllFor(String subject) {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+        revokedTokenRepository.save(RevokedTokenModel.builder()
+                .subject(subject)
+                .revokedAt(now)
+                .expiresAt(now.plusNanos(jwtExpiration * 1_000_000))
+                .build());
+
+        remember(List.of(SUBJECT_KEY + subject));
+    }
+
+    // batch form of revokeAllFor for bulk status changes
+    public void revokeAllFor(Collection<String> subjects) {
+        if (subjects.isEmpty())
+            return;
+
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        LocalDateTime expiresAt = now.plusNanos(jwtExpiration * 1_000_000);
+
+        revokedTokenRepository.saveAll(subjects.stream()
+                .map(subject -> RevokedTokenModel.builder()
+                        .subject(subject)
+                        .revokedAt(now)
+                        .expiresAt(expiresAt)
+                        .build())
+                .toList());
+
+        remember(subjects.stream().map(subject -> SUBJECT_KEY + subject).toList());
+    }
+
+    // entries whose tokens have all expired are no longer needed; drop them and shrink the filter
+    @Scheduled(fixedDelayString = "${security.revocation.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        revokedTokenRepository.deleteExpired(LocalDateTime.now());
+        rebuild();
+    }
+
+    // picks up what other instances revoked since the last sync or rebuild
+    @Scheduled(fixedDelayString = "${security.revocation.sync-interval-ms:5000}", initialDelayString = "${security.revocation.sync-interval-ms:5000}")
+    public void sync() {
+        LocalDateTime started = LocalDateTime.now();
+        List<String> keys = new ArrayList<>();
+        for (Object[] row : revokedTokenRepository.findRevokedSince(syncedFrom.minus(COMMIT_GRACE)))
+            keys.add(row[0] == null ? SUBJECT_KEY + row[1] : TOKEN_KEY + row[0]);
+        addToFilter(keys);
+        syncedFrom = started;
+    }
+
+    // builds a filter sized for the live denylist and swaps it in atomically
+    void rebuild() {
+        synchronized (lock) {
+            LocalDateTime now = LocalDateTime.now();
+            syncedFrom = now;
+            List<String> tokenIds = revokedTokenRepository.findActiveTokenIds(now);
+            List<String> subjects = revokedTokenRepository.findActiveRevokedSubjects(now);
+
+            BloomFilter rebuilt = BloomFilter.create(
+                    Math.max(MIN_CAPACITY, 2 * (tokenIds.size() + subjects.size())), falsePositiveRate);
+            tokenIds.forEach(id -> rebuilt.put(TOKEN_KEY + id));
+            subjects.forEach(subject -> rebuilt.put(SUBJECT_KEY + subject));
+
+            filter = rebuilt;
+        }
+    }
+
+    // keys are added only once their rows are committed, and rebuilds hold the same lock,
+    // so a concurrent rebuild can never drop a committed revocation from the filter
+    private void remember(List<String> keys) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addToFilter(keys);
+                }
+            });
+        } else {
+            addToFilter(keys);
+        }
+    }
+
+    private void addToFilter(List<String> keys) {
+        synchronized (lock) {
+            // keys already present are skipped, so repeated syncs do not count towards saturation
+            keys.stream().filter(key -> !filter.mightContain(key)).forEach(filter::put);
+            if (filter.isSaturated())
+                rebuild();
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(Date date) {
+        return LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault());
+    }
+}
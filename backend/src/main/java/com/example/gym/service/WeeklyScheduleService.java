@@ -0,0 +1,149 @@
+package com.example.gym.service;
+
+import com.example.gym.dto.ClassOccurrenceView;
+import com.example.gym.repository.ClassOccurrenceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// The class schedule of the coming seven days as members see it, with remaining seats, kept as one serialized document.
+// Booking and occurrence changes on this instance mark their occurrences dirty; a short tick reloads just those rows in
+// one query and re-serializes, so a burst of bookings costs one rebuild. Timetable changes, a new day and a periodic
+// full reload (for other instances' changes) rebuild the whole window.
+// The ETag is a hash of the document bytes, so it is strong and the same on every instance: a poll whose ETag still
+// matches is answered with 304 straight from memory, without touching the database.
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WeeklyScheduleService {
+
+    private static final int WINDOW_DAYS = 7;
+
+    private static final Comparator<ClassOccurrenceView> WEEK_ORDER = Comparator
+            .comparing(ClassOccurrenceView::date)
+            .thenComparing(ClassOccurrenceView::startTime)
+            .thenComparing(ClassOccurrenceView::occurrenceId);
+
+    private final ClassOccurrenceRepository classOccurrenceRepository;
+    private final JsonMapper jsonMapper;
+
+    private record Document(byte[] body, String etag, long version) {
+    }
+
+    private record Body(LocalDate from, LocalDate to, List<ClassOccurrenceView> classes) {
+    }
+
+    private final Map<Long, ClassOccurrenceView> classes = new HashMap<>(); // guarded by this
+    private final Set<Long> dirty = ConcurrentHashMap.newKeySet();
+    private volatile boolean stale;
+    private volatile Document document;
+    private LocalDate from; // guarded by this
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${gym.classes.schedule-resync-ms:30000}", initialDelayString = "${gym.classes.schedule-resync-ms:30000}")
+    public synchronized void rebuild() {
+        stale = false;
+        dirty.clear();
+        classes.clear();
+        from = LocalDate.now();
+        classOccurrenceRepository.findViews(from, to()).forEach(entry -> classes.put(entry.occurrenceId(), entry));
+        publish();
+    }
+
+    // called after an occurrence or its bookings changed; picked up by the next refresh
+    public void invalidate(Long occurrenceId) {
+        dirty.add(occurrenceId);
+    }
+
+    // called when occurrences may have been added or removed wholesale; the next refresh rebuilds the window
+    public void invalidateAll() {
+        stale = true;
+    }
+
+    @Scheduled(fixedDelayString = "${gym.classes.schedule-refresh-ms:1000}")
+    public synchronized void refresh() {
+        if (stale || !LocalDate.now().equals(from)) {
+            rebuild();
+            return;
+        }
+        if (dirty.isEmpty())
+            return;
+        List<Long> changed = new ArrayList<>(dirty);
+        dirty.removeAll(changed);
+
+        changed.forEach(classes::remove); // deleted occurrences stay removed, moved ones may have left the window
+        classOccurrenceRepository.findViews(changed).stream()
+                .filter(entry -> !entry.date().isBefore(from) && !entry.date().isAfter(to()))
+                .forEach(entry -> classes.put(entry.occurrenceId(), entry));
+        publish();
+    }
+
+    // members and staff; 304 when ifNoneMatch still names the current document
+    public ResponseEntity<?> getSchedule(String ifNoneMatch) {
+        Document current = document;
+        if (current == null) {
+            rebuild(); // asked for before the startup build finished
+            current = document;
+        }
+
+        if (matches(ifNoneMatch, current.etag()))
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(current.etag()).cacheControl(CacheControl.noCache()).build();
+        return ResponseEntity.ok().eTag(current.etag()).cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON).body(current.body());
+    }
+
+    // serializes the current rows; the version and ETag only move when the bytes do
+    private void publish() {
+        List<ClassOccurrenceView> sorted = new ArrayList<>(classes.values());
+        sorted.sort(WEEK_ORDER);
+        byte[] body = jsonMapper.writeValueAsBytes(new Body(from, to(), sorted));
+        String etag = "\"" + hash(body) + "\"";
+
+        Document previous = document;
+        if (previous != null && previous.etag().equals(etag))
+            return;
+        document = new Document(body, etag, previous == null ? 1 : previous.version() + 1);
+        log.debug("Weekly schedule version {}: {} classes, {} bytes", document.version(), sorted.size(), body.length);
+    }
+
+    // If-None-Match uses weak comparison: a W/ prefix is ignored, and * matches any document
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank())
+            return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/"))
+                tag = tag.substring(2);
+            if (tag.equals("*") || tag.equals(etag))
+                return true;
+        }
+        return false;
+    }
+
+    private static String hash(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private LocalDate to() {
+        return from.plusDays(WINDOW_DAYS - 1);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.gym.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// fixed-size, thread-safe Bloom filter over string keys; false positives possible, false negatives never
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long numBits;
+    private final int numHashes;
+    private final int capacity;
+    private final AtomicInteger insertions = new AtomicInteger();
+
+    private BloomFilter(long numBits, int numHashes, int capacity) {
+        this.bits = new AtomicLongArray((int) ((numBits + 63) / 64));
+        this.numBits = numBits;
+        this.numHashes = numHashes;
+        this.capacity = capacity;
+    }
+
+    // sizes the filter for the expected number of keys at the given false-positive rate
+    public static BloomFilter create(int expectedInsertions, double falsePositiveRate) {
+        int capacity = Math.max(expectedInsertions, 1);
+        long numBits = Math.max(64, (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
+        int numHashes = Math.max(1, (int) Math.round((double) numBits / capacity * Math.log(2)));
+        return new BloomFilter(numBits, numHashes, capacity);
+    }
+
+    public void put(String key) {
+        long hash = hash64(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numHashes; i++) {
+            long index = Integer.toUnsignedLong(h1 + i * h2) % numBits;
+            setBit(index);
+        }
+        insertions.incrementAndGet();
+    }
+
+    public boolean mightContain(String key) {
+        long hash = hash64(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numHashes; i++) {
+            long index = Integer.toUnsignedLong(h1 + i * h2) % numBits;
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    // true once more keys were added than the filter was sized for, i.e. the false-positive rate is degrading
+    public boolean isSaturated() {
+        return insertions.get() > capacity;
+    }
+
+    public int getInsertions() {
+        return insertions.get();
+    }
+
+    private void setBit(long index) {
+        int word = (int) (index >>> 6);
+        long mask = 1L << index;
+        long current;
+        do {
+            current = bits.get(word);
+            if ((current & mask) != 0)
+                return;
+        } while (!bits.compareAndSet(word, current, current | mask));
+    }
+
+    // FNV-1a followed by the MurmurHash3 finalizer for good bit dispersion
+    private static long hash64(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
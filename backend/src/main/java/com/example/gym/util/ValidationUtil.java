@@ -1,12 +1,9 @@
 package com.example.gym.util;
 
-import com.example.gym.model.MemberModel;
-import com.example.gym.model.StaffModel;
-import com.example.gym.model.UserCredentialModel;
-import com.example.gym.repository.MemberRepository;
-import com.example.gym.repository.StaffRepository;
-import com.example.gym.repository.UserCredentialRepository;
+import com.example.gym.security.AuthenticatedUser;
 import com.example.gym.security.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
@@ -16,60 +13,41 @@ import org.springframework.web.server.ResponseStatusException;
 @Component
 public class ValidationUtil {
 
-    private final StaffRepository staffRepository;
-    private final UserCredentialRepository userCredentialRepository;
-    private final MemberRepository memberRepository;
     private final JwtUtil jwtUtil;
 
-    //extract user email from authentication header
-    public String extractUserEmailFromAuthHeader(String authHeader) {
+    //verify the bearer token in the authentication header and return its claims
+    public Claims extractClaimsFromAuthHeader(String authHeader) {
         String token = authHeader.substring(7);
 
-        if(!jwtUtil.validateToken(token))
+        try {
+            return jwtUtil.verifyToken(token);
+        } catch (JwtException | IllegalArgumentException e) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid token");
-
-        return jwtUtil.extractUserEmail(token);
-    }
-
-    public Boolean validateUserAuthorization(String authHeader, String role) {
-
-        String email = extractUserEmailFromAuthHeader(authHeader);
-        return userCredentialRepository.existsByUserEmailAndUserType(email, role);
-    }
-
-    //validates if the token is of staff member with a desired role
-    public Boolean validateStaffAuthorization(String authHeader, String role) {
-
-        String email = extractUserEmailFromAuthHeader(authHeader);
-        return staffRepository.existsByEmailAndRole(email, role);
+        }
     }
 
-
-    //validates if the token is of a registered member
-    public Boolean validateMemberAuthorization(String authHeader, String status)
-    {
-        String email = extractUserEmailFromAuthHeader(authHeader);
-
-        return memberRepository.existsByEmailAndCurrentStatus(email, status);
-
+    //extract user email from authentication header
+    public String extractUserEmailFromAuthHeader(String authHeader) {
+        return extractClaimsFromAuthHeader(authHeader).getSubject();
     }
 
     //checks if the member is currently active
-    public Boolean isMemberActive(String authHeader)
+    public Boolean isMemberActive(AuthenticatedUser user)
     {
-        return validateMemberAuthorization(authHeader, "active");
+        return user.hasMemberStatus("active");
     }
 
     //checks if the staff is an admin
-    public void isStaffAdmin(String authHeader)
+    public void isStaffAdmin(AuthenticatedUser user)
     {
-        validateStaffAuthorization(authHeader, "admin");
+        if (!user.isAdmin())
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Admin access required");
     }
 
-    //checks if the staff is an admin
-    public Boolean findIfMemberExists(String authHeader)
+    //checks if the user is registered as a member
+    public Boolean findIfMemberExists(AuthenticatedUser user)
     {
-        return validateUserAuthorization(authHeader, "member");
+        return user.isMember();
     }
 
 }
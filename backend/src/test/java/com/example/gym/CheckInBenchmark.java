@@ -0,0 +1,99 @@
+package com.example.gym;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Fires a burst of check-ins and check-outs from many concurrent clients at a running backend and reports events/s.
+// Run it once against gym.checkin.write-behind=true and once against =false (one insert per request) to compare.
+// Run with: ./mvnw test-compile exec:java -Dexec.classpathScope=test
+//           -Dexec.mainClass=com.example.gym.CheckInBenchmark
+//           -Dexec.args="http://localhost:8082 admin@example.com admin 20000 64"
+public class CheckInBenchmark {
+
+    private static final ObjectMapper JSON = JsonMapper.builder().build();
+    private static final HttpClient HTTP = HttpClient.newHttpClient();
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8082";
+        String adminEmail = args.length > 1 ? args[1] : "admin@example.com";
+        String adminPassword = args.length > 2 ? args[2] : "admin";
+        int events = args.length > 3 ? Integer.parseInt(args[3]) : 20_000;
+        int clients = args.length > 4 ? Integer.parseInt(args[4]) : 64;
+
+        String token = send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        "{\"email\":\"" + adminEmail + "\",\"password\":\"" + adminPassword + "\"}")), null)
+                .get("token").asString();
+
+        List<String> members = new ArrayList<>();
+        for (JsonNode item : send(HttpRequest.newBuilder(
+                URI.create(baseUrl + "/api/admin/pending-request?status=active&size=200")).GET(), token).get("items"))
+            members.add(item.get("memberId").asString());
+        if (members.isEmpty())
+            throw new IllegalStateException("Needs at least one active member");
+
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        AtomicLong throttled = new AtomicLong();
+        List<Future<?>> futures = new ArrayList<>(events);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < events; i++) {
+            // alternate in and out per member so visits open and close
+            String member = members.get(i % members.size());
+            String path = (i / members.size()) % 2 == 0 ? "/api/attendance/check-in" : "/api/attendance/check-out";
+            futures.add(executor.submit(() -> {
+                HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path + "?memberId=" + member))
+                        .header("Authorization", "Bearer " + token)
+                        .POST(HttpRequest.BodyPublishers.noBody())
+                        .build();
+                while (true) {
+                    HttpResponse<String> response = HTTP.send(request, HttpResponse.BodyHandlers.ofString());
+                    if (response.statusCode() != 503) {
+                        if (response.statusCode() >= 400)
+                            throw new IllegalStateException(response.statusCode() + " " + response.body());
+                        return null;
+                    }
+                    throttled.incrementAndGet();
+                    Thread.sleep(10);
+                }
+            }));
+        }
+        for (Future<?> future : futures)
+            future.get();
+        long acknowledged = System.nanoTime() - start;
+
+        // write-behind acknowledges before writing, so also wait until the flusher has caught up
+        JsonNode stats;
+        do {
+            Thread.sleep(20);
+            stats = send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/attendance/ingest-stats")).GET(), token);
+        } while (stats.get("buffered").asInt() > 0);
+        long persisted = System.nanoTime() - start;
+        executor.shutdown();
+
+        System.out.printf("mode %s, %d events from %d clients, %d throttled retries%n",
+                stats.get("mode").asString(), events, clients, throttled.get());
+        System.out.printf("acknowledged: %8.3f s -> %10.1f events/s%n", acknowledged / 1e9, events / (acknowledged / 1e9));
+        System.out.printf("persisted:    %8.3f s -> %10.1f events/s%n", persisted / 1e9, events / (persisted / 1e9));
+    }
+
+    private static JsonNode send(HttpRequest.Builder request, String token) throws Exception {
+        if (token != null)
+            request.header("Authorization", "Bearer " + token);
+        HttpResponse<String> response = HTTP.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 400)
+            throw new IllegalStateException(response.statusCode() + " " + response.body());
+        return JSON.readTree(response.body());
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.gym;
+
+import com.example.gym.model.*;
+import com.example.gym.repository.*;
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.service.ClassBookingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// thousands of members race for the seats of one class session; exactly capacity bookings may succeed
+@SpringBootTest
+public class ClassBookingConcurrencyTest {
+
+    private static final int THREADS = 64;
+    private static final int MEMBERS = 2000;
+    private static final int CAPACITY = 25;
+
+    @Autowired
+    private ClassBookingService classBookingService;
+    @Autowired
+    private ClassBookingRepository classBookingRepository;
+    @Autowired
+    private ClassScheduleRepository classScheduleRepository;
+    @Autowired
+    private ClassOccurrenceRepository classOccurrenceRepository;
+    @Autowired
+    private FacilityRoomRepository facilityRoomRepository;
+    @Autowired
+    private StaffRepository staffRepository;
+    @Autowired
+    private TrainerRepository trainerRepository;
+    @Autowired
+    private MemberRepository memberRepository;
+
+    private Long scheduleId;
+    private Long occurrenceId;
+    private List<AuthenticatedUser> members;
+
+    @BeforeEach
+    void setup() {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        StaffModel staff = staffRepository.save(StaffModel.builder()
+                .firstName("Coach").lastName(run).email("coach-" + run + "@example.com").role("trainer").build());
+        TrainerModel trainer = trainerRepository.save(TrainerModel.builder().staff(staff).status("hired").build());
+        FacilityRoomModel room = facilityRoomRepository.save(FacilityRoomModel.builder()
+                .name("studio-" + run).capacity(CAPACITY).roomType("studio").build());
+        ClassScheduleModel schedule = classScheduleRepository.save(ClassScheduleModel.builder()
+                .trainer(trainer).room(room).className("Spin " + run).dayOfWeek(LocalDate.now().getDayOfWeek().name())
+                .startTime(LocalTime.of(18, 0)).endTime(LocalTime.of(19, 0)).build());
+        scheduleId = schedule.getScheduleId();
+        occurrenceId = classOccurrenceRepository.save(ClassOccurrenceModel.builder()
+                .classSchedule(schedule).scheduledDate(LocalDate.now()).occurrenceDate(LocalDate.now())
+                .startTime(schedule.getStartTime()).endTime(schedule.getEndTime()).room(room).build()).getOccurrenceId();
+
+        List<MemberModel> saved = new ArrayList<>(MEMBERS);
+        for (int i = 0; i < MEMBERS; i++)
+            saved.add(MemberModel.builder()
+                    .firstName("Rider").lastName(run + i).email("rider-" + run + "-" + i + "@example.com")
+                    .phone("rider-" + run + "-" + i).dob(LocalDate.of(1990, 1, 1)).currentStatus("active").build());
+        members = memberRepository.saveAll(saved).stream()
+                .map(member -> AuthenticatedUser.builder().email(member.getEmail()).userType("member")
+                        .memberId(member.getMemberId()).memberStatus("active").build())
+                .toList();
+    }
+
+    @Test
+    void simultaneousBookings_neverExceedCapacity() throws Exception {
+        List<Object> outcomes = hammer(members);
+
+        assertEquals(CAPACITY, outcomes.stream().filter(outcome -> outcome instanceof Long).count());
+        assertEquals(MEMBERS - CAPACITY, outcomes.stream().filter(Integer.valueOf(409)::equals).count());
+        assertEquals(CAPACITY, classBookingRepository.countByOccurrenceOccurrenceIdAndStatus(occurrenceId, "confirmed"));
+        assertEquals(CAPACITY, seatsTaken());
+    }
+
+    @Test
+    void cancellationFreesExactlyOneSeat() throws Exception {
+        List<Object> outcomes = hammer(members);
+        Long bookingId = (Long) outcomes.stream().filter(outcome -> outcome instanceof Long).findFirst().orElseThrow();
+        AuthenticatedUser holder = members.get(outcomes.indexOf(bookingId));
+
+        classBookingService.cancel(holder, bookingId);
+        assertEquals(CAPACITY - 1, seatsTaken());
+
+        // everyone still without a seat races for the one that came free
+        List<AuthenticatedUser> rejected = new ArrayList<>();
+        for (int i = 0; i < outcomes.size(); i++)
+            if (!(outcomes.get(i) instanceof Long))
+                rejected.add(members.get(i));
+        assertEquals(1, hammer(rejected).stream().filter(outcome -> outcome instanceof Long).count());
+
+        assertEquals(CAPACITY, classBookingRepository.countByOccurrenceOccurrenceIdAndStatus(occurrenceId, "confirmed"));
+        assertEquals(CAPACITY, seatsTaken());
+    }
+
+    @Test
+    void repeatedBookingBySameMember_holdsOneSeat() throws Exception {
+        List<Object> outcomes = hammer(Collections.nCopies(200, members.get(0)));
+
+        assertEquals(1, outcomes.stream().filter(outcome -> outcome instanceof Long).count());
+        assertEquals(1, seatsTaken());
+    }
+
+    @Test
+    void freedAndAddedSeats_goToWaitlistInOrder() throws Exception {
+        List<Object> outcomes = hammer(members.subList(0, CAPACITY));
+        assertTrue(outcomes.stream().allMatch(outcome -> outcome instanceof Long));
+
+        List<AuthenticatedUser> waiting = members.subList(CAPACITY, CAPACITY + 3);
+        for (int i = 0; i < waiting.size(); i++) {
+            ResponseEntity<?> response = classBookingService.book(waiting.get(i), occurrenceId, null, true);
+            assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+            assertEquals(i + 1, ((Map<?, ?>) response.getBody()).get("position"));
+        }
+
+        // two cancellations promote the first two in the queue; the third moves up to the head
+        classBookingService.cancel(members.get(0), (Long) outcomes.get(0));
+        classBookingService.cancel(members.get(1), (Long) outcomes.get(1));
+        assertEquals("confirmed", waitlistStatus(waiting.get(0)).get("status"));
+        assertEquals("confirmed", waitlistStatus(waiting.get(1)).get("status"));
+        assertEquals(1, waitlistStatus(waiting.get(2)).get("position"));
+        assertEquals(CAPACITY, seatsTaken());
+
+        AuthenticatedUser admin = AuthenticatedUser.builder().email("admin@example.com").userType("staff").staffRole("admin").build();
+        classBookingService.changeCapacity(admin, scheduleId, CAPACITY + 1);
+        assertEquals("confirmed", waitlistStatus(waiting.get(2)).get("status"));
+        assertEquals(CAPACITY + 1, classBookingRepository.countByOccurrenceOccurrenceIdAndStatus(occurrenceId, "confirmed"));
+        assertEquals(CAPACITY + 1, seatsTaken());
+    }
+
+    private int seatsTaken() {
+        return classOccurrenceRepository.findById(occurrenceId).orElseThrow().getSeatsTaken();
+    }
+
+    private Map<?, ?> waitlistStatus(AuthenticatedUser member) {
+        return (Map<?, ?>) classBookingService.getWaitlistPosition(member, occurrenceId, null).getBody();
+    }
+
+    // per caller, in order: the booking id of a 201, or the status code of a rejection
+    private List<Object> hammer(List<AuthenticatedUser> callers) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger unexpected = new AtomicInteger();
+        try {
+            List<Future<Object>> futures = new ArrayList<>(callers.size());
+            for (AuthenticatedUser caller : callers) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        ResponseEntity<?> response = classBookingService.book(caller, occurrenceId, null, false);
+                        if (response.getStatusCode() != HttpStatus.CREATED)
+                            unexpected.incrementAndGet();
+                        return ((Map<?, ?>) response.getBody()).get("booking_id");
+                    } catch (ResponseStatusException e) {
+                        if (e.getStatusCode() != HttpStatus.CONFLICT)
+                            unexpected.incrementAndGet();
+                        return e.getStatusCode().value();
+                    }
+                }));
+            }
+            start.countDown();
+
+            List<Object> outcomes = new ArrayList<>(callers.size());
+            for (Future<Object> future : futures)
+                outcomes.add(future.get(120, TimeUnit.SECONDS));
+            assertEquals(0, unexpected.get());
+            return outcomes;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.gym;
+
+import com.example.gym.dto.ClassScheduleRequest;
+import com.example.gym.dto.OccurrenceMoveRequest;
+import com.example.gym.model.*;
+import com.example.gym.repository.*;
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.service.ClassOccurrenceService;
+import com.example.gym.service.ClassScheduleService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// a session moved out of its weekly slot still blocks its new room and trainer for classes added afterwards, and a
+// reopened day's sessions follow timetable changes made while it was closed
+@SpringBootTest
+public class ClassOccurrenceConflictTest {
+
+    private static final AuthenticatedUser ADMIN = AuthenticatedUser.builder()
+            .email("admin@example.com").userType("staff").staffRole("admin").build();
+
+    @Autowired
+    private ClassScheduleService classScheduleService;
+    @Autowired
+    private ClassOccurrenceService classOccurrenceService;
+    @Autowired
+    private ClassOccurrenceRepository classOccurrenceRepository;
+    @Autowired
+    private FacilityRoomRepository facilityRoomRepository;
+    @Autowired
+    private StaffRepository staffRepository;
+    @Autowired
+    private TrainerRepository trainerRepository;
+
+    private Long roomA;
+    private Long roomB;
+    private UUID trainerA;
+    private UUID trainerB;
+    private LocalDate movedTo;
+    private Long classA;
+
+    @BeforeEach
+    void setup() {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        roomA = room("studio-a-" + run);
+        roomB = room("studio-b-" + run);
+        trainerA = trainer("a" + run);
+        trainerB = trainer("b" + run);
+
+        // class A runs tomorrow's weekday; tomorrow's session moves two days on, to 09:00 in room A
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+        classA = create(trainerA, roomA, tomorrow, LocalTime.of(18, 0), LocalTime.of(19, 0));
+        Long occurrenceId = classOccurrenceRepository.findByClassScheduleScheduleIdAndScheduledDate(classA, tomorrow)
+                .orElseThrow().getOccurrenceId();
+        movedTo = tomorrow.plusDays(2);
+        OccurrenceMoveRequest move = new OccurrenceMoveRequest();
+        move.setDate(movedTo);
+        move.setStartTime(LocalTime.of(9, 0));
+        classOccurrenceService.move(ADMIN, occurrenceId, move);
+    }
+
+    @Test
+    void newClassOverlappingMovedSession_sameRoom_is409() {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> create(trainerB, roomA, movedTo, LocalTime.of(9, 30), LocalTime.of(10, 30)));
+        assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+        assertTrue(e.getReason().startsWith("Room"), e.getReason());
+    }
+
+    @Test
+    void newClassOverlappingMovedSession_sameTrainer_is409() {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> create(trainerA, roomB, movedTo, LocalTime.of(9, 0), LocalTime.of(10, 0)));
+        assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+        assertTrue(e.getReason().startsWith("Trainer"), e.getReason());
+    }
+
+    @Test
+    void newClassAfterMovedSession_isCreated() {
+        Long scheduleId = create(trainerB, roomA, movedTo, LocalTime.of(10, 0), LocalTime.of(11, 0));
+        assertTrue(classOccurrenceRepository.findByClassScheduleScheduleIdAndScheduledDate(scheduleId, movedTo).isPresent());
+    }
+
+    @Test
+    void reopenedDay_sessionFollowsClassMovedWhileClosed() {
+        LocalDate closed = LocalDate.now().plusDays(8);
+        classOccurrenceService.closeDay(ADMIN, closed, "Maintenance");
+        classScheduleService.update(ADMIN, classA, request(trainerA, roomB, closed, LocalTime.of(10, 0), LocalTime.of(11, 0)));
+
+        Map<?, ?> body = (Map<?, ?>) classOccurrenceService.reopenDay(ADMIN, closed).getBody();
+        assertEquals(1, body.get("reopened_classes"));
+        ClassOccurrenceModel session = classOccurrenceRepository.findByClassScheduleScheduleIdAndScheduledDate(classA, closed).orElseThrow();
+        assertEquals("scheduled", session.getStatus());
+        assertEquals(LocalTime.of(10, 0), session.getStartTime());
+        assertEquals(roomB, session.getRoom().getRoomId());
+    }
+
+    @Test
+    void reopenedDay_dropsSessionOfClassMovedToAnotherWeekday() {
+        LocalDate closed = LocalDate.now().plusDays(8);
+        classOccurrenceService.closeDay(ADMIN, closed, "Maintenance");
+        classScheduleService.update(ADMIN, classA, request(trainerA, roomA, closed.plusDays(1), LocalTime.of(18, 0), LocalTime.of(19, 0)));
+
+        Map<?, ?> body = (Map<?, ?>) classOccurrenceService.reopenDay(ADMIN, closed).getBody();
+        assertEquals(1, body.get("dropped_classes"));
+        assertTrue(classOccurrenceRepository.findByClassScheduleScheduleIdAndScheduledDate(classA, closed).isEmpty());
+    }
+
+    private Long create(UUID trainerId, Long roomId, LocalDate day, LocalTime start, LocalTime end) {
+        return (Long) ((Map<?, ?>) classScheduleService.create(ADMIN, request(trainerId, roomId, day, start, end)).getBody())
+                .get("schedule_id");
+    }
+
+    private static ClassScheduleRequest request(UUID trainerId, Long roomId, LocalDate day, LocalTime start, LocalTime end) {
+        ClassScheduleRequest request = new ClassScheduleRequest();
+        request.setTrainerId(trainerId);
+        request.setRoomId(roomId);
+        request.setClassName("Spin");
+        request.setDayOfWeek(day.getDayOfWeek().name());
+        request.setStartTime(start);
+        request.setEndTime(end);
+        return request;
+    }
+
+    private Long room(String name) {
+        return facilityRoomRepository.save(FacilityRoomModel.builder()
+                .name(name).capacity(20).roomType("studio").build()).getRoomId();
+    }
+
+    private UUID trainer(String run) {
+        StaffModel staff = staffRepository.save(StaffModel.builder()
+                .firstName("Coach").lastName(run).email("coach-" + run + "@example.com").role("trainer").build());
+        return trainerRepository.save(TrainerModel.builder().staff(staff).status("hired").build()).getTrainerId();
+    }
+}
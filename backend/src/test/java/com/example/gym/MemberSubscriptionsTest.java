@@ -0,0 +1,74 @@
+package com.example.gym;
+
+import com.example.gym.model.MemberModel;
+import com.example.gym.model.MembershipPlanModel;
+import com.example.gym.model.SubscriptionModel;
+import com.example.gym.repository.MemberRepository;
+import com.example.gym.repository.MembershipPlanRepository;
+import com.example.gym.repository.SubscriptionRepository;
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.service.AuthService;
+import com.example.gym.service.StaffService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// a member who re-applied after expiry has two subscription rows; loading the member must still work
+@SpringBootTest
+public class MemberSubscriptionsTest {
+
+    @Autowired
+    private MemberRepository memberRepository;
+    @Autowired
+    private MembershipPlanRepository membershipPlanRepository;
+    @Autowired
+    private SubscriptionRepository subscriptionRepository;
+    @Autowired
+    private AuthService authService;
+    @Autowired
+    private StaffService staffService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private MemberModel member;
+
+    @BeforeEach
+    void setup() {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        member = memberRepository.save(MemberModel.builder()
+                .firstName("Again").lastName(run).email("again-" + run + "@example.com").phone("again-" + run)
+                .dob(LocalDate.of(1990, 1, 1)).currentStatus("expired").build());
+        MembershipPlanModel plan = membershipPlanRepository.save(MembershipPlanModel.builder()
+                .name("again-" + run).durationDays(30).baseFee(new BigDecimal("40.00")).build());
+        subscriptionRepository.save(SubscriptionModel.builder()
+                .member(member).plan(plan).status("expired")
+                .startDate(LocalDate.now().minusDays(60)).endDate(LocalDate.now().minusDays(30)).build());
+        subscriptionRepository.save(SubscriptionModel.builder()
+                .member(member).plan(plan).status("pending")
+                .startDate(LocalDate.now()).endDate(LocalDate.now().plusDays(30)).build());
+    }
+
+    @Test
+    void memberWithExpiredAndNewSubscription_loads() {
+        int subscriptions = transactionTemplate.execute(tx ->
+                memberRepository.findById(member.getMemberId()).orElseThrow().getSubscriptions().size());
+        assertEquals(2, subscriptions);
+
+        AuthenticatedUser self = AuthenticatedUser.builder().email(member.getEmail()).userType("member")
+                .memberId(member.getMemberId()).memberStatus("expired").build();
+        assertEquals(HttpStatus.OK, authService.getMemberDetails(self).getStatusCode());
+
+        AuthenticatedUser admin = AuthenticatedUser.builder().email("admin@example.com").userType("staff").staffRole("admin").build();
+        assertEquals(HttpStatus.OK, staffService.alterMemberCurrentStatus(member.getMemberId(), admin, "active").getStatusCode());
+        assertEquals("active", memberRepository.findById(member.getMemberId()).orElseThrow().getCurrentStatus());
+    }
+}
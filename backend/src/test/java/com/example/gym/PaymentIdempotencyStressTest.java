@@ -0,0 +1,173 @@
+package com.example.gym;
+
+import com.example.gym.config.PaymentRequest;
+import com.example.gym.model.InvoiceModel;
+import com.example.gym.model.MemberModel;
+import com.example.gym.model.MembershipPlanModel;
+import com.example.gym.model.PaymentAttemptModel;
+import com.example.gym.model.SubscriptionModel;
+import com.example.gym.repository.*;
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.service.PaymentProcessingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// hammers a single invoice from many threads; exactly one payment may ever settle it
+@SpringBootTest(properties = "gym.payments.stub.latency-ms=5")
+public class PaymentIdempotencyStressTest {
+
+    private static final int THREADS = 32;
+    private static final int REQUESTS = 400;
+
+    @Autowired
+    private PaymentProcessingService paymentProcessingService;
+    @Autowired
+    private PaymentAttemptRepository paymentAttemptRepository;
+    @Autowired
+    private MemberRepository memberRepository;
+    @Autowired
+    private MembershipPlanRepository membershipPlanRepository;
+    @Autowired
+    private SubscriptionRepository subscriptionRepository;
+    @Autowired
+    private InvoiceRepository invoiceRepository;
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    private AuthenticatedUser user;
+    private UUID memberId;
+    private UUID invoiceId;
+
+    @BeforeEach
+    void setup() {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        MemberModel member = memberRepository.save(MemberModel.builder()
+                .firstName("Stress").lastName(run).email("stress-" + run + "@example.com").phone("stress-" + run)
+                .dob(LocalDate.of(1990, 1, 1)).currentStatus("active").build());
+        memberId = member.getMemberId();
+        MembershipPlanModel plan = membershipPlanRepository.save(MembershipPlanModel.builder()
+                .name("stress-" + run).durationDays(30).baseFee(new BigDecimal("40.00")).build());
+        SubscriptionModel subscription = subscriptionRepository.save(SubscriptionModel.builder()
+                .member(member).plan(plan).status("pending")
+                .startDate(LocalDate.now()).endDate(LocalDate.now().plusDays(30)).build());
+        invoiceId = invoiceRepository.save(InvoiceModel.builder()
+                .subscription(subscription).amount(new BigDecimal("40.00")).dueDate(LocalDate.now().plusDays(7))
+                .billingPeriodStart(subscription.getStartDate()).status("pending").build()).getInvoiceId();
+
+        user = AuthenticatedUser.builder().email(member.getEmail()).userType("member")
+                .memberId(member.getMemberId()).memberStatus("active").build();
+    }
+
+    @Test
+    void sameTransactionRef_tracksOneAttemptAndSettlesOnce() throws Exception {
+        List<Object> outcomes = hammer(i -> "txn-retry");
+
+        assertEquals(1, outcomes.stream().distinct().count());
+        awaitFinalStatuses();
+
+        List<PaymentAttemptModel> attempts = paymentAttemptRepository.findByInvoiceId(invoiceId);
+        assertEquals(1, attempts.size());
+        assertEquals("settled", attempts.get(0).getStatus());
+        assertEquals(1, paymentsForInvoice());
+    }
+
+    @Test
+    void distinctTransactionRefs_exactlyOneSettles() throws Exception {
+        List<Object> outcomes = hammer(i -> "txn-" + i);
+
+        // once the invoice is paid, later submissions are refused up front
+        assertTrue(outcomes.stream().allMatch(outcome -> outcome instanceof UUID || Integer.valueOf(409).equals(outcome)));
+        awaitFinalStatuses();
+
+        List<PaymentAttemptModel> attempts = paymentAttemptRepository.findByInvoiceId(invoiceId);
+        assertEquals(1, attempts.stream().filter(attempt -> attempt.getStatus().equals("settled")).count());
+        assertTrue(attempts.stream().allMatch(attempt -> Set.of("settled", "rejected").contains(attempt.getStatus())));
+        assertEquals(1, paymentsForInvoice());
+        assertEquals("paid", invoiceRepository.findById(invoiceId).orElseThrow().getStatus());
+    }
+
+    @Test
+    void settlement_reactivatesExpiredMember() throws Exception {
+        MemberModel member = memberRepository.findById(memberId).orElseThrow();
+        member.setCurrentStatus("expired");
+        memberRepository.save(member);
+
+        hammer(i -> "txn-renew");
+        awaitFinalStatuses();
+
+        assertEquals("active", memberRepository.findById(memberId).orElseThrow().getCurrentStatus());
+    }
+
+    private long paymentsForInvoice() {
+        return paymentRepository.findAll().stream()
+                .filter(payment -> payment.getInvoice().getInvoiceId().equals(invoiceId)).count();
+    }
+
+    private void awaitFinalStatuses() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (paymentAttemptRepository.findByInvoiceId(invoiceId).stream()
+                .anyMatch(attempt -> Set.of("queued", "processing").contains(attempt.getStatus()))) {
+            if (System.currentTimeMillis() > deadline)
+                fail("Payment attempts did not settle in time");
+            Thread.sleep(50);
+        }
+    }
+
+    // each outcome is the tracking id of a 202 response, or the status code of a rejection
+    private List<Object> hammer(IntFunction<String> transactionRef) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger unexpected = new AtomicInteger();
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                PaymentRequest request = new PaymentRequest();
+                request.setPaymentId(invoiceId);
+                request.setAmountPaid(new BigDecimal("40.00"));
+                request.setPaymentMethod("card");
+                request.setTransactionRef(transactionRef.apply(i));
+
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        ResponseEntity<?> response = paymentProcessingService.enqueuePayment(user, request);
+                        if (response.getStatusCode() != HttpStatus.ACCEPTED)
+                            unexpected.incrementAndGet();
+                        return ((Map<?, ?>) response.getBody()).get("tracking_id");
+                    } catch (ResponseStatusException e) {
+                        if (e.getStatusCode() != HttpStatus.CONFLICT)
+                            unexpected.incrementAndGet();
+                        return e.getStatusCode().value();
+                    }
+                }));
+            }
+            start.countDown();
+
+            List<Object> outcomes = new ArrayList<>();
+            for (Future<Object> future : futures)
+                outcomes.add(future.get(60, TimeUnit.SECONDS));
+            assertEquals(0, unexpected.get());
+            return outcomes;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.gym;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Compares the per-member grant endpoint with the bulk status endpoint against a running backend.
+// Run with: ./mvnw test-compile exec:java -Dexec.classpathScope=test
+//           -Dexec.mainClass=com.example.gym.StatusTransitionBenchmark
+//           -Dexec.args="http://localhost:8082 admin@example.com admin 1000"
+public class StatusTransitionBenchmark {
+
+    private static final ObjectMapper JSON = JsonMapper.builder().build();
+    private static final HttpClient HTTP = HttpClient.newHttpClient();
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:8082";
+        String adminEmail = args.length > 1 ? args[1] : "admin@example.com";
+        String adminPassword = args.length > 2 ? args[2] : "admin";
+        int members = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+
+        String token = post(baseUrl + "/api/auth/login", null,
+                "{\"email\":\"" + adminEmail + "\",\"password\":\"" + adminPassword + "\"}").get("token").asString();
+
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        for (int i = 0; i < members; i++) {
+            post(baseUrl + "/api/auth/register/member", null, """
+                    {"firstName":"Bench","lastName":"%d","email":"bench-%s-%d@example.com","password":"secret",
+                     "phone":"%s-%d","emergencyContact":"e-%s-%d","dob":"1990-01-01"}
+                    """.formatted(i, run, i, run, i, run, i));
+        }
+
+        List<String> ids = pendingIds(baseUrl, token, "bench-" + run + "-");
+        List<String> single = ids.subList(0, ids.size() / 2);
+        List<String> bulk = ids.subList(ids.size() / 2, ids.size());
+
+        long start = System.nanoTime();
+        for (String id : single)
+            post(baseUrl + "/api/admin/pending-request/grant/" + id, token, "");
+        report("per-member", single.size(), System.nanoTime() - start);
+
+        start = System.nanoTime();
+        post(baseUrl + "/api/admin/members/status", token,
+                "{\"targetStatus\":\"active\",\"memberIds\":" + JSON.writeValueAsString(bulk) + "}");
+        report("bulk", bulk.size(), System.nanoTime() - start);
+    }
+
+    private static List<String> pendingIds(String baseUrl, String token, String emailPrefix) throws Exception {
+        List<String> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            String url = baseUrl + "/api/admin/pending-request?size=200" + (cursor == null ? "" : "&cursor=" + cursor);
+            JsonNode page = get(url, token);
+            for (JsonNode item : page.get("items"))
+                if (item.get("email").asString().startsWith(emailPrefix))
+                    ids.add(item.get("memberId").asString());
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asString();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private static void report(String path, int count, long nanos) {
+        double seconds = nanos / 1e9;
+        System.out.printf("%-10s %6d members in %8.3f s -> %10.1f members/s%n", path, count, seconds, count / seconds);
+    }
+
+    private static JsonNode post(String url, String token, String body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body));
+        return send(request, token);
+    }
+
+    private static JsonNode get(String url, String token) throws Exception {
+        return send(HttpRequest.newBuilder(URI.create(url)).GET(), token);
+    }
+
+    private static JsonNode send(HttpRequest.Builder request, String token) throws Exception {
+        if (token != null)
+            request.header("Authorization", "Bearer " + token);
+        HttpResponse<String> response = HTTP.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 400)
+            throw new IllegalStateException(response.statusCode() + " " + response.body());
+        return response.body().isEmpty() ? JSON.nullNode() : JSON.readTree(response.body());
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.gym.security;
+
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.Arrays;
+
+// Picks the highest BCrypt cost whose median hash time stays under a target latency on this host.
+// Run with: ./mvnw test-compile exec:java -Dexec.classpathScope=test
+//           -Dexec.mainClass=com.example.gym.security.BCryptCostBenchmark -Dexec.args="250"
+// and put the suggested value into security.bcrypt.cost.
+public class BCryptCostBenchmark {
+
+    private static final int MIN_COST = 4;
+    private static final int MAX_COST = 16;
+    private static final int SAMPLES = 5;
+
+    public static void main(String[] args) {
+        long targetMillis = args.length > 0 ? Long.parseLong(args[0]) : 250;
+
+        // warm up the JIT so the first measured cost is not penalised
+        for (int i = 0; i < 20; i++)
+            BCrypt.hashpw("warmup", BCrypt.gensalt(MIN_COST));
+
+        int chosen = MIN_COST;
+        for (int cost = MIN_COST; cost <= MAX_COST; cost++) {
+            long median = medianMillis(cost);
+            System.out.printf("cost %2d -> %5d ms%n", cost, median);
+
+            if (median > targetMillis)
+                break;
+            chosen = cost;
+
+            // each step doubles the work, so stop once the next one would clearly overshoot
+            if (median * 2 > targetMillis * 3)
+                break;
+        }
+
+        System.out.printf("Suggested security.bcrypt.cost=%d for a %d ms target%n", chosen, targetMillis);
+    }
+
+    private static long medianMillis(int cost) {
+        long[] samples = new long[SAMPLES];
+        String salt = BCrypt.gensalt(cost);
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw("correct horse battery staple", salt);
+            samples[i] = (System.nanoTime() - start) / 1_000_000;
+        }
+        Arrays.sort(samples);
+        return samples[SAMPLES / 2];
+    }
+}
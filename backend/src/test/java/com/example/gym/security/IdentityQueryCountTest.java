@@ -0,0 +1,166 @@
+package com.example.gym.security;
+
+import com.example.gym.dto.PlanSnapshot;
+import com.example.gym.model.InvoiceModel;
+import com.example.gym.model.MemberModel;
+import com.example.gym.repository.*;
+import com.example.gym.service.MembershipPlanCatalog;
+import com.example.gym.service.SubscriptionService;
+import com.example.gym.service.TokenRevocationService;
+import com.example.gym.util.ValidationUtil;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.security.Key;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// counts identity lookups made while serving a single authenticated request
+public class IdentityQueryCountTest {
+
+    private static final String EMAIL = "member@example.com";
+
+    private JwtUtil jwtUtil;
+    private UserCredentialRepository userCredentialRepository;
+    private MemberRepository memberRepository;
+    private SubscriptionRepository subscriptionRepository;
+    private MembershipPlanRepository membershipPlanRepository;
+    private MembershipPlanCatalog membershipPlanCatalog;
+    private InvoiceRepository invoiceRepository;
+
+    private AuthenticatedUserArgumentResolver resolver;
+    private SubscriptionService subscriptionService;
+
+    private final UUID memberId = UUID.randomUUID();
+
+    @BeforeEach
+    void setup() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "jwtSecret", "test_secret_key_that_is_long_enough_for_hs256");
+        ReflectionTestUtils.setField(jwtUtil, "jwtExpiration", 60_000L);
+        ReflectionTestUtils.setField(jwtUtil, "accessExpiration", 60_000L);
+        ReflectionTestUtils.setField(jwtUtil, "cacheMaxSize", 100L);
+        jwtUtil.init();
+
+        userCredentialRepository = mock(UserCredentialRepository.class);
+        memberRepository = mock(MemberRepository.class);
+        subscriptionRepository = mock(SubscriptionRepository.class);
+        membershipPlanRepository = mock(MembershipPlanRepository.class);
+        invoiceRepository = mock(InvoiceRepository.class);
+
+        when(userCredentialRepository.findAuthenticatedUser(EMAIL)).thenReturn(Optional.of(principal()));
+
+        ValidationUtil validationUtil = new ValidationUtil(jwtUtil);
+        resolver = new AuthenticatedUserArgumentResolver(validationUtil, jwtUtil, mock(TokenRevocationService.class),
+                userCredentialRepository);
+        membershipPlanCatalog = mock(MembershipPlanCatalog.class);
+        subscriptionService = new SubscriptionService(validationUtil, subscriptionRepository,
+                membershipPlanRepository, membershipPlanCatalog, memberRepository, invoiceRepository);
+    }
+
+    @Test
+    void applyForSubscription_issuesOneIdentityQuery() throws Exception {
+        PlanSnapshot gold = new PlanSnapshot(UUID.randomUUID(), "Gold", 90,
+                new BigDecimal("75.00"), new BigDecimal("59.00"));
+        when(membershipPlanCatalog.findByName("Gold")).thenReturn(Optional.of(gold));
+        when(subscriptionRepository.findByMemberWithPlan(memberId)).thenReturn(List.of());
+        when(memberRepository.getReferenceById(memberId)).thenReturn(new MemberModel());
+        when(invoiceRepository.save(any())).thenAnswer(invocation -> {
+            InvoiceModel invoice = invocation.getArgument(0);
+            invoice.setInvoiceId(UUID.randomUUID());
+            return invoice;
+        });
+
+        ServletWebRequest request = authenticatedRequest(legacyToken());
+        AuthenticatedUser user = resolve(request);
+        // a second parameter on the same request must not trigger another lookup
+        assertSame(user, resolve(request));
+
+        subscriptionService.applyForSubscription(user, "Gold");
+
+        verify(userCredentialRepository, times(1)).findAuthenticatedUser(EMAIL);
+        verifyNoMoreInteractions(userCredentialRepository);
+        verify(memberRepository).getReferenceById(memberId);
+        verifyNoMoreInteractions(memberRepository);
+        // plan resolution is a catalog lookup; only a proxy reference is taken for the FK
+        verify(membershipPlanRepository).getReferenceById(gold.planId());
+        verifyNoMoreInteractions(membershipPlanRepository);
+    }
+
+    @Test
+    void readEndpoints_doNotRepeatIdentityQueries() throws Exception {
+        when(subscriptionRepository.findByMemberWithPlan(memberId)).thenReturn(List.of());
+        when(invoiceRepository.findUnpaidInvoicesByMember(memberId)).thenReturn(List.of());
+
+        AuthenticatedUser user = resolve(authenticatedRequest(legacyToken()));
+        subscriptionService.getPendingInvoices(user);
+        subscriptionService.seeSubsciptionDetail(user);
+
+        verify(userCredentialRepository, times(1)).findAuthenticatedUser(EMAIL);
+        verifyNoMoreInteractions(userCredentialRepository);
+        verifyNoInteractions(memberRepository);
+    }
+
+    @Test
+    void accessTokenClaims_needNoIdentityQuery() throws Exception {
+        AuthenticatedUser user = resolve(authenticatedRequest(jwtUtil.generateToken(principal())));
+
+        assertEquals(memberId, user.getMemberId());
+        assertTrue(jwtUtil.toAuthenticatedUser(jwtUtil.verifyToken(jwtUtil.generateToken(principal()))).isMember());
+        verifyNoInteractions(userCredentialRepository);
+        verifyNoInteractions(memberRepository);
+    }
+
+    @Test
+    void refreshToken_isRejectedForApiAccess() {
+        ServletWebRequest request = authenticatedRequest(jwtUtil.generateRefreshToken(EMAIL));
+
+        assertThrows(ResponseStatusException.class, () -> resolve(request));
+        verifyNoInteractions(userCredentialRepository);
+    }
+
+    private AuthenticatedUser principal() {
+        return new AuthenticatedUser(EMAIL, "member", null, memberId, "active");
+    }
+
+    // token issued before authorization claims were embedded: subject only
+    private String legacyToken() {
+        Key key = (Key) ReflectionTestUtils.getField(jwtUtil, "signingKey");
+        return Jwts.builder()
+                .setSubject(EMAIL)
+                .setExpiration(new Date(System.currentTimeMillis() + 60_000L))
+                .signWith(key, SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    private ServletWebRequest authenticatedRequest(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        return new ServletWebRequest(request);
+    }
+
+    private AuthenticatedUser resolve(ServletWebRequest request) throws Exception {
+        MethodParameter parameter = new MethodParameter(
+                IdentityQueryCountTest.class.getDeclaredMethod("handler", AuthenticatedUser.class), 0);
+        return (AuthenticatedUser) resolver.resolveArgument(parameter, null, request, null);
+    }
+
+    @SuppressWarnings("unused")
+    private void handler(@CurrentUser AuthenticatedUser user) {
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.gym.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// the edges of half-open intervals: touching classes share a boundary but never a minute
+public class IntervalIndexTest {
+
+    private IntervalIndex index;
+
+    @BeforeEach
+    void setup() {
+        index = new IntervalIndex();
+        assertTrue(index.add(interval(9, 0, 10, 0, 1)));
+        assertTrue(index.add(interval(12, 0, 13, 30, 2)));
+    }
+
+    @Test
+    void touchingIntervals_doNotConflict() {
+        assertNull(index.firstConflict(time(10, 0), time(12, 0), -1));
+        assertNull(index.firstConflict(time(8, 0), time(9, 0), -1));
+        assertNull(index.firstConflict(time(13, 30), time(14, 0), -1));
+        assertTrue(index.add(interval(10, 0, 12, 0, 3)));
+        assertTrue(index.add(interval(8, 0, 9, 0, 4)));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    void overlapByOneMinute_conflicts() {
+        assertEquals(1, index.firstConflict(time(9, 59), time(11, 0), -1).scheduleId());
+        assertEquals(2, index.firstConflict(time(11, 0), time(12, 1), -1).scheduleId());
+        assertFalse(index.add(interval(9, 59, 11, 0, 3)));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void containingAndContainedIntervals_conflict() {
+        // the case a start-or-end-inside check misses: the existing class covers the whole new one
+        assertEquals(2, index.firstConflict(time(12, 15), time(13, 0), -1).scheduleId());
+        // and the new class covers the whole existing one
+        assertEquals(1, index.firstConflict(time(8, 0), time(11, 0), -1).scheduleId());
+        assertEquals(1, index.firstConflict(time(9, 0), time(10, 0), -1).scheduleId());
+    }
+
+    @Test
+    void spanningSeveralIntervals_reportsAllInOrder() {
+        List<IntervalIndex.Interval> conflicts = index.conflicts(time(9, 30), time(12, 30));
+        assertEquals(List.of(1L, 2L), conflicts.stream().map(IntervalIndex.Interval::scheduleId).toList());
+        assertTrue(index.conflicts(time(10, 0), time(12, 0)).isEmpty());
+    }
+
+    @Test
+    void movingAClass_ignoresItself() {
+        assertNull(index.firstConflict(time(9, 30), time(10, 30), 1));
+        assertEquals(2, index.firstConflict(time(9, 30), time(12, 30), 1).scheduleId());
+    }
+
+    @Test
+    void removeOnlyDropsTheMatchingSchedule() {
+        index.remove(2, time(9, 0));
+        assertEquals(2, index.size());
+        index.remove(1, time(9, 0));
+        assertNull(index.firstConflict(time(9, 0), time(10, 0), -1));
+    }
+
+    @Test
+    void emptyOrBackwardsIntervals_areRejected() {
+        assertThrows(IllegalArgumentException.class, () -> index.add(interval(15, 0, 15, 0, 3)));
+        assertThrows(IllegalArgumentException.class, () -> index.add(interval(16, 0, 15, 0, 3)));
+    }
+
+    @Test
+    void nextFree_startsInTheFirstGapThatFits() {
+        assertEquals(time(8, 0), IntervalIndex.nextFree(List.of(index), time(8, 0), Duration.ofHours(1), time(22, 0)));
+        assertEquals(time(10, 0), IntervalIndex.nextFree(List.of(index), time(8, 30), Duration.ofHours(1), time(22, 0)));
+        // exactly fills the gap between the two classes
+        assertEquals(time(10, 0), IntervalIndex.nextFree(List.of(index), time(9, 0), Duration.ofHours(2), time(22, 0)));
+        assertEquals(time(13, 30), IntervalIndex.nextFree(List.of(index), time(9, 0), Duration.ofMinutes(121), time(22, 0)));
+    }
+
+    @Test
+    void nextFree_respectsEveryIndexAndClosingTime() {
+        IntervalIndex trainer = new IntervalIndex();
+        trainer.add(interval(10, 0, 11, 0, 7));
+        assertEquals(time(11, 0), IntervalIndex.nextFree(List.of(index, trainer), time(9, 0), Duration.ofHours(1), time(22, 0)));
+        assertEquals(time(13, 30), IntervalIndex.nextFree(List.of(index, trainer), time(9, 0), Duration.ofMinutes(90), time(22, 0)));
+        // ending exactly at closing fits, one minute more does not
+        assertEquals(time(13, 30), IntervalIndex.nextFree(List.of(index), time(13, 0), Duration.ofMinutes(30), time(14, 0)));
+        assertNull(IntervalIndex.nextFree(List.of(index), time(13, 0), Duration.ofMinutes(31), time(14, 0)));
+        assertNull(IntervalIndex.nextFree(List.of(index), time(23, 0), Duration.ofMinutes(30), time(22, 0)));
+    }
+
+    private static IntervalIndex.Interval interval(int fromHour, int fromMinute, int toHour, int toMinute, long scheduleId) {
+        return new IntervalIndex.Interval(time(fromHour, fromMinute), time(toHour, toMinute), scheduleId);
+    }
+
+    private static LocalTime time(int hour, int minute) {
+        return LocalTime.of(hour, minute);
+    }
+}
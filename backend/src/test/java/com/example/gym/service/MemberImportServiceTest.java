@@ -0,0 +1,168 @@
+package com.example.gym.service;
+
+import com.example.gym.dto.MemberImportReport;
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.security.PasswordHasher;
+import com.example.gym.util.ValidationUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+// bad and duplicate rows are rejected one by one, in the file and against the database; the rows around them still go in
+public class MemberImportServiceTest {
+
+    private static final AuthenticatedUser ADMIN = AuthenticatedUser.builder()
+            .email("admin@example.com").userType("staff").staffRole("admin").build();
+
+    private static final String INSERT_CREDENTIAL = "INSERT INTO user_credential_model (user_id, user_type, user_email, " +
+            "password_hash, last_login) VALUES (?, 'member', ?, ?, ?)";
+
+    private JdbcTemplate jdbcTemplate;
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private MemberImportService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setup() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        namedParameterJdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(invocation -> {
+            ((Consumer<Object>) invocation.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        PasswordHasher passwordHasher = mock(PasswordHasher.class);
+        when(passwordHasher.hashAll(anyList())).thenAnswer(invocation ->
+                ((List<String>) invocation.getArgument(0)).stream().map(raw -> "hash-" + raw).toList());
+
+        service = new MemberImportService(jdbcTemplate, namedParameterJdbcTemplate, transactionTemplate,
+                passwordHasher, mock(ValidationUtil.class), JsonMapper.builder().build());
+    }
+
+    @Test
+    void nullLine_isRejectedAsMalformed_andLaterRowsStillImport() {
+        String ndjson = """
+                {"firstName":"Ada","lastName":"Lovelace","email":"ada@example.com","password":"pw","phone":"1","dob":"1990-01-01"}
+                null
+                {"firstName":"Alan","lastName":"Turing","email":"alan@example.com","password":"pw","phone":"2","dob":"1990-01-01"}
+                """;
+
+        MemberImportReport report = (MemberImportReport) service.importMembers(ADMIN,
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), "application/x-ndjson", "active").getBody();
+
+        assertEquals("completed", report.getStatus());
+        assertEquals(3, report.getRowsRead().get());
+        assertEquals(2, report.getImported().get());
+        assertEquals(1, report.getRejected().get());
+        assertEquals(2, report.getErrors().get(0).getRow());
+        assertTrue(report.getErrors().get(0).getReason().startsWith("Malformed row"), report.getErrors().get(0).getReason());
+        verify(jdbcTemplate).batchUpdate(eq(INSERT_CREDENTIAL), argThat((List<Object[]> rows) -> rows.size() == 2));
+    }
+
+    @Test
+    void duplicatesWithinTheFile_keepTheFirstRow() {
+        String csv = """
+                firstName,lastName,email,password,phone,dob
+                Ada,Lovelace,ada@example.com,pw,1,1990-01-01
+                Ada,Again,ada@example.com,pw,2,1990-01-01
+                Alan,Turing,alan@example.com,pw,1,1990-01-01
+                Grace,Hopper,grace@example.com,pw,3,1990-01-01
+                """;
+
+        MemberImportReport report = importCsv(csv);
+
+        assertEquals(4, report.getRowsRead().get());
+        assertEquals(2, report.getImported().get());
+        assertEquals(2, report.getRejected().get());
+        assertError(report, 0, 3, "Duplicate email in import");
+        assertError(report, 1, 4, "Duplicate phone in import");
+    }
+
+    @Test
+    void rowsClashingWithExistingUsers_areRejected() {
+        when(namedParameterJdbcTemplate.queryForList(contains("user_email"), anyMap(), eq(String.class)))
+                .thenReturn(List.of("ada@example.com"));
+        when(namedParameterJdbcTemplate.queryForList(contains("phone IN"), anyMap(), eq(String.class)))
+                .thenReturn(List.of("2"));
+
+        MemberImportReport report = importCsv("""
+                firstName,lastName,email,password,phone,dob
+                Ada,Lovelace,ada@example.com,pw,1,1990-01-01
+                Alan,Turing,alan@example.com,pw,2,1990-01-01
+                Grace,Hopper,grace@example.com,pw,3,1990-01-01
+                """);
+
+        assertEquals(1, report.getImported().get());
+        assertEquals(2, report.getRejected().get());
+        assertError(report, 0, 2, "Email already registered");
+        assertError(report, 1, 3, "Phone already registered");
+        verify(jdbcTemplate).batchUpdate(eq(INSERT_CREDENTIAL), argThat((List<Object[]> rows) ->
+                rows.size() == 1 && "grace@example.com".equals(rows.get(0)[1])));
+    }
+
+    @Test
+    void rowsSpanningBatches_areWrittenPerBatch_andDuplicatesAcrossBatchesAreCaught() {
+        StringBuilder csv = new StringBuilder("firstName,lastName,email,password,phone,dob\n");
+        for (int i = 0; i < 1001; i++)
+            csv.append("Member,").append(i).append(",m").append(i).append("@example.com,pw,").append(i).append(",1990-01-01\n");
+        // the first row of the third batch repeats the first row of the first
+        csv.append("Member,Again,m0@example.com,pw,again,1990-01-01\n");
+
+        MemberImportReport report = importCsv(csv.toString());
+
+        assertEquals("completed", report.getStatus());
+        assertEquals(1002, report.getRowsRead().get());
+        assertEquals(1001, report.getImported().get());
+        assertEquals(1, report.getRejected().get());
+        assertError(report, 0, 1003, "Duplicate email in import");
+        verify(jdbcTemplate, times(2)).batchUpdate(eq(INSERT_CREDENTIAL), argThat((List<Object[]> rows) -> rows.size() == 500));
+        verify(jdbcTemplate).batchUpdate(eq(INSERT_CREDENTIAL), argThat((List<Object[]> rows) -> rows.size() == 1));
+    }
+
+    @Test
+    void batchLosingARaceToARegistration_isRetriedRowByRow() {
+        when(jdbcTemplate.batchUpdate(eq(INSERT_CREDENTIAL), anyList())).thenAnswer(invocation -> {
+            List<Object[]> rows = invocation.getArgument(1);
+            if (rows.size() > 1 || "alan@example.com".equals(rows.get(0)[1]))
+                throw new DataIntegrityViolationException("duplicate key");
+            return new int[rows.size()];
+        });
+
+        MemberImportReport report = importCsv("""
+                firstName,lastName,email,password,phone,dob
+                Ada,Lovelace,ada@example.com,pw,1,1990-01-01
+                Alan,Turing,alan@example.com,pw,2,1990-01-01
+                """);
+
+        assertEquals(1, report.getImported().get());
+        assertEquals(1, report.getRejected().get());
+        assertError(report, 0, 3, "Conflicts with an existing user");
+    }
+
+    private MemberImportReport importCsv(String csv) {
+        return (MemberImportReport) service.importMembers(ADMIN,
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), "text/csv", "active").getBody();
+    }
+
+    private static void assertError(MemberImportReport report, int index, long row, String reason) {
+        assertEquals(row, report.getErrors().get(index).getRow());
+        assertEquals(reason, report.getErrors().get(index).getReason());
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.gym.service;
+
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.util.ValidationUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// days whose attendance has been archived out of the database are never rebuilt, so their heatmap rows survive
+public class OccupancyHeatmapServiceTest {
+
+    private static final AuthenticatedUser ADMIN = AuthenticatedUser.builder()
+            .email("admin@example.com").userType("staff").staffRole("admin").build();
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private OccupancyHeatmapService service;
+
+    @BeforeEach
+    void setup() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        transactionTemplate = mock(TransactionTemplate.class);
+        service = new OccupancyHeatmapService(jdbcTemplate, transactionTemplate, mock(ValidationUtil.class));
+        ReflectionTestUtils.setField(service, "maxVisitHours", 12L);
+        ReflectionTestUtils.setField(service, "retentionMonths", 12);
+    }
+
+    @Test
+    void rangeReachingIntoArchivedMonths_isRejectedBeforeAnythingIsDeleted() {
+        // its first day would need visits carried in from the archived month before
+        LocalDate oldestKept = YearMonth.now().minusMonths(12).atDay(1);
+
+        for (LocalDate from : new LocalDate[]{oldestKept.minusDays(10), oldestKept}) {
+            ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                    () -> service.rebuild(ADMIN, from, oldestKept.plusDays(5)));
+            assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+            assertTrue(e.getReason().contains(oldestKept.plusDays(1).toString()), e.getReason());
+        }
+        verifyNoInteractions(jdbcTemplate, transactionTemplate);
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.gym.service;
+
+import com.example.gym.config.PaymentRequest;
+import com.example.gym.model.PaymentAttemptModel;
+import com.example.gym.repository.InvoiceRepository;
+import com.example.gym.repository.PaymentAttemptRepository;
+import com.example.gym.repository.PaymentRepository;
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.util.ValidationUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+// which earlier attempts a resubmitted transactionRef replays, and how gateway errors are held back before retrying
+public class PaymentProcessingServiceTest {
+
+    private static final UUID MEMBER_ID = UUID.randomUUID();
+    private static final UUID INVOICE_ID = UUID.randomUUID();
+    private static final AuthenticatedUser MEMBER = AuthenticatedUser.builder()
+            .email("member@example.com").userType("member").memberId(MEMBER_ID).memberStatus("active").build();
+
+    private PaymentAttemptRepository paymentAttemptRepository;
+    private PaymentGateway paymentGateway;
+    private PaymentProcessingService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setup() {
+        paymentAttemptRepository = mock(PaymentAttemptRepository.class);
+        paymentGateway = mock(PaymentGateway.class);
+        ValidationUtil validationUtil = mock(ValidationUtil.class);
+        when(validationUtil.findIfMemberExists(any())).thenReturn(true);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(invocation -> {
+            ((Consumer<Object>) invocation.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        service = new PaymentProcessingService(validationUtil, paymentAttemptRepository, mock(InvoiceRepository.class),
+                mock(PaymentRepository.class), paymentGateway, mock(RevenueReportService.class), transactionTemplate);
+        ReflectionTestUtils.setField(service, "maxAttempts", 5);
+        ReflectionTestUtils.setField(service, "retryBackoffMs", 2000L);
+    }
+
+    @Test
+    void resubmittedRef_replaysLiveAttempts() {
+        for (String status : new String[]{"queued", "processing", "settled"}) {
+            PaymentAttemptModel previous = attempt(status, 1);
+            when(paymentAttemptRepository.findByInvoiceIdAndTransactionRef(INVOICE_ID, "txn-1")).thenReturn(Optional.of(previous));
+
+            assertEquals(HttpStatus.ACCEPTED, service.enqueuePayment(MEMBER, request("txn-1")).getStatusCode(), status);
+        }
+    }
+
+    @Test
+    void resubmittedRef_ofFailedAttempt_is409() {
+        for (String status : new String[]{"declined", "rejected", "failed"}) {
+            when(paymentAttemptRepository.findByInvoiceIdAndTransactionRef(INVOICE_ID, "txn-1"))
+                    .thenReturn(Optional.of(attempt(status, 1)));
+
+            ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                    () -> service.enqueuePayment(MEMBER, request("txn-1")), status);
+            assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+        }
+    }
+
+    @Test
+    void gatewayError_requeuesWithGrowingBackoff() {
+        PaymentAttemptModel attempt = attempt("processing", 3);
+        when(paymentAttemptRepository.claim(eq(attempt.getAttemptId()), any())).thenReturn(1);
+        when(paymentAttemptRepository.findById(attempt.getAttemptId())).thenReturn(Optional.of(attempt));
+        when(paymentGateway.charge(any(), any(), any())).thenThrow(new IllegalStateException("gateway down"));
+
+        LocalDateTime before = LocalDateTime.now();
+        service.process(attempt.getAttemptId());
+
+        assertEquals("queued", attempt.getStatus());
+        // third try: 2s doubled twice
+        assertFalse(attempt.getNextAttemptAt().isBefore(before.plusSeconds(8)));
+        assertTrue(attempt.getNextAttemptAt().isBefore(LocalDateTime.now().plusSeconds(9)));
+    }
+
+    private static PaymentAttemptModel attempt(String status, int attempts) {
+        return PaymentAttemptModel.builder()
+                .attemptId(UUID.randomUUID()).invoiceId(INVOICE_ID).memberId(MEMBER_ID)
+                .amount(new BigDecimal("40.00")).transactionRef("txn-1")
+                .status(status).attempts(attempts).updatedAt(LocalDateTime.now()).build();
+    }
+
+    private static PaymentRequest request(String transactionRef) {
+        PaymentRequest request = new PaymentRequest();
+        request.setPaymentId(INVOICE_ID);
+        request.setAmountPaid(new BigDecimal("40.00"));
+        request.setPaymentMethod("card");
+        request.setTransactionRef(transactionRef);
+        return request;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.gym.service;
+
+import com.example.gym.dto.TimetableRequest;
+import com.example.gym.repository.ClassScheduleRepository;
+import com.example.gym.repository.FacilityRoomRepository;
+import com.example.gym.repository.TrainerRepository;
+import com.example.gym.security.AuthenticatedUser;
+import com.example.gym.util.ValidationUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// requests refused before the solver runs: unsaveable combinations, oversized weeks and a second concurrent run
+public class TimetableServiceTest {
+
+    private static final AuthenticatedUser ADMIN = AuthenticatedUser.builder()
+            .email("admin@example.com").userType("staff").staffRole("admin").build();
+
+    private ClassScheduleRepository classScheduleRepository;
+    private TimetableService service;
+
+    @BeforeEach
+    void setup() {
+        classScheduleRepository = mock(ClassScheduleRepository.class);
+        service = new TimetableService(mock(FacilityRoomRepository.class), mock(TrainerRepository.class),
+                classScheduleRepository, mock(ClassScheduleService.class), mock(ValidationUtil.class));
+        ReflectionTestUtils.setField(service, "defaultBudgetMs", 1000L);
+        ReflectionTestUtils.setField(service, "maxBudgetMs", 60000L);
+        ReflectionTestUtils.setField(service, "maxSessions", 50);
+    }
+
+    @Test
+    void applyWithoutKeepingExisting_isRejected() {
+        TimetableRequest request = request(1);
+        request.setKeepExisting(false);
+        request.setApply(true);
+
+        assertRejected(HttpStatus.BAD_REQUEST, request);
+    }
+
+    @Test
+    void moreSessionsThanTheCap_areRejected() {
+        assertRejected(HttpStatus.BAD_REQUEST, request(51));
+    }
+
+    @Test
+    void secondRunWhileOneIsInProgress_is409() {
+        ((Semaphore) ReflectionTestUtils.getField(service, "running")).acquireUninterruptibly();
+
+        assertRejected(HttpStatus.CONFLICT, request(1));
+    }
+
+    private void assertRejected(HttpStatus status, TimetableRequest request) {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> service.generate(ADMIN, request));
+        assertEquals(status, e.getStatusCode());
+        verifyNoInteractions(classScheduleRepository);
+    }
+
+    private static TimetableRequest request(int sessions) {
+        TimetableRequest.ClassDemand demand = new TimetableRequest.ClassDemand();
+        demand.setClassName("Yoga");
+        demand.setMinutes(60);
+        demand.setSessions(sessions);
+        TimetableRequest request = new TimetableRequest();
+        request.setClasses(List.of(demand));
+        return request;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.gym.service;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.*;
+
+// Generates a realistic week (20 rooms, 60 trainers, 400 classes by default) and solves it once on one worker and
+// once on every core with the same time budget, reporting hard violations, quality and search speed.
+// Run with: ./mvnw test-compile exec:java -Dexec.classpathScope=test
+//           -Dexec.mainClass=com.example.gym.service.TimetableSolverBenchmark
+//           -Dexec.args="20 60 400 10000"
+public class TimetableSolverBenchmark {
+
+    private static final String[][] KINDS = {
+            // class type, room type, minutes
+            {"spin", "spin", "45"}, {"yoga", "studio", "60"}, {"pilates", "studio", "45"}, {"hiit", "studio", "30"},
+            {"boxing", "hall", "60"}, {"strength", "weights", "60"}, {"aqua", "pool", "45"}, {"swim", "pool", "60"},
+            {"dance", "studio", "60"}, {"mobility", "studio", "30"}};
+    private static final String[] ROOM_TYPES = {"spin", "studio", "studio", "hall", "weights", "pool"};
+
+    public static void main(String[] args) {
+        int roomCount = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int trainerCount = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+        int classCount = args.length > 2 ? Integer.parseInt(args[2]) : 400;
+        long budgetMs = args.length > 3 ? Long.parseLong(args[3]) : 10_000;
+        Random random = new Random(42);
+
+        List<TimetableSolver.Room> rooms = new ArrayList<>();
+        for (int r = 0; r < roomCount; r++)
+            rooms.add(new TimetableSolver.Room(r + 1, 20 + random.nextInt(30), ROOM_TYPES[r % ROOM_TYPES.length]));
+
+        List<TimetableSolver.Trainer> trainers = new ArrayList<>();
+        for (int t = 0; t < trainerCount; t++) {
+            Set<String> skills = new HashSet<>();
+            skills.add(KINDS[t % KINDS.length][0]);
+            skills.add(KINDS[random.nextInt(KINDS.length)][0]);
+            // a third of the trainers only work mornings or evenings on five days
+            Map<DayOfWeek, List<TimetableSolver.Window>> availability = new EnumMap<>(DayOfWeek.class);
+            if (t % 3 == 0)
+                for (int d = 0; d < 5; d++)
+                    availability.put(DayOfWeek.of((t + d) % 7 + 1), List.of(random.nextBoolean()
+                            ? new TimetableSolver.Window(LocalTime.of(6, 0), LocalTime.of(13, 0))
+                            : new TimetableSolver.Window(LocalTime.of(15, 0), LocalTime.of(22, 0))));
+            trainers.add(new TimetableSolver.Trainer(UUID.randomUUID(), skills, availability));
+        }
+
+        List<TimetableSolver.Session> sessions = new ArrayList<>();
+        for (int i = 0; i < classCount; i++) {
+            String[] kind = KINDS[i % KINDS.length];
+            Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+            for (int d = 0; d < 3; d++)
+                days.add(DayOfWeek.of(random.nextInt(7) + 1));
+            TimetableSolver.Window window = random.nextBoolean()
+                    ? new TimetableSolver.Window(LocalTime.of(6, 30), LocalTime.of(10, 0))
+                    : new TimetableSolver.Window(LocalTime.of(17, 0), LocalTime.of(21, 0));
+            sessions.add(new TimetableSolver.Session(kind[0] + "-" + (i % 40), kind[0], kind[1],
+                    Integer.parseInt(kind[2]), 10 + random.nextInt(10), days, window));
+        }
+
+        TimetableSolver solver = new TimetableSolver(LocalTime.of(6, 0), LocalTime.of(22, 0), 15,
+                rooms, trainers, sessions, List.of());
+        System.out.printf("%d rooms, %d trainers, %d classes, %d ms budget%n", roomCount, trainerCount, classCount, budgetMs);
+        for (int workers : new int[]{1, Runtime.getRuntime().availableProcessors()}) {
+            TimetableSolver.Result result = solver.solve(Duration.ofMillis(budgetMs), workers, 7);
+            System.out.printf("%2d workers: %d hard violations, soft penalty %d, quality %.1f, %,d moves in %d ms (%,.0f moves/s)%n",
+                    workers, result.hardViolations(), result.softPenalty(), result.quality(), result.iterations(),
+                    result.elapsedMs(), result.iterations() * 1000.0 / Math.max(1, result.elapsedMs()));
+        }
+    }
+}
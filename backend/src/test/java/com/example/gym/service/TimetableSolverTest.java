@@ -0,0 +1,83 @@
+package com.example.gym.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// a tight week the solver has to fill without any overlap, checked independently of its own score
+public class TimetableSolverTest {
+
+    private static final LocalTime OPENING = LocalTime.of(8, 0);
+    private static final LocalTime CLOSING = LocalTime.of(12, 0);
+
+    private final UUID yogaTrainer = UUID.randomUUID();
+    private final UUID spinTrainer = UUID.randomUUID();
+    private final UUID allRounder = UUID.randomUUID();
+
+    @Test
+    void fullWeek_isPlacedWithoutConflicts() {
+        List<TimetableSolver.Room> rooms = List.of(
+                new TimetableSolver.Room(1, 20, "studio"),
+                new TimetableSolver.Room(2, 30, "spin"));
+        // the all-rounder only works Monday mornings until ten
+        List<TimetableSolver.Trainer> trainers = List.of(
+                new TimetableSolver.Trainer(yogaTrainer, Set.of("yoga"), Map.of()),
+                new TimetableSolver.Trainer(spinTrainer, Set.of("spin"), Map.of()),
+                new TimetableSolver.Trainer(allRounder, Set.of("yoga", "spin"), Map.of(DayOfWeek.MONDAY,
+                        List.of(new TimetableSolver.Window(LocalTime.of(8, 0), LocalTime.of(10, 0))))));
+
+        List<TimetableSolver.Session> sessions = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            sessions.add(new TimetableSolver.Session("Yoga", "yoga", "studio", 60, 15, Set.of(), null));
+            sessions.add(new TimetableSolver.Session("Spin", "spin", "spin", 45, 25,
+                    EnumSet.of(DayOfWeek.TUESDAY, DayOfWeek.THURSDAY), new TimetableSolver.Window(OPENING, CLOSING)));
+        }
+        // Saturday 8:00-9:00 in the studio is taken by a class already on the timetable
+        List<TimetableSolver.Busy> busy = List.of(new TimetableSolver.Busy(1L, null, DayOfWeek.SATURDAY,
+                LocalTime.of(8, 0), LocalTime.of(9, 0)));
+
+        TimetableSolver.Result result = new TimetableSolver(OPENING, CLOSING, 15, rooms, trainers, sessions, busy)
+                .solve(Duration.ofSeconds(3), 2, 1);
+
+        assertEquals(0, result.hardViolations());
+        assertEquals(40, result.placements().size());
+        List<TimetableSolver.Placement> all = new ArrayList<>(result.placements());
+        all.add(new TimetableSolver.Placement(null, DayOfWeek.SATURDAY, LocalTime.of(8, 0), LocalTime.of(9, 0), 1, null));
+        for (int i = 0; i < all.size(); i++) {
+            TimetableSolver.Placement a = all.get(i);
+            for (int j = i + 1; j < all.size(); j++) {
+                TimetableSolver.Placement b = all.get(j);
+                boolean overlap = a.day() == b.day() && a.start().isBefore(b.end()) && b.start().isBefore(a.end());
+                assertFalse(overlap && a.roomId() == b.roomId(), "room double booked: " + a + " / " + b);
+                assertFalse(overlap && a.trainerId() != null && a.trainerId().equals(b.trainerId()),
+                        "trainer double booked: " + a + " / " + b);
+            }
+        }
+        for (TimetableSolver.Placement placement : result.placements()) {
+            assertFalse(placement.start().isBefore(OPENING) || placement.end().isAfter(CLOSING));
+            assertEquals(placement.session().roomType().equals("studio") ? 1 : 2, placement.roomId());
+            if (placement.trainerId().equals(allRounder)) {
+                assertEquals(DayOfWeek.MONDAY, placement.day());
+                assertFalse(placement.end().isAfter(LocalTime.of(10, 0)));
+            }
+        }
+    }
+
+    @Test
+    void unplaceableClass_isRejectedUpFront() {
+        List<TimetableSolver.Room> rooms = List.of(new TimetableSolver.Room(1, 10, "studio"));
+        List<TimetableSolver.Trainer> trainers = List.of(new TimetableSolver.Trainer(yogaTrainer, Set.of("yoga"), Map.of()));
+
+        assertThrows(IllegalArgumentException.class, () -> new TimetableSolver(OPENING, CLOSING, 15, rooms, trainers,
+                List.of(new TimetableSolver.Session("Big yoga", "yoga", "studio", 60, 11, Set.of(), null)), List.of()));
+        assertThrows(IllegalArgumentException.class, () -> new TimetableSolver(OPENING, CLOSING, 15, rooms, trainers,
+                List.of(new TimetableSolver.Session("Spin", "spin", null, 60, 5, Set.of(), null)), List.of()));
+        assertThrows(IllegalArgumentException.class, () -> new TimetableSolver(OPENING, CLOSING, 15, rooms, trainers,
+                List.of(new TimetableSolver.Session("Marathon", "yoga", null, 300, 5, Set.of(), null)), List.of()));
+    }
+}
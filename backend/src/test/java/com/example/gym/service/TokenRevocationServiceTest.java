@@ -0,0 +1,69 @@
+package com.example.gym.service;
+
+import com.example.gym.repository.RevokedTokenRepository;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+// subject revocations against second-precision iat, and revocations made on another instance
+public class TokenRevocationServiceTest {
+
+    private static final String SUBJECT = "member@example.com";
+
+    private RevokedTokenRepository revokedTokenRepository;
+    private TokenRevocationService service;
+
+    @BeforeEach
+    void setup() {
+        revokedTokenRepository = mock(RevokedTokenRepository.class);
+        service = new TokenRevocationService(revokedTokenRepository);
+        ReflectionTestUtils.setField(service, "jwtExpiration", 3_600_000L);
+        ReflectionTestUtils.setField(service, "falsePositiveRate", 0.01);
+        service.init();
+    }
+
+    @Test
+    void tokenIssuedInTheSecondOfARevocation_staysValid() {
+        LocalDateTime revokedAt = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        service.revokeAllFor(SUBJECT);
+        when(revokedTokenRepository.findLatestSubjectRevocation(SUBJECT)).thenReturn(revokedAt);
+
+        assertFalse(service.isRevoked(claims(revokedAt)));
+        assertFalse(service.isRevoked(claims(revokedAt.plusSeconds(1))));
+        assertTrue(service.isRevoked(claims(revokedAt.minusSeconds(1))));
+    }
+
+    @Test
+    void revocationOnAnotherInstance_isSeenAfterSync() {
+        LocalDateTime revokedAt = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        when(revokedTokenRepository.findLatestSubjectRevocation(SUBJECT)).thenReturn(revokedAt);
+        Claims issuedBefore = claims(revokedAt.minusMinutes(5));
+
+        // nothing in this instance's filter yet: answered from memory
+        assertFalse(service.isRevoked(issuedBefore));
+        verify(revokedTokenRepository, never()).findLatestSubjectRevocation(anyString());
+
+        when(revokedTokenRepository.findRevokedSince(any())).thenReturn(List.<Object[]>of(new Object[]{null, SUBJECT}));
+        service.sync();
+        assertTrue(service.isRevoked(issuedBefore));
+    }
+
+    private static Claims claims(LocalDateTime issuedAt) {
+        Claims claims = Jwts.claims().setSubject(SUBJECT);
+        claims.setIssuedAt(Date.from(issuedAt.atZone(ZoneId.systemDefault()).toInstant()));
+        return claims;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.gym.service;
+
+import com.example.gym.dto.ClassOccurrenceView;
+import com.example.gym.repository.ClassOccurrenceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+// conditional polls of the published schedule: unchanged polls are answered from memory
+public class WeeklyScheduleServiceTest {
+
+    private ClassOccurrenceRepository classOccurrenceRepository;
+    private WeeklyScheduleService service;
+
+    @BeforeEach
+    void setup() {
+        classOccurrenceRepository = mock(ClassOccurrenceRepository.class);
+        when(classOccurrenceRepository.findViews(any(LocalDate.class), any(LocalDate.class))).thenReturn(List.of(spin(3), yoga()));
+        service = new WeeklyScheduleService(classOccurrenceRepository, JsonMapper.builder().build());
+        service.rebuild();
+    }
+
+    @Test
+    void matchingPoll_is304WithoutDatabaseWork() {
+        ResponseEntity<?> first = service.getSchedule(null);
+        String etag = first.getHeaders().getETag();
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertTrue(etag.startsWith("\"") && etag.endsWith("\""), "strong ETag expected: " + etag);
+        String body = new String((byte[]) first.getBody());
+        assertTrue(body.indexOf("Yoga") < body.indexOf("Spin"), "today before tomorrow: " + body);
+        assertTrue(body.contains("\"remainingSeats\":17"), body);
+
+        clearInvocations(classOccurrenceRepository);
+        for (String header : List.of(etag, "W/" + etag, "\"other\", " + etag, "*")) {
+            ResponseEntity<?> poll = service.getSchedule(header);
+            assertEquals(HttpStatus.NOT_MODIFIED, poll.getStatusCode());
+            assertEquals(etag, poll.getHeaders().getETag());
+            assertNull(poll.getBody());
+        }
+        assertEquals(HttpStatus.OK, service.getSchedule("\"other\"").getStatusCode());
+        verifyNoInteractions(classOccurrenceRepository);
+    }
+
+    @Test
+    void bookingChange_movesTheEtagOnlyWhenTheDocumentChanges() {
+        String etag = service.getSchedule(null).getHeaders().getETag();
+
+        // nothing dirty, nothing reloaded
+        service.refresh();
+        verify(classOccurrenceRepository, never()).findViews(anyCollection());
+
+        // a booking on occurrence 1 that nets out to the same seats keeps the ETag
+        when(classOccurrenceRepository.findViews(anyCollection())).thenReturn(List.of(spin(3)));
+        service.invalidate(1L);
+        service.invalidate(1L);
+        service.refresh();
+        verify(classOccurrenceRepository, times(1)).findViews(List.of(1L));
+        assertEquals(HttpStatus.NOT_MODIFIED, service.getSchedule(etag).getStatusCode());
+
+        when(classOccurrenceRepository.findViews(anyCollection())).thenReturn(List.of(spin(4)));
+        service.invalidate(1L);
+        service.refresh();
+        ResponseEntity<?> changed = service.getSchedule(etag);
+        assertEquals(HttpStatus.OK, changed.getStatusCode());
+        assertNotEquals(etag, changed.getHeaders().getETag());
+        assertTrue(new String((byte[]) changed.getBody()).contains("\"seatsTaken\":4"));
+    }
+
+    @Test
+    void cancelledOrDeletedOccurrence_dropsOutOnRefresh() {
+        when(classOccurrenceRepository.findViews(anyCollection())).thenReturn(List.of());
+        service.invalidate(2L);
+        service.refresh();
+        String body = new String((byte[]) service.getSchedule(null).getBody());
+        assertFalse(body.contains("Yoga"), body);
+        assertTrue(body.contains("Spin"), body);
+    }
+
+    @Test
+    void occurrenceMovedPastTheWindow_dropsOutOnRefresh() {
+        ClassOccurrenceView moved = new ClassOccurrenceView(1L, 1L, "Spin", LocalDate.now().plusDays(7),
+                LocalTime.of(18, 0), LocalTime.of(19, 0), 10L, "Studio B", "Sam Rider", "scheduled", "moved", null, 20, 3);
+        when(classOccurrenceRepository.findViews(anyCollection())).thenReturn(List.of(moved));
+        service.invalidate(1L);
+        service.refresh();
+        String body = new String((byte[]) service.getSchedule(null).getBody());
+        assertFalse(body.contains("Spin"), body);
+        assertTrue(body.contains("Yoga"), body);
+    }
+
+    @Test
+    void invalidateAll_rebuildsTheWindowOnTheNextRefresh() {
+        when(classOccurrenceRepository.findViews(any(LocalDate.class), any(LocalDate.class))).thenReturn(List.of(yoga()));
+        service.invalidateAll();
+        service.refresh();
+        verify(classOccurrenceRepository, times(2)).findViews(LocalDate.now(), LocalDate.now().plusDays(6));
+        assertFalse(new String((byte[]) service.getSchedule(null).getBody()).contains("Spin"));
+    }
+
+    private static ClassOccurrenceView spin(int seatsTaken) {
+        return new ClassOccurrenceView(1L, 1L, "Spin", LocalDate.now().plusDays(1), LocalTime.of(18, 0), LocalTime.of(19, 0),
+                10L, "Studio B", "Sam Rider", "scheduled", null, null, 20, seatsTaken);
+    }
+
+    private static ClassOccurrenceView yoga() {
+        return new ClassOccurrenceView(2L, 2L, "Yoga", LocalDate.now(), LocalTime.of(9, 0), LocalTime.of(10, 0),
+                11L, "Studio A", "Ada Lotus", "scheduled", null, null, null, 0);
+    }
+}
@@ -1,5 +1,6 @@
 import { createContext, useContext, useState, useEffect } from "react";
 import type { ReactNode } from "react";
+import { authFetch, clearSession, storeTokens, SESSION_EXPIRED_EVENT } from "../lib/api";
 
 export interface User {
     email: string;
@@ -53,6 +54,11 @@ export function AuthProvider({ children }: { children: ReactNode }) {
             setUser(JSON.parse(storedUser));
         }
         setIsLoading(false);
+
+        // a request whose token could not be refreshed has already cleared the session
+        const onSessionExpired = () => setUser(null);
+        window.addEventListener(SESSION_EXPIRED_EVENT, onSessionExpired);
+        return () => window.removeEventListener(SESSION_EXPIRED_EVENT, onSessionExpired);
     }, []);
 
     const login = async (email: string, password: string) => {
@@ -84,10 +90,9 @@ export function AuthProvider({ children }: { children: ReactNode }) {
             }
 
             const data = await response.json();
-            const token = data.token;
             const role = data.role;
 
-            localStorage.setItem('token', token);
+            storeTokens(data.token, data.refreshToken);
 
             const user: User = {
                 email,
@@ -132,8 +137,7 @@ export function AuthProvider({ children }: { children: ReactNode }) {
             }
 
             const resData = await response.json();
-            const token = resData.token;
-            localStorage.setItem('token', token);
+            storeTokens(resData.token, resData.refreshToken);
             localStorage.removeItem('pending_invoice'); // Clear stale invoices
 
             const user: User = {
@@ -179,8 +183,7 @@ export function AuthProvider({ children }: { children: ReactNode }) {
             }
 
             const resData = await response.json();
-            const token = resData.token;
-            localStorage.setItem('token', token);
+            storeTokens(resData.token, resData.refreshToken);
 
             const user: User = {
                 email: data.email,
@@ -202,9 +205,7 @@ export function AuthProvider({ children }: { children: ReactNode }) {
         const token = localStorage.getItem('token');
         if (!token) return null;
         try {
-            const response = await fetch('/api/auth/userdetails', {
-                headers: { 'Authorization': `Bearer ${token}` }
-            });
+            const response = await authFetch('/api/auth/userdetails');
             if (response.ok) {
                 const data = await response.json();
                 return data;
@@ -219,12 +220,9 @@ export function AuthProvider({ children }: { children: ReactNode }) {
         const token = localStorage.getItem('token');
         if (!token) throw new Error("No token");
 
-        const response = await fetch('/api/auth/userdetails', {
+        const response = await authFetch('/api/auth/userdetails', {
             method: 'POST',
-            headers: {
-                'Content-Type': 'application/json',
-                'Authorization': `Bearer ${token}`
-            },
+            headers: { 'Content-Type': 'application/json' },
             body: JSON.stringify(data)
         });
 
@@ -232,14 +230,28 @@ export function AuthProvider({ children }: { children: ReactNode }) {
             throw new Error('Failed to update profile');
         }
 
-        return await response.json();
+        // creating the member profile returns an access token that carries it
+        const resData = await response.json();
+        if (resData.token) storeTokens(resData.token);
+        return resData;
     };
 
     const logout = () => {
+        const token = localStorage.getItem('token');
+        const refreshToken = localStorage.getItem('refreshToken');
+        if (token) {
+            // best effort: revoke both tokens server-side, the local session is cleared either way
+            fetch('/api/auth/logout', {
+                method: 'POST',
+                headers: {
+                    'Content-Type': 'application/json',
+                    'Authorization': `Bearer ${token}`
+                },
+                body: JSON.stringify({ refreshToken })
+            }).catch(() => { });
+        }
         setUser(null);
-        localStorage.removeItem('token');
-        localStorage.removeItem('user');
-        localStorage.removeItem('pending_invoice');
+        clearSession();
     };
 
     return (
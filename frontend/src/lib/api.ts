@@ -0,0 +1,60 @@
+// Access tokens are short-lived; the refresh token stored at login buys a new one when a request comes back 401.
+export const SESSION_EXPIRED_EVENT = 'auth:session-expired';
+
+let refreshing: Promise<string | null> | null = null;
+
+export function storeTokens(token: string, refreshToken?: string) {
+    localStorage.setItem('token', token);
+    if (refreshToken) localStorage.setItem('refreshToken', refreshToken);
+}
+
+export function clearSession() {
+    localStorage.removeItem('token');
+    localStorage.removeItem('refreshToken');
+    localStorage.removeItem('user');
+    localStorage.removeItem('pending_invoice');
+}
+
+// concurrent 401s share one refresh call, since each refresh token exchange is a round trip to the server
+function refreshAccessToken(): Promise<string | null> {
+    const refreshToken = localStorage.getItem('refreshToken');
+    if (!refreshToken) return Promise.resolve(null);
+
+    if (!refreshing) {
+        refreshing = fetch('/api/auth/refresh', {
+            method: 'POST',
+            headers: { 'Content-Type': 'application/json' },
+            body: JSON.stringify({ refreshToken }),
+        })
+            .then(async response => (response.ok ? (await response.json()).token ?? null : null))
+            .catch(() => null)
+            .then(token => {
+                if (token) localStorage.setItem('token', token);
+                return token;
+            })
+            .finally(() => {
+                refreshing = null;
+            });
+    }
+    return refreshing;
+}
+
+// fetch with the stored access token; on a 401 the token is refreshed and the request retried once
+export async function authFetch(input: string, init: RequestInit = {}): Promise<Response> {
+    const send = (token: string | null) => {
+        const headers = new Headers(init.headers);
+        if (token) headers.set('Authorization', `Bearer ${token}`);
+        return fetch(input, { ...init, headers });
+    };
+
+    const response = await send(localStorage.getItem('token'));
+    if (response.status !== 401) return response;
+
+    const token = await refreshAccessToken();
+    if (!token) {
+        clearSession();
+        window.dispatchEvent(new Event(SESSION_EXPIRED_EVENT));
+        return response;
+    }
+    return send(token);
+}
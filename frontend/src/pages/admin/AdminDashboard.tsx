@@ -2,6 +2,7 @@ import { useState, useEffect } from 'react';
 import { useAuth } from '../../context/AuthContext';
 import { Button } from '../../components/ui/Button';
 import { Check, X } from 'lucide-react';
+import { authFetch } from '../../lib/api';
 
 
 interface PendingTrainer {
@@ -22,12 +23,7 @@ export function AdminDashboard() {
 
     const fetchPendingTrainers = async () => {
         try {
-            const token = localStorage.getItem('token');
-            const response = await fetch('/api/admin/pending-trainers', {
-                headers: {
-                    'Authorization': `Bearer ${token}`
-                }
-            });
+            const response = await authFetch('/api/admin/pending-trainers');
 
             if (!response.ok) {
                 throw new Error('Failed to fetch pending trainers');
@@ -48,12 +44,8 @@ export function AdminDashboard() {
 
     const handleAction = async (trainerId: string, action: 'approve' | 'reject') => {
         try {
-            const token = localStorage.getItem('token');
-            const response = await fetch(`/api/admin/pending-trainers/${action}/${trainerId}`, {
-                method: 'POST',
-                headers: {
-                    'Authorization': `Bearer ${token}`
-                }
+            const response = await authFetch(`/api/admin/pending-trainers/${action}/${trainerId}`, {
+                method: 'POST'
             });
 
             if (!response.ok) {
@@ -4,6 +4,7 @@ import { Input } from "../../components/ui/Input";
 import { Button } from "../../components/ui/Button";
 import { Link } from "react-router-dom";
 import { CheckCircle, AlertCircle, CreditCard, User, Mail, Phone, Calendar, Heart, Edit2, X, Save } from "lucide-react";
+import { authFetch } from "../../lib/api";
 
 export function MemberProfile() {
     const { fetchProfile } = useAuth();
@@ -33,20 +34,15 @@ export function MemberProfile() {
             }
 
             // Fetch subscription status
-            const token = localStorage.getItem('token');
             try {
-                const subResponse = await fetch('/api/subscriptions/current', {
-                    headers: { 'Authorization': `Bearer ${token}` }
-                });
+                const subResponse = await authFetch('/api/subscriptions/current');
                 if (subResponse.ok) {
                     const subData = await subResponse.json();
                     setSubscription(subData);
                 }
 
                 // Fetch pending invoices
-                const invoiceResponse = await fetch('/api/subscriptions/invoices/pending', {
-                    headers: { 'Authorization': `Bearer ${token}` }
-                });
+                const invoiceResponse = await authFetch('/api/subscriptions/invoices/pending');
                 if (invoiceResponse.ok) {
                     const invoiceData = await invoiceResponse.json();
                     if (invoiceData && invoiceData.invoice_id) {
@@ -1,6 +1,7 @@
 import { useState, useEffect } from "react";
 import { Button } from "../../components/ui/Button";
 import { Check, CreditCard, AlertCircle, Loader2, CheckCircle, X } from "lucide-react";
+import { authFetch } from "../../lib/api";
 
 interface Plan {
     name: string;
@@ -60,8 +61,6 @@ export function PurchasePlan() {
         setLoading(true);
         setError(null);
         try {
-            const token = localStorage.getItem('token');
-
             // First check localStorage for pending invoice
             const storedInvoice = localStorage.getItem(STORAGE_KEY);
             if (storedInvoice) {
@@ -74,9 +73,7 @@ export function PurchasePlan() {
             }
 
             // Fetch current subscription status
-            const subResponse = await fetch('/api/subscriptions/current', {
-                headers: { 'Authorization': `Bearer ${token}` }
-            });
+            const subResponse = await authFetch('/api/subscriptions/current');
 
             if (subResponse.ok) {
                 const subData = await subResponse.json();
@@ -90,9 +87,7 @@ export function PurchasePlan() {
             }
 
             // Fetch pending invoices from backend
-            const invoiceResponse = await fetch('/api/subscriptions/invoices/pending', {
-                headers: { 'Authorization': `Bearer ${token}` }
-            });
+            const invoiceResponse = await authFetch('/api/subscriptions/invoices/pending');
 
             if (invoiceResponse.ok) {
                 const invoiceData = await invoiceResponse.json();
@@ -132,11 +127,9 @@ export function PurchasePlan() {
         setError(null);
 
         try {
-            const token = localStorage.getItem('token');
-            const response = await fetch(`/api/subscriptions/apply?plan=${planName.toLowerCase()}`, {
+            const response = await authFetch(`/api/subscriptions/apply?plan=${planName.toLowerCase()}`, {
                 method: 'POST',
                 headers: {
-                    'Authorization': `Bearer ${token}`,
                     'Content-Type': 'application/json'
                 }
             });
@@ -186,18 +179,17 @@ export function PurchasePlan() {
         setError(null);
 
         try {
-            const token = localStorage.getItem('token');
-            const response = await fetch('/api/subscriptions/pay', {
+            const response = await authFetch('/api/subscriptions/pay', {
                 method: 'POST',
                 headers: {
-                    'Authorization': `Bearer ${token}`,
                     'Content-Type': 'application/json'
                 },
                 body: JSON.stringify({
                     paymentId: pendingInvoice.invoice_id,
                     amountPaid: pendingInvoice.amount,
                     paymentMethod: "Bkash",
-                    transactionRef: "sd"
+                    // a fresh reference per submission; reusing one would replay its earlier outcome
+                    transactionRef: crypto.randomUUID()
                 })
             });
 